@@ -12,29 +12,65 @@ package complexNumbers;
  */
 public class BinaryOperation extends Quantity {
     
-    private String opType;
+    private Operator operator;
     private Quantity leftChild;
     private Quantity rightChild;
     
     /**
-     * Creates a UnaryOperation object
+     * Creates a BinaryOperation object
      * 
      * @param type a String representing the operation
      * this object will be able to perform
+     * @throws IllegalArgumentException if type is not a binary operation
      */
     public BinaryOperation(String type)
     {
-        this.opType = type;
+        this(Operator.fromSymbol(type));
+    }
+    
+    /**
+     * Creates a BinaryOperation object
+     * 
+     * @param operator the operation this object will be able to perform
+     * @throws IllegalArgumentException if operator is not a binary operation
+     */
+    public BinaryOperation(Operator operator)
+    {
+        if (operator.isUnary())
+        {
+            throw new IllegalArgumentException();
+        }
+        this.operator = operator;
     }
     
     /**
      * Gets the type of this operation
      * 
-     * @return the opType field
+     * @return the symbol of the operator (such as "+" or "*")
      */
     public String getType()
     {
-        return opType;
+        return operator.getSymbol();
+    }
+    
+    /**
+     * Gets the operator of this operation
+     * 
+     * @return the operator field
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+    
+    /**
+     * Tells which subtype of Quantity this is
+     * 
+     * @return Kind.BINARY_OPERATION
+     */
+    public Kind getKind()
+    {
+        return Kind.BINARY_OPERATION;
     }
     
     /**
@@ -42,26 +78,7 @@ public class BinaryOperation extends Quantity {
      */
     public String toString()
     {
-        if (opType.equals("+"))
-        {
-            return "(" + leftChild.toString() + " + " + rightChild.toString() + ")";
-        }
-        else if (opType.equals("-"))
-        {
-            return "(" + leftChild.toString() + " - " + rightChild.toString() + ")";
-        }
-        else if (opType.equals("*"))
-        {
-            return "(" + leftChild.toString() + " * " + rightChild.toString() + ")";
-        }
-        else if (opType.equals("/"))
-        {
-            return "(" + leftChild.toString() + " / " + rightChild.toString() + ")";
-        }
-        else
-        {
-            return "<unrecognized opType>";
-        }
+        return operator.format(leftChild.toString(), rightChild.toString());
     }
     
     /**
@@ -73,6 +90,13 @@ public class BinaryOperation extends Quantity {
         this.leftChild = newChild;
         //child now links up to this object
         this.leftChild.setParent((Quantity) this);
+        //the child now belongs to this object's function, whose compiled program no longer matches it
+        Function function = this.getHousingFunction();
+        if (function != null)
+        {
+            newChild.updateFunction(function);
+            function.changed();
+        }
     }
     
     /**
@@ -104,6 +128,13 @@ public class BinaryOperation extends Quantity {
         this.rightChild = newChild;
         //child now links up to this object
         this.rightChild.setParent((Quantity) this);
+        //the child now belongs to this object's function, whose compiled program no longer matches it
+        Function function = this.getHousingFunction();
+        if (function != null)
+        {
+            newChild.updateFunction(function);
+            function.changed();
+        }
     }
     
 //    /**
@@ -170,7 +201,7 @@ public class BinaryOperation extends Quantity {
         Quantity copyOfLeftChild = leftChild.copy();
         Quantity copyOfRightChild = rightChild.copy();
         //create a new BinaryOperation identical to this one
-        BinaryOperation copyOfBinOp = new BinaryOperation(this.opType);
+        BinaryOperation copyOfBinOp = new BinaryOperation(this.operator);
         //link the copies of the children to the copy of this operation
         copyOfBinOp.setLeftChild(copyOfLeftChild);
         copyOfBinOp.setRightChild(copyOfRightChild);
@@ -178,72 +209,58 @@ public class BinaryOperation extends Quantity {
     }
     
     /**
-     * Finds the derivative of this quantity and replaces itself
-     * in the function with this derivative
+     * Creates the operation (left operator right), simplifying it as it is
+     * built: an operation on two Complexes is evaluated right away, and
+     * 0 + a, a + 0, a - 0, 0 * a, a * 0, 1 * a, a * 1 and a / 1 are reduced.
+     * No BinaryOperation is allocated when the result simplifies. Only an
+     * exact 0 or 1 is reduced (see Simplifier.reduce)
      * 
-     * @param variableName the name of the variable with respect
-     * to which this function will be differentiated
+     * @param operator a binary operator
+     * @param left the left operand, which may become part of the result
+     * @param right the right operand, which may become part of the result
+     * @return the simplest Quantity equal to (left operator right)
+     * @throws IllegalArgumentException if operator is not binary
      */
-    public void diff(String variableName)
+    public static Quantity of(Operator operator, Quantity left, Quantity right)
     {
-        //what to do next depends on what operation this object represents
-        if (opType.equals("+"))
-        {
-            //(a + b)' = a' + b'
-            this.getLeftChild().diff(variableName);
-            this.getRightChild().diff(variableName);
-        }
-        else if (opType.equals("-"))
-        {
-            //(a - b)' = a' - b'
-            this.getLeftChild().diff(variableName);
-            this.getRightChild().diff(variableName);
-        }
-        else if (opType.equals("*"))
-        {
-            //(ab)' = a'b + b'a
-            BinaryOperation plus = new BinaryOperation("+");
-            BinaryOperation times1 = new BinaryOperation("*");
-            BinaryOperation times2 = new BinaryOperation("*");
-            Quantity copyLeftChild = this.getLeftChild().copy();
-            Quantity copyRightChild = this.getRightChild().copy();
-            plus.setLeftChild(times1);
-            plus.setRightChild(times2);
-            times1.setLeftChild(copyLeftChild);
-            times1.getLeftChild().diff(variableName);
-            times1.setRightChild(this.getRightChild());
-            times2.setLeftChild(copyRightChild);
-            times2.getLeftChild().diff(variableName);
-            times2.setRightChild(this.getLeftChild());
-            this.replaceWith(plus);
-        }
-        else if (opType.equals("/"))
+        if (operator.isUnary())
         {
-            //(a/b)' = (a'b - b'a)/b^2
-            BinaryOperation divide = new BinaryOperation("/");
-            BinaryOperation minus = new BinaryOperation("-");
-            BinaryOperation times1 = new BinaryOperation("*");
-            BinaryOperation times2 = new BinaryOperation("*");
-            UnaryOperation square = new UnaryOperation("^2");
-            Quantity copyLeftChild = this.getLeftChild().copy();
-            Quantity copyRightChild = this.getRightChild().copy();
-            divide.setLeftChild(minus);
-            divide.setRightChild(square);
-            minus.setLeftChild(times1);
-            minus.setRightChild(times2);
-            times1.setLeftChild(copyLeftChild);
-            times1.getLeftChild().diff(variableName);
-            times1.setRightChild(this.getRightChild());
-            times2.setLeftChild(copyRightChild);
-            times2.getLeftChild().diff(variableName);
-            times2.setRightChild(this.getLeftChild());
-            square.setChild(this.getRightChild());
-            this.replaceWith(divide);
+            throw new IllegalArgumentException();
         }
-        else
+        switch (Simplifier.reduce(operator, left.getKind() == Kind.CONSTANT, real(left), imag(left),
+            right.getKind() == Kind.CONSTANT, real(right), imag(right)))
         {
-            throw new IllegalArgumentException();
+            case VALUE:
+                return operator.apply((Complex) left, (Complex) right);
+            case LEFT:
+                return left;
+            case RIGHT:
+                return right;
+            case ZERO:
+                return new Complex();
+            default:
+                break;
         }
+        BinaryOperation operation = new BinaryOperation(operator);
+        operation.setLeftChild(left);
+        operation.setRightChild(right);
+        return operation;
+    }
+    
+    /**
+     * Gets the real part of a constant, or 0 for any other quantity
+     */
+    private static double real(Quantity quantity)
+    {
+        return quantity.getKind() == Kind.CONSTANT ? ((Complex) quantity).real() : 0;
+    }
+    
+    /**
+     * Gets the imaginary part of a constant, or 0 for any other quantity
+     */
+    private static double imag(Quantity quantity)
+    {
+        return quantity.getKind() == Kind.CONSTANT ? ((Complex) quantity).imag() : 0;
     }
     
     /**
@@ -274,76 +291,21 @@ public class BinaryOperation extends Quantity {
      */
     public Function cleanUp()
     {
-        //looks for unsimplified expressions
-        
-        //for testing purposes
-        //<no test objects initialized yet>
-        
-       //if it finds 0 + a, where a is any quantity:
-       if (this.getType().equals("+") && this.getLeftChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace 0 + a with a
-           this.replaceWith(this.getRightChild());
-       }
-       //if it finds a + 0, where a is any quantity:
-       else if (this.getType().equals("+") && this.getRightChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace a + 0 with a
-           this.replaceWith(this.getLeftChild());
-       }
-       //if it finds 0 - a, where a is any quantity:
-       else if (this.getType().equals("-") && this.getLeftChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace 0 - a with (-1) * a
-           BinaryOperation mult = new BinaryOperation("*");
-           mult.setLeftChild(new Complex(-1, 0));
-           mult.setRightChild(this.getRightChild());
-           this.replaceWith(mult);
-       }
-       //if it finds a - 0, where a is any quantity:
-       else if (this.getType().equals("-") && this.getRightChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace a - 0 with a
-           this.replaceWith(this.getLeftChild());
-       }
-       //if it finds 0 * a, where a is any quantity:
-       else if (this.getType().equals("*") && this.getLeftChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace 0 * a with 0
-           this.replaceWith(new Complex());
-       }
-       //if it finds a * 0, where a is any quantity:
-       else if (this.getType().equals("*") && this.getRightChild().equals(new Complex()) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace a * 0 with 0
-           this.replaceWith(new Complex());
-       }
-       //if it finds a * 1, where a is any quantity:
-       else if (this.getType().equals("*") && this.getRightChild().equals(new Complex(1, 0)) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace a * 1 with a
-           this.replaceWith(this.getLeftChild());
-       }
-       //if it finds 1 * a, where a is any quantity:
-       else if (this.getType().equals("*") && this.getLeftChild().equals(new Complex(1, 0)) )
-       {
-           this.getHousingFunction().setCleaned(false);
-           //replace 1 * a with a
-           this.replaceWith(this.getRightChild());
-       }      
-       else
-       {
-           this.getLeftChild().cleanUp();
-           this.getRightChild().cleanUp();
-       }
-       return this.getHousingFunction();
+        //looks for an unsimplified expression at this node (see StandardRule),
+        //such as 0 + a, a - 0, 1 * a or a * 0
+        Quantity replacement = Simplifier.standard().rewrite(this);
+        if (replacement != null)
+        {
+            this.getHousingFunction().setCleaned(false);
+            replacement.updateFunction(this.getHousingFunction());
+            this.replaceWith(replacement);
+        }
+        else
+        {
+            this.getLeftChild().cleanUp();
+            this.getRightChild().cleanUp();
+        }
+        return this.getHousingFunction();
     }
         
 }
@@ -0,0 +1,458 @@
+package complexNumbers;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Turns a postfix program from CompiledFunction into a hidden class that
+ * evaluates the whole program as straight-line primitive code. Every
+ * intermediate value becomes a pair of local doubles, constants are
+ * loaded from the class's constant pool, and the Complex arithmetic is
+ * spelled out (multiplication, division, sqrt, exp and ln call the same
+ * static kernels the interpreter uses), so the JIT sees one small method
+ * it can optimize as a whole.
+ *
+ * The class file is written directly, one instruction at a time, and
+ * defined with MethodHandles.Lookup.defineHiddenClass, so no compiler is
+ * needed at runtime. The method has no branches, so it needs no stack map
+ * frames. generate() returns null, and the caller keeps interpreting the
+ * program, only when the program is too long for the JIT to compile or
+ * is not a well-formed program; a class that fails to load is a bug and
+ * is reported as an IllegalStateException.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+final class BytecodeCompiler {
+
+    /**
+     * Longest generated method, in bytes of bytecode. HotSpot does not
+     * JIT-compile longer methods, so they would run slower than the
+     * interpreter loop.
+     */
+    static final int MAX_CODE_LENGTH = 8000;
+
+    private static final String CLASS_NAME = "complexNumbers/GeneratedKernel";
+    private static final String KERNEL_NAME = "complexNumbers/CompiledFunction$Kernel";
+    private static final String COMPLEX_NAME = "complexNumbers/Complex";
+
+    //class file constants
+    private static final int MAGIC = 0xcafebabe;
+    private static final int JAVA_8_VERSION = 52;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    //the instructions that are used
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int DALOAD = 0x31;
+    private static final int DSTORE = 0x39;
+    private static final int DASTORE = 0x52;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    //locals 0 to 3 hold this and the three arrays; each stack entry then takes four
+    private static final int FIRST_VALUE = 4;
+    //the first kernel's result waits on the stack under the second kernel's four arguments
+    private static final int MAX_STACK = 10;
+
+    /**
+     * Should not be instantiated
+     */
+    private BytecodeCompiler()
+    {
+    }
+
+    /**
+     * Generates a Kernel for the given program
+     *
+     * @param opcodes the opcodes of the program
+     * @param operands the operands of the program
+     * @param constantReal real parts of the constant pool
+     * @param constantImag imaginary parts of the constant pool
+     * @return the generated Kernel, or null if the program is too long or malformed
+     * @throws IllegalStateException if the generated class cannot be loaded
+     */
+    static CompiledFunction.Kernel generate(int[] opcodes, int[] operands,
+        double[] constantReal, double[] constantImag)
+    {
+        byte[] bytes = writeClass(opcodes, operands, constantReal, constantImag);
+        if (bytes == null)
+        {
+            return null;
+        }
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledFunction.Kernel) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("generated kernel could not be loaded", e);
+        }
+    }
+
+    /**
+     * Writes the class file of a Kernel for the given program
+     *
+     * @return the class file, or null if the program is too long or malformed
+     */
+    static byte[] writeClass(int[] opcodes, int[] operands,
+        double[] constantReal, double[] constantImag)
+    {
+        ConstantPool pool = new ConstantPool();
+        Bytes code = new Bytes();
+        int depth = 0;
+        int maxDepth = 0;
+        for (int pc = 0; pc < opcodes.length; pc++)
+        {
+            int opcode = opcodes[pc];
+            //the entries the operation reads: a is the left (or only) operand
+            int operandCount = opcode == CompiledFunction.PUSH_CONSTANT ||
+                opcode == CompiledFunction.PUSH_VARIABLE ? 0 :
+                opcode >= CompiledFunction.ADD ? 2 : 1;
+            if (depth < operandCount)
+            {
+                return null;
+            }
+            int a = depth - operandCount;
+            int b = a + 1;
+            switch (opcode)
+            {
+                case CompiledFunction.PUSH_CONSTANT:
+                    code.u1(LDC2_W).u2(pool.doubleConstant(constantReal[operands[pc]]));
+                    local(code, DSTORE, real(a));
+                    code.u1(LDC2_W).u2(pool.doubleConstant(constantImag[operands[pc]]));
+                    local(code, DSTORE, imag(a));
+                    break;
+                case CompiledFunction.PUSH_VARIABLE:
+                    code.u1(ALOAD_1);
+                    pushInt(code, operands[pc]);
+                    code.u1(DALOAD);
+                    local(code, DSTORE, real(a));
+                    code.u1(ALOAD_2);
+                    pushInt(code, operands[pc]);
+                    code.u1(DALOAD);
+                    local(code, DSTORE, imag(a));
+                    break;
+                case CompiledFunction.SQUARE:
+                    callKernels(code, pool, "mulRe", "mulIm", a, a);
+                    break;
+                case CompiledFunction.SQRT:
+                    callKernels(code, pool, "sqrtRe", "sqrtIm", a, -1);
+                    break;
+                case CompiledFunction.EXP:
+                    callKernels(code, pool, "expRe", "expIm", a, -1);
+                    break;
+                case CompiledFunction.LN:
+                    callKernels(code, pool, "lnRe", "lnIm", a, -1);
+                    break;
+                case CompiledFunction.ADD:
+                case CompiledFunction.SUBTRACT:
+                {
+                    int instruction = opcode == CompiledFunction.ADD ? DADD : DSUB;
+                    local(code, DLOAD, real(a));
+                    local(code, DLOAD, real(b));
+                    code.u1(instruction);
+                    local(code, DLOAD, imag(a));
+                    local(code, DLOAD, imag(b));
+                    code.u1(instruction);
+                    local(code, DSTORE, imag(a));
+                    local(code, DSTORE, real(a));
+                    break;
+                }
+                case CompiledFunction.MULTIPLY:
+                    callKernels(code, pool, "mulRe", "mulIm", a, b);
+                    break;
+                case CompiledFunction.DIVIDE:
+                    callKernels(code, pool, "divRe", "divIm", a, b);
+                    break;
+                default:
+                    return null;
+            }
+            depth = a + 1;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth != 1)
+        {
+            return null;
+        }
+        code.u1(ALOAD_3).u1(ICONST_0);
+        local(code, DLOAD, real(0));
+        code.u1(DASTORE);
+        code.u1(ALOAD_3).u1(ICONST_0 + 1);
+        local(code, DLOAD, imag(0));
+        code.u1(DASTORE);
+        code.u1(RETURN);
+        if (code.length() > MAX_CODE_LENGTH)
+        {
+            return null;
+        }
+
+        Bytes constructor = new Bytes();
+        constructor.u1(ALOAD_0);
+        constructor.u1(INVOKESPECIAL).u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        constructor.u1(RETURN);
+
+        Bytes methods = new Bytes();
+        method(methods, pool, "<init>", "()V", 1, 1, constructor);
+        method(methods, pool, "eval", "([D[D[D)V", MAX_STACK, real(maxDepth), code);
+
+        Bytes file = new Bytes();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int kernelInterface = pool.classRef(KERNEL_NAME);
+        file.u4(MAGIC).u2(0).u2(JAVA_8_VERSION);
+        file.u2(pool.count).bytes(pool.entries);
+        file.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass);
+        file.u2(1).u2(kernelInterface);
+        //no fields, two methods, no attributes
+        file.u2(0).u2(2).bytes(methods).u2(0);
+        return file.toByteArray();
+    }
+
+    /**
+     * The local holding the real part of the value at a stack depth
+     */
+    private static int real(int depth)
+    {
+        return FIRST_VALUE + 4 * depth;
+    }
+
+    /**
+     * The local holding the imaginary part of the value at a stack depth
+     */
+    private static int imag(int depth)
+    {
+        return FIRST_VALUE + 4 * depth + 2;
+    }
+
+    /**
+     * Replaces the value at depth a with the results of a pair of Complex
+     * kernels, called with the value at a and, if b is not -1, the value at b
+     */
+    private static void callKernels(Bytes code, ConstantPool pool, String realKernel,
+        String imagKernel, int a, int b)
+    {
+        String descriptor = b == -1 ? "(DD)D" : "(DDDD)D";
+        for (String kernel : new String[] {realKernel, imagKernel})
+        {
+            local(code, DLOAD, real(a));
+            local(code, DLOAD, imag(a));
+            if (b != -1)
+            {
+                local(code, DLOAD, real(b));
+                local(code, DLOAD, imag(b));
+            }
+            code.u1(INVOKESTATIC).u2(pool.methodRef(COMPLEX_NAME, kernel, descriptor));
+        }
+        //both parts are on the stack, so a can be overwritten now
+        local(code, DSTORE, imag(a));
+        local(code, DSTORE, real(a));
+    }
+
+    /**
+     * Writes a dload or dstore, widened when the local is past 255
+     */
+    private static void local(Bytes code, int instruction, int index)
+    {
+        if (index <= 0xff)
+        {
+            code.u1(instruction).u1(index);
+        }
+        else
+        {
+            code.u1(WIDE).u1(instruction).u2(index);
+        }
+    }
+
+    /**
+     * Writes the shortest instruction that pushes a small int
+     */
+    private static void pushInt(Bytes code, int value)
+    {
+        if (value <= 5)
+        {
+            code.u1(ICONST_0 + value);
+        }
+        else if (value <= Byte.MAX_VALUE)
+        {
+            code.u1(BIPUSH).u1(value);
+        }
+        else
+        {
+            code.u1(SIPUSH).u2(value);
+        }
+    }
+
+    /**
+     * Writes a public method with a Code attribute and no exception handlers
+     */
+    private static void method(Bytes out, ConstantPool pool, String name, String descriptor,
+        int maxStack, int maxLocals, Bytes code)
+    {
+        out.u2(ACC_PUBLIC).u2(pool.utf8(name)).u2(pool.utf8(descriptor));
+        out.u2(1).u2(pool.utf8("Code")).u4(12 + code.length());
+        out.u2(maxStack).u2(maxLocals).u4(code.length()).bytes(code);
+        //no exception table, no attributes
+        out.u2(0).u2(0);
+    }
+
+    /**
+     * A growable big-endian byte buffer
+     */
+    private static final class Bytes {
+
+        private byte[] data = new byte[256];
+        private int length = 0;
+
+        Bytes u1(int value)
+        {
+            if (length == data.length)
+            {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value)
+        {
+            return this.u1(value >>> 8).u1(value);
+        }
+
+        Bytes u4(int value)
+        {
+            return this.u2(value >>> 16).u2(value);
+        }
+
+        Bytes bytes(Bytes other)
+        {
+            for (int i = 0; i < other.length; i++)
+            {
+                this.u1(other.data[i]);
+            }
+            return this;
+        }
+
+        int length()
+        {
+            return length;
+        }
+
+        byte[] toByteArray()
+        {
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    /**
+     * The constant pool of the class being written, with each entry added once
+     */
+    private static final class ConstantPool {
+
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        final Bytes entries = new Bytes();
+        //the index the next entry will get (entries start at 1)
+        int count = 1;
+        private final HashMap<String, Integer> indices = new HashMap<String, Integer>();
+
+        int utf8(String text)
+        {
+            Integer index = indices.get("U" + text);
+            if (index != null)
+            {
+                return index;
+            }
+            //every string written here is ASCII, which modified UTF-8 leaves alone
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            entries.u1(UTF8).u2(bytes.length);
+            for (byte b : bytes)
+            {
+                entries.u1(b);
+            }
+            return this.added("U" + text, 1);
+        }
+
+        int classRef(String name)
+        {
+            Integer index = indices.get("C" + name);
+            if (index != null)
+            {
+                return index;
+            }
+            int nameIndex = this.utf8(name);
+            entries.u1(CLASS).u2(nameIndex);
+            return this.added("C" + name, 1);
+        }
+
+        int methodRef(String owner, String name, String descriptor)
+        {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null)
+            {
+                return index;
+            }
+            int ownerIndex = this.classRef(owner);
+            int nameAndType = this.nameAndType(name, descriptor);
+            entries.u1(METHOD_REF).u2(ownerIndex).u2(nameAndType);
+            return this.added(key, 1);
+        }
+
+        int nameAndType(String name, String descriptor)
+        {
+            String key = "N" + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null)
+            {
+                return index;
+            }
+            int nameIndex = this.utf8(name);
+            int descriptorIndex = this.utf8(descriptor);
+            entries.u1(NAME_AND_TYPE).u2(nameIndex).u2(descriptorIndex);
+            return this.added(key, 1);
+        }
+
+        int doubleConstant(double value)
+        {
+            //keyed by the exact bits, so 0.0 and -0.0 stay apart
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = indices.get("D" + bits);
+            if (index != null)
+            {
+                return index;
+            }
+            entries.u1(DOUBLE).u4((int) (bits >>> 32)).u4((int) bits);
+            //a double takes two entries
+            return this.added("D" + bits, 2);
+        }
+
+        private int added(String key, int size)
+        {
+            int index = count;
+            indices.put(key, index);
+            count += size;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,952 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A Function that has been lowered into a flat postfix program. The tree
+ * is walked exactly once, when the program is built; after that, each
+ * evaluation runs through the program using primitive real/imaginary
+ * registers, so no Quantity is copied and no Complex is allocated.
+ *
+ * Every distinct Variable in the function is given a slot, numbered in the
+ * order the variables are first encountered (left to right). Values are
+ * passed in by slot, and the result is read back with resultReal() and
+ * resultImag().
+ *
+ * The program is never changed once it is built. The registers used while
+ * it runs are kept in an EvaluationContext, so the methods that take a
+ * context can be called on one CompiledFunction from any number of threads
+ * at once, each with its own context, without locking or allocating. The
+ * methods without a context use one that belongs to the CompiledFunction,
+ * so they must not be called from several threads at once; use copy() to
+ * get another instance with its own context that shares the same program.
+ *
+ * A program can optionally be backed by a Kernel, a class generated at
+ * runtime (see BytecodeCompiler) that evaluates the whole program as
+ * straight-line code. When a Kernel is present it is used instead of the
+ * interpreter loop; the results are the same either way.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public class CompiledFunction {
+
+    //opcodes of the postfix program
+    static final int PUSH_CONSTANT = 0;
+    static final int PUSH_VARIABLE = 1;
+    static final int SQUARE = 2;
+    static final int SQRT = 3;
+    static final int EXP = 4;
+    static final int LN = 5;
+    static final int ADD = 6;
+    static final int SUBTRACT = 7;
+    static final int MULTIPLY = 8;
+    static final int DIVIDE = 9;
+    //the operator each operation opcode performs (null for the push opcodes)
+    private static final Operator[] OPERATORS = new Operator[DIVIDE + 1];
+
+    static
+    {
+        for (Operator operator : Operator.values())
+        {
+            OPERATORS[opcode(operator)] = operator;
+        }
+    }
+
+    private final int[] opcodes;
+    //index into the constant pool or the variable slots (unused for operations)
+    private final int[] operands;
+    private final double[] constantReal;
+    private final double[] constantImag;
+    private final String[] variableNames;
+    private final int maxStackDepth;
+    //generated straight-line version of the program, or null to interpret it
+    private final Kernel kernel;
+
+    //registers for the methods that are not given an EvaluationContext
+    private final EvaluationContext context;
+
+    /**
+     * Number of points evaluated together by evalBatch. Small enough that
+     * the registers of a deep program stay in cache, large enough that each
+     * operator runs as a long, vectorizable loop.
+     */
+    static final int BLOCK_SIZE = 256;
+
+    /**
+     * The generated form of a program. Implementations hold no state, so a
+     * single Kernel can be shared by every copy of a CompiledFunction.
+     */
+    interface Kernel {
+
+        /**
+         * Evaluates the program
+         *
+         * @param variableReal the real parts of the variables, indexed by slot
+         * @param variableImag the imaginary parts of the variables, indexed by slot
+         * @param result receives the real part at index 0 and the imaginary part at index 1
+         */
+        void eval(double[] variableReal, double[] variableImag, double[] result);
+    }
+
+    /**
+     * Creates a CompiledFunction around an already built program
+     */
+    private CompiledFunction(int[] opcodes, int[] operands, double[] constantReal,
+        double[] constantImag, String[] variableNames, int maxStackDepth, Kernel kernel)
+    {
+        this.kernel = kernel;
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.constantReal = constantReal;
+        this.constantImag = constantImag;
+        this.variableNames = variableNames;
+        this.maxStackDepth = maxStackDepth;
+        this.context = this.newContext();
+    }
+
+    /**
+     * Lowers an expression into a postfix program
+     *
+     * @param expression the expression being compiled
+     * @return the compiled program
+     */
+    static CompiledFunction compile(Expression expression)
+    {
+        Compiler compiler = new Compiler();
+        compiler.emit(expression, 0);
+        return compiler.build();
+    }
+
+    /**
+     * Lowers an expression into a postfix program and, if possible,
+     * generates a Kernel for it. If the Kernel cannot be generated the
+     * program is interpreted instead.
+     *
+     * @param expression the expression being compiled
+     * @return the compiled program
+     */
+    static CompiledFunction compileToBytecode(Expression expression)
+    {
+        CompiledFunction interpreted = compile(expression);
+        Kernel kernel = BytecodeCompiler.generate(interpreted.opcodes, interpreted.operands,
+            interpreted.constantReal, interpreted.constantImag);
+        if (kernel == null)
+        {
+            return interpreted;
+        }
+        return new CompiledFunction(interpreted.opcodes, interpreted.operands,
+            interpreted.constantReal, interpreted.constantImag, interpreted.variableNames,
+            interpreted.maxStackDepth, kernel);
+    }
+
+    /**
+     * Tells whether this program is evaluated by a generated Kernel
+     *
+     * @return true if a Kernel is used, false if the program is interpreted
+     */
+    public boolean isGenerated()
+    {
+        return kernel != null;
+    }
+
+    /**
+     * Creates another CompiledFunction that shares this one's program but
+     * has its own registers, so it can be used on another thread
+     *
+     * @return a copy of this compiled function
+     */
+    public CompiledFunction copy()
+    {
+        return new CompiledFunction(opcodes, operands, constantReal, constantImag,
+            variableNames, maxStackDepth, kernel);
+    }
+
+    /**
+     * Creates an EvaluationContext with registers big enough for this
+     * program, so that evaluating with it never allocates
+     *
+     * @return the new context
+     */
+    public EvaluationContext newContext()
+    {
+        return new EvaluationContext(maxStackDepth, variableNames.length);
+    }
+
+    /**
+     * Gets the greatest number of values the program has on its stack at once
+     *
+     * @return the stack depth of the program
+     */
+    public int getStackDepth()
+    {
+        return maxStackDepth;
+    }
+
+    /**
+     * Gets the number of distinct variables in the function
+     *
+     * @return the number of variable slots
+     */
+    public int getVariableCount()
+    {
+        return variableNames.length;
+    }
+
+    /**
+     * Gets the name of the variable stored in the given slot
+     *
+     * @param slot the slot of the variable
+     * @return the name of that variable
+     */
+    public String getVariableName(int slot)
+    {
+        return variableNames[slot];
+    }
+
+    /**
+     * Finds the slot of the variable with the given name
+     *
+     * @param variableName the name of the variable
+     * @return the slot of that variable, or -1 if the function does not contain it
+     */
+    public int slotOf(String variableName)
+    {
+        for (int i = 0; i < variableNames.length; i++)
+        {
+            if (variableNames[i].equals(variableName))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable at the given point.
+     * The result is read back with resultReal() and resultImag()
+     *
+     * @param real the real part of the value of the variable
+     * @param imag the imaginary part of the value of the variable
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void eval(double real, double imag)
+    {
+        this.eval(context, real, imag);
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable at the given point,
+     * using the registers of a context. The result is read back with the
+     * context's resultReal() and resultImag()
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param real the real part of the value of the variable
+     * @param imag the imaginary part of the value of the variable
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void eval(EvaluationContext context, double real, double imag)
+    {
+        if (variableNames.length > 1)
+        {
+            throw new IllegalStateException();
+        }
+        context.reserve(maxStackDepth, variableNames.length);
+        if (variableNames.length == 1)
+        {
+            context.variableReal[0] = real;
+            context.variableImag[0] = imag;
+        }
+        this.run(context);
+    }
+
+    /**
+     * Evaluates the function with the given values in its variable slots.
+     * The result is read back with resultReal() and resultImag()
+     *
+     * @param real the real parts of the variables, indexed by slot
+     * @param imag the imaginary parts of the variables, indexed by slot
+     */
+    public void eval(double[] real, double[] imag)
+    {
+        this.eval(context, real, imag);
+    }
+
+    /**
+     * Evaluates the function with the given values in its variable slots,
+     * using the registers of a context. The result is read back with the
+     * context's resultReal() and resultImag()
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param real the real parts of the variables, indexed by slot
+     * @param imag the imaginary parts of the variables, indexed by slot
+     */
+    public void eval(EvaluationContext context, double[] real, double[] imag)
+    {
+        context.reserve(maxStackDepth, variableNames.length);
+        System.arraycopy(real, 0, context.variableReal, 0, variableNames.length);
+        System.arraycopy(imag, 0, context.variableImag, 0, variableNames.length);
+        this.run(context);
+    }
+
+    /**
+     * Evaluates the function with values given by variable name, using the
+     * registers of a context. Names that the function does not use are
+     * ignored. The result is read back with the context's resultReal() and
+     * resultImag()
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param names the names of the variables
+     * @param real the real parts of the variables, in the same order as names
+     * @param imag the imaginary parts of the variables, in the same order as names
+     * @throws IllegalArgumentException if a variable of the function is not named
+     */
+    public void eval(EvaluationContext context, String[] names, double[] real, double[] imag)
+    {
+        context.reserve(maxStackDepth, variableNames.length);
+        for (int slot = 0; slot < variableNames.length; slot++)
+        {
+            int i = 0;
+            while (i < names.length && !variableNames[slot].equals(names[i]))
+            {
+                i++;
+            }
+            if (i == names.length)
+            {
+                throw new IllegalArgumentException("no value for " + variableNames[slot]);
+            }
+            context.variableReal[slot] = real[i];
+            context.variableImag[slot] = imag[i];
+        }
+        this.run(context);
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable at many points. The
+     * program is stepped through once per block of points, with each
+     * instruction running as a loop over primitive arrays.
+     *
+     * @param real the real parts of the points
+     * @param imag the imaginary parts of the points
+     * @param outReal receives the real parts of the results
+     * @param outImag receives the imaginary parts of the results
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void evalBatch(double[] real, double[] imag, double[] outReal, double[] outImag)
+    {
+        if (variableNames.length > 1)
+        {
+            throw new IllegalStateException();
+        }
+        this.evalBatch(new double[][] {real}, new double[][] {imag}, outReal, outImag);
+    }
+
+    /**
+     * Evaluates the function at many points. The program is stepped through
+     * once per block of points, with each instruction running as a loop over
+     * primitive arrays.
+     *
+     * @param real the real parts of the variables, indexed by slot and then by point
+     * @param imag the imaginary parts of the variables, indexed by slot and then by point
+     * @param outReal receives the real parts of the results (its length is the number of points)
+     * @param outImag receives the imaginary parts of the results
+     */
+    public void evalBatch(double[][] real, double[][] imag, double[] outReal, double[] outImag)
+    {
+        this.evalBatch(context, real, imag, outReal, outImag);
+    }
+
+    /**
+     * Evaluates the function at many points, using the registers of a
+     * context. The program is stepped through once per block of points,
+     * with each instruction running as a loop over primitive arrays.
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param real the real parts of the variables, indexed by slot and then by point
+     * @param imag the imaginary parts of the variables, indexed by slot and then by point
+     * @param outReal receives the real parts of the results (its length is the number of points)
+     * @param outImag receives the imaginary parts of the results
+     */
+    public void evalBatch(EvaluationContext context, double[][] real, double[][] imag,
+        double[] outReal, double[] outImag)
+    {
+        this.evalBatch(context, real, imag, outReal, outImag, outReal.length);
+    }
+
+    /**
+     * Evaluates the function at the first count points, so that arrays
+     * bigger than the batch can be reused from one batch to the next
+     */
+    void evalBatch(EvaluationContext context, double[][] real, double[][] imag,
+        double[] outReal, double[] outImag, int count)
+    {
+        context.reserveBlocks(maxStackDepth, BLOCK_SIZE);
+        for (int offset = 0; offset < count; offset += BLOCK_SIZE)
+        {
+            int n = Math.min(BLOCK_SIZE, count - offset);
+            this.runBlock(context, real, imag, offset, n);
+            System.arraycopy(context.blockReal[0], 0, outReal, offset, n);
+            System.arraycopy(context.blockImag[0], 0, outImag, offset, n);
+        }
+    }
+
+    /**
+     * Runs the program on one block of points, leaving the results in the
+     * bottom block of the context's register stack
+     */
+    private void runBlock(EvaluationContext context, double[][] real, double[][] imag, int offset, int n)
+    {
+        double[][] blockReal = context.blockReal;
+        double[][] blockImag = context.blockImag;
+        int sp = -1;
+        for (int pc = 0; pc < opcodes.length; pc++)
+        {
+            switch (opcodes[pc])
+            {
+                case PUSH_CONSTANT:
+                {
+                    sp++;
+                    Arrays.fill(blockReal[sp], 0, n, constantReal[operands[pc]]);
+                    Arrays.fill(blockImag[sp], 0, n, constantImag[operands[pc]]);
+                    break;
+                }
+                case PUSH_VARIABLE:
+                {
+                    sp++;
+                    System.arraycopy(real[operands[pc]], offset, blockReal[sp], 0, n);
+                    System.arraycopy(imag[operands[pc]], offset, blockImag[sp], 0, n);
+                    break;
+                }
+                case SQUARE:
+                {
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        re[k] = Complex.mulRe(a, b, a, b);
+                        im[k] = Complex.mulIm(a, b, a, b);
+                    }
+                    break;
+                }
+                case SQRT:
+                {
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        re[k] = Complex.sqrtRe(a, b);
+                        im[k] = Complex.sqrtIm(a, b);
+                    }
+                    break;
+                }
+                case EXP:
+                {
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        re[k] = Complex.expRe(a, b);
+                        im[k] = Complex.expIm(a, b);
+                    }
+                    break;
+                }
+                case LN:
+                {
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        re[k] = Complex.lnRe(a, b);
+                        im[k] = Complex.lnIm(a, b);
+                    }
+                    break;
+                }
+                case ADD:
+                {
+                    sp--;
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    double[] re2 = blockReal[sp + 1];
+                    double[] im2 = blockImag[sp + 1];
+                    for (int k = 0; k < n; k++)
+                    {
+                        re[k] = re[k] + re2[k];
+                        im[k] = im[k] + im2[k];
+                    }
+                    break;
+                }
+                case SUBTRACT:
+                {
+                    sp--;
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    double[] re2 = blockReal[sp + 1];
+                    double[] im2 = blockImag[sp + 1];
+                    for (int k = 0; k < n; k++)
+                    {
+                        re[k] = re[k] - re2[k];
+                        im[k] = im[k] - im2[k];
+                    }
+                    break;
+                }
+                case MULTIPLY:
+                {
+                    sp--;
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    double[] re2 = blockReal[sp + 1];
+                    double[] im2 = blockImag[sp + 1];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        double c = re2[k];
+                        double d = im2[k];
+                        re[k] = Complex.mulRe(a, b, c, d);
+                        im[k] = Complex.mulIm(a, b, c, d);
+                    }
+                    break;
+                }
+                case DIVIDE:
+                {
+                    sp--;
+                    double[] re = blockReal[sp];
+                    double[] im = blockImag[sp];
+                    double[] re2 = blockReal[sp + 1];
+                    double[] im2 = blockImag[sp + 1];
+                    for (int k = 0; k < n; k++)
+                    {
+                        double a = re[k];
+                        double b = im[k];
+                        double c = re2[k];
+                        double d = im2[k];
+                        re[k] = Complex.divRe(a, b, c, d);
+                        im[k] = Complex.divIm(a, b, c, d);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable at the given point
+     *
+     * @param value the value of the variable
+     * @return the value of the function
+     */
+    public Complex eval(Complex value)
+    {
+        this.eval(context, value.real(), value.imag());
+        return new Complex(context.resultReal, context.resultImag);
+    }
+
+    /**
+     * Gets the real part of the result of the last evaluation
+     *
+     * @return the real part of the result
+     */
+    public double resultReal()
+    {
+        return context.resultReal;
+    }
+
+    /**
+     * Gets the imaginary part of the result of the last evaluation
+     *
+     * @return the imaginary part of the result
+     */
+    public double resultImag()
+    {
+        return context.resultImag;
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable and its derivative with
+     * respect to that variable at the given point, in a single pass. Every
+     * value carries its derivative along with it (forward-mode automatic
+     * differentiation), using the same rules as Quantity.diff, so the
+     * derivative is exact rather than a finite-difference approximation.
+     * The results are read back with resultReal(), resultImag(),
+     * derivativeReal() and derivativeImag()
+     *
+     * @param real the real part of the value of the variable
+     * @param imag the imaginary part of the value of the variable
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void evalWithDerivative(double real, double imag)
+    {
+        this.evalWithDerivative(context, real, imag);
+    }
+
+    /**
+     * Evaluates a function of (at most) one variable and its derivative at
+     * the given point, using the registers of a context (see
+     * evalWithDerivative(double, double)). The results are read back with
+     * the context's resultReal(), resultImag(), derivativeReal() and
+     * derivativeImag()
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param real the real part of the value of the variable
+     * @param imag the imaginary part of the value of the variable
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void evalWithDerivative(EvaluationContext context, double real, double imag)
+    {
+        if (variableNames.length > 1)
+        {
+            throw new IllegalStateException();
+        }
+        context.reserve(maxStackDepth, variableNames.length);
+        if (variableNames.length == 1)
+        {
+            context.variableReal[0] = real;
+            context.variableImag[0] = imag;
+        }
+        this.runWithDerivative(context, 0);
+    }
+
+    /**
+     * Evaluates the function and its derivative with respect to the variable
+     * in one slot, in a single pass. The results are read back with
+     * resultReal(), resultImag(), derivativeReal() and derivativeImag()
+     *
+     * @param slot the slot of the variable the derivative is taken with respect to
+     * @param real the real parts of the variables, indexed by slot
+     * @param imag the imaginary parts of the variables, indexed by slot
+     */
+    public void evalWithDerivative(int slot, double[] real, double[] imag)
+    {
+        this.evalWithDerivative(context, slot, real, imag);
+    }
+
+    /**
+     * Evaluates the function and its derivative with respect to the variable
+     * in one slot, using the registers of a context. The results are read
+     * back with the context's resultReal(), resultImag(), derivativeReal()
+     * and derivativeImag()
+     *
+     * @param context the registers to use (not shared with another thread)
+     * @param slot the slot of the variable the derivative is taken with respect to
+     * @param real the real parts of the variables, indexed by slot
+     * @param imag the imaginary parts of the variables, indexed by slot
+     */
+    public void evalWithDerivative(EvaluationContext context, int slot, double[] real, double[] imag)
+    {
+        context.reserve(maxStackDepth, variableNames.length);
+        System.arraycopy(real, 0, context.variableReal, 0, variableNames.length);
+        System.arraycopy(imag, 0, context.variableImag, 0, variableNames.length);
+        this.runWithDerivative(context, slot);
+    }
+
+    /**
+     * Gets the real part of the derivative found by the last call to evalWithDerivative
+     *
+     * @return the real part of the derivative
+     */
+    public double derivativeReal()
+    {
+        return context.derivativeReal;
+    }
+
+    /**
+     * Gets the imaginary part of the derivative found by the last call to evalWithDerivative
+     *
+     * @return the imaginary part of the derivative
+     */
+    public double derivativeImag()
+    {
+        return context.derivativeImag;
+    }
+
+    /**
+     * Runs the program on the values currently held in a context's variable registers
+     */
+    private void run(EvaluationContext context)
+    {
+        if (kernel != null)
+        {
+            double[] kernelResult = context.kernelResult;
+            kernel.eval(context.variableReal, context.variableImag, kernelResult);
+            context.resultReal = kernelResult[0];
+            context.resultImag = kernelResult[1];
+            return;
+        }
+        double[] variableReal = context.variableReal;
+        double[] variableImag = context.variableImag;
+        double[] re = context.stackReal;
+        double[] im = context.stackImag;
+        int sp = -1;
+        for (int pc = 0; pc < opcodes.length; pc++)
+        {
+            switch (opcodes[pc])
+            {
+                case PUSH_CONSTANT:
+                    sp++;
+                    re[sp] = constantReal[operands[pc]];
+                    im[sp] = constantImag[operands[pc]];
+                    break;
+                case PUSH_VARIABLE:
+                    sp++;
+                    re[sp] = variableReal[operands[pc]];
+                    im[sp] = variableImag[operands[pc]];
+                    break;
+                case SQUARE:
+                {
+                    double a = re[sp];
+                    double b = im[sp];
+                    re[sp] = Complex.mulRe(a, b, a, b);
+                    im[sp] = Complex.mulIm(a, b, a, b);
+                    break;
+                }
+                case SQRT:
+                {
+                    double a = re[sp];
+                    double b = im[sp];
+                    re[sp] = Complex.sqrtRe(a, b);
+                    im[sp] = Complex.sqrtIm(a, b);
+                    break;
+                }
+                case EXP:
+                {
+                    double a = re[sp];
+                    double b = im[sp];
+                    re[sp] = Complex.expRe(a, b);
+                    im[sp] = Complex.expIm(a, b);
+                    break;
+                }
+                case LN:
+                {
+                    double a = re[sp];
+                    double b = im[sp];
+                    re[sp] = Complex.lnRe(a, b);
+                    im[sp] = Complex.lnIm(a, b);
+                    break;
+                }
+                case ADD:
+                    sp--;
+                    re[sp] = re[sp] + re[sp + 1];
+                    im[sp] = im[sp] + im[sp + 1];
+                    break;
+                case SUBTRACT:
+                    sp--;
+                    re[sp] = re[sp] - re[sp + 1];
+                    im[sp] = im[sp] - im[sp + 1];
+                    break;
+                case MULTIPLY:
+                {
+                    sp--;
+                    double a = re[sp];
+                    double b = im[sp];
+                    double c = re[sp + 1];
+                    double d = im[sp + 1];
+                    re[sp] = Complex.mulRe(a, b, c, d);
+                    im[sp] = Complex.mulIm(a, b, c, d);
+                    break;
+                }
+                case DIVIDE:
+                {
+                    sp--;
+                    double a = re[sp];
+                    double b = im[sp];
+                    double c = re[sp + 1];
+                    double d = im[sp + 1];
+                    re[sp] = Complex.divRe(a, b, c, d);
+                    im[sp] = Complex.divIm(a, b, c, d);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        context.resultReal = re[0];
+        context.resultImag = im[0];
+    }
+
+    /**
+     * Runs the program on the values currently held in a context's variable
+     * registers, carrying the derivative of every value with respect to one variable
+     *
+     * @param context the registers to use
+     * @param slot the slot of the variable the derivative is taken with respect to
+     */
+    private void runWithDerivative(EvaluationContext context, int slot)
+    {
+        context.reserveTangents(maxStackDepth);
+        double[] variableReal = context.variableReal;
+        double[] variableImag = context.variableImag;
+        double[] re = context.stackReal;
+        double[] im = context.stackImag;
+        double[] dre = context.tangentReal;
+        double[] dim = context.tangentImag;
+        int sp = -1;
+        for (int pc = 0; pc < opcodes.length; pc++)
+        {
+            switch (opcodes[pc])
+            {
+                case PUSH_CONSTANT:
+                    sp++;
+                    re[sp] = constantReal[operands[pc]];
+                    im[sp] = constantImag[operands[pc]];
+                    dre[sp] = 0;
+                    dim[sp] = 0;
+                    break;
+                case PUSH_VARIABLE:
+                    sp++;
+                    re[sp] = variableReal[operands[pc]];
+                    im[sp] = variableImag[operands[pc]];
+                    dre[sp] = (operands[pc] == slot) ? 1 : 0;
+                    dim[sp] = 0;
+                    break;
+                case SQUARE:
+                case SQRT:
+                case EXP:
+                case LN:
+                    OPERATORS[opcodes[pc]].applyWithDerivative(re, im, dre, dim, sp);
+                    break;
+                case ADD:
+                case SUBTRACT:
+                case MULTIPLY:
+                case DIVIDE:
+                    sp--;
+                    OPERATORS[opcodes[pc]].applyWithDerivative(re, im, dre, dim, sp);
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        context.resultReal = re[0];
+        context.resultImag = im[0];
+        context.derivativeReal = dre[0];
+        context.derivativeImag = dim[0];
+    }
+
+    /**
+     * Finds the opcode that performs an operator
+     *
+     * @param operator the operator
+     * @return the matching opcode
+     */
+    static int opcode(Operator operator)
+    {
+        switch (operator)
+        {
+            case SQUARE:
+                return SQUARE;
+            case SQRT:
+                return SQRT;
+            case EXP:
+                return EXP;
+            case LN:
+                return LN;
+            case ADD:
+                return ADD;
+            case SUBTRACT:
+                return SUBTRACT;
+            case MULTIPLY:
+                return MULTIPLY;
+            case DIVIDE:
+                return DIVIDE;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Walks an Expression once and records it as a postfix program
+     */
+    private static class Compiler {
+
+        private int[] opcodes = new int[16];
+        private int[] operands = new int[16];
+        private int length = 0;
+        private ArrayList<Complex> constants = new ArrayList<Complex>();
+        private ArrayList<String> variableNames = new ArrayList<String>();
+        private int maxStackDepth = 0;
+
+        /**
+         * Emits the instructions for the given expression and everything below it
+         *
+         * @param expression the expression being compiled
+         * @param depth the number of values already on the stack
+         */
+        void emit(Expression expression, int depth)
+        {
+            switch (expression.getKind())
+            {
+                case CONSTANT:
+                    constants.add(expression.getValue());
+                    this.append(PUSH_CONSTANT, constants.size() - 1);
+                    maxStackDepth = Math.max(maxStackDepth, depth + 1);
+                    break;
+                case VARIABLE:
+                {
+                    String name = expression.getName();
+                    int slot = variableNames.indexOf(name);
+                    if (slot == -1)
+                    {
+                        variableNames.add(name);
+                        slot = variableNames.size() - 1;
+                    }
+                    this.append(PUSH_VARIABLE, slot);
+                    maxStackDepth = Math.max(maxStackDepth, depth + 1);
+                    break;
+                }
+                case UNARY_OPERATION:
+                    this.emit(expression.getLeft(), depth);
+                    this.append(opcode(expression.getOperator()), -1);
+                    break;
+                case BINARY_OPERATION:
+                    this.emit(expression.getLeft(), depth);
+                    this.emit(expression.getRight(), depth + 1);
+                    this.append(opcode(expression.getOperator()), -1);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+
+        /**
+         * Appends one instruction to the program
+         */
+        private void append(int opcode, int operand)
+        {
+            if (length == opcodes.length)
+            {
+                opcodes = Arrays.copyOf(opcodes, length * 2);
+                operands = Arrays.copyOf(operands, length * 2);
+            }
+            opcodes[length] = opcode;
+            operands[length] = operand;
+            length++;
+        }
+
+        /**
+         * Packs the recorded instructions into a CompiledFunction
+         */
+        CompiledFunction build()
+        {
+            double[] constantReal = new double[constants.size()];
+            double[] constantImag = new double[constants.size()];
+            for (int i = 0; i < constants.size(); i++)
+            {
+                constantReal[i] = constants.get(i).real();
+                constantImag[i] = constants.get(i).imag();
+            }
+            return new CompiledFunction(Arrays.copyOf(opcodes, length),
+                Arrays.copyOf(operands, length), constantReal, constantImag,
+                variableNames.toArray(new String[0]), maxStackDepth, null);
+        }
+    }
+}
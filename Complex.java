@@ -39,6 +39,16 @@ public class Complex extends Quantity
          this.b = b;
      }
     
+    /**
+     * Tells which subtype of Quantity this is
+     * 
+     * @return Kind.CONSTANT
+     */
+    public Kind getKind()
+    {
+        return Kind.CONSTANT;
+    }
+    
     /**
      * returns the real part of the number
      * @return the real part of the number
@@ -187,47 +197,17 @@ public class Complex extends Quantity
     /**
      * Finds the argument of a complex number
      * Outputs value between zero and 2 * pi
-     * @throws ArithmeticException
+     * @throws ArithmeticException if this number is zero or NaN
      * @return argument (double)
      */
     public double arg()
     {
-        //positive imaginary axis
-        if (a == 0 && b > 0)
-        {
-            return Math.PI / 2;
-        }
-        //negative imaginary axis
-        else if (a == 0 && b < 0)
-        {
-            return 3 * Math.PI / 2;
-        }
-        //first quadrant
-        else if (a > 0 && b >= 0)
-        {
-            return Math.atan(b/a);
-        }
-        //second quadrant
-        else if (a < 0 && b >= 0)
-        {
-            return Math.PI + Math.atan(b/a);
-        }
-        //third quadrant
-        else if (a < 0 && b < 0)
-        {
-            return Math.PI + Math.atan(b/a);
-        }
-        //fourth quadrant
-        else if (a > 0 && b < 0)
-        {
-            return 2 * Math.PI + Math.atan(b/a);
-        }
-        //exactly zero
-        else
+        double arg = arg(a, b);
+        if ((a == 0 && b == 0) || Double.isNaN(arg))
         {
             throw new ArithmeticException();
         }
-            
+        return arg;
     }
     
     /**
@@ -284,9 +264,7 @@ public class Complex extends Quantity
      */
     public Complex multiply(Complex second)
     {
-        double productReal = this.real() * second.real() - this.imag() * second.imag();
-        double productImag = this.real() * second.imag() + this.imag() * second.real();
-        return new Complex(productReal, productImag);
+        return new Complex(mulRe(a, b, second.a, second.b), mulIm(a, b, second.a, second.b));
     }
         
     /**
@@ -297,9 +275,7 @@ public class Complex extends Quantity
      */
     public Complex divide(Complex second)
     {
-        Complex numerator = this.multiply(second.conj());
-        double denominator = second.mag() * second.mag();
-        return new Complex(numerator.real() / denominator, numerator.imag() / denominator);
+        return new Complex(divRe(a, b, second.a, second.b), divIm(a, b, second.a, second.b));
     }
     
     /**
@@ -309,7 +285,7 @@ public class Complex extends Quantity
      */
     public Complex square()
     {
-        return this.multiply(this);
+        return new Complex(mulRe(a, b, a, b), mulIm(a, b, a, b));
     }
     
     /**
@@ -320,21 +296,7 @@ public class Complex extends Quantity
      */
     public Complex sqrt()
     {
-        //take care of this == 0 case first
-        if (Math.abs(a) < 0.000001 && Math.abs(b) < 0.000001)
-        {
-            return new Complex();
-        }
-        double mag = this.mag();
-        double arg = this.arg();
-        if (Math.cos(arg/2) >= 0)
-        {
-            return new Complex(Math.sqrt(mag) * Math.cos(arg / 2), Math.sqrt(mag) * Math.sin(arg / 2));
-        }
-        else
-        {
-            return new Complex(-1 * Math.sqrt(mag) * Math.cos(arg / 2), -1 * Math.sqrt(mag) * Math.sin(arg / 2));
-        }
+        return new Complex(sqrtRe(a, b), sqrtIm(a, b));
     }
     
     /**
@@ -355,9 +317,7 @@ public class Complex extends Quantity
      */
     public Complex exp()
     {
-        double answerReal = Math.exp(this.real()) * Math.cos(this.imag());
-        double answerImag = Math.exp(this.real()) * Math.sin(this.imag());
-        return new Complex(answerReal, answerImag);
+        return new Complex(expRe(a, b), expIm(a, b));
     }
     
     /**
@@ -368,23 +328,20 @@ public class Complex extends Quantity
      */
     public Complex ln()
     {
-        double answerReal = Math.log(this.mag());
-        double answerImag = this.arg();
-        return new Complex(answerReal, answerImag);
+        return new Complex(lnRe(a, b), lnIm(a, b));
     }
     
     /**
-     * Finds the derivative of this quantity and replaces itself
-     * in the function with this derivative
+     * Builds the derivative of this quantity, leaving this quantity alone
      * 
      * @param variableName the name of the variable with respect
      * to which this function will be differentiated
+     * @return the derivative
      */
-    public void diff(String variableName)
+    public Quantity derivative(String variableName)
     {
         //derivative of a constant is always zero
-        Complex zero = new Complex();
-        this.replaceWith(zero);
+        return new Complex();
     }
 
     /**
@@ -399,4 +356,157 @@ public class Complex extends Quantity
         //does nothing because this is not a variable and
         //cannot have any variable children
     }
+
+    /*
+     * Primitive kernels. Each one computes one part of an operation on
+     * complex numbers given as (real, imaginary) pairs of doubles, without
+     * creating any objects. The instance methods above, MutableComplex and
+     * CompiledFunction are all built on these, so every evaluation path
+     * produces exactly the same results.
+     */
+    
+    /**
+     * Real part of (a + bi) * (c + di)
+     */
+    public static double mulRe(double a, double b, double c, double d)
+    {
+        return a * c - b * d;
+    }
+    
+    /**
+     * Imaginary part of (a + bi) * (c + di)
+     */
+    public static double mulIm(double a, double b, double c, double d)
+    {
+        return a * d + b * c;
+    }
+    
+    /**
+     * Real part of (a + bi) / (c + di)
+     */
+    public static double divRe(double a, double b, double c, double d)
+    {
+        double denominator = c * c + d * d;
+        return (a * c + b * d) / denominator;
+    }
+    
+    /**
+     * Imaginary part of (a + bi) / (c + di)
+     */
+    public static double divIm(double a, double b, double c, double d)
+    {
+        double denominator = c * c + d * d;
+        return (b * c - a * d) / denominator;
+    }
+    
+    /**
+     * Argument of a + bi, between zero and 2 * pi. Like the other kernels
+     * this never throws, so one bad point cannot stop a batch: it is 0 when
+     * a + bi is exactly zero (as Math.atan2 gives) and NaN when a or b is NaN
+     */
+    public static double arg(double a, double b)
+    {
+        //positive imaginary axis
+        if (a == 0 && b > 0)
+        {
+            return Math.PI / 2;
+        }
+        //negative imaginary axis
+        else if (a == 0 && b < 0)
+        {
+            return 3 * Math.PI / 2;
+        }
+        //first quadrant
+        else if (a > 0 && b >= 0)
+        {
+            return Math.atan(b/a);
+        }
+        //second quadrant
+        else if (a < 0 && b >= 0)
+        {
+            return Math.PI + Math.atan(b/a);
+        }
+        //third quadrant
+        else if (a < 0 && b < 0)
+        {
+            return Math.PI + Math.atan(b/a);
+        }
+        //fourth quadrant
+        else if (a > 0 && b < 0)
+        {
+            return 2 * Math.PI + Math.atan(b/a);
+        }
+        //exactly zero
+        else if (a == 0 && b == 0)
+        {
+            return 0;
+        }
+        //NaN
+        else
+        {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Real part of the square root of a + bi (the root with the positive real part)
+     */
+    public static double sqrtRe(double a, double b)
+    {
+        //take care of the a + bi == 0 case first
+        if (Math.abs(a) < 0.000001 && Math.abs(b) < 0.000001)
+        {
+            return 0;
+        }
+        double arg = arg(a, b);
+        double root = Math.sqrt(Math.sqrt(a * a + b * b));
+        return (Math.cos(arg / 2) >= 0) ? root * Math.cos(arg / 2) : -1 * root * Math.cos(arg / 2);
+    }
+    
+    /**
+     * Imaginary part of the square root of a + bi (the root with the positive real part)
+     */
+    public static double sqrtIm(double a, double b)
+    {
+        //take care of the a + bi == 0 case first
+        if (Math.abs(a) < 0.000001 && Math.abs(b) < 0.000001)
+        {
+            return 0;
+        }
+        double arg = arg(a, b);
+        double root = Math.sqrt(Math.sqrt(a * a + b * b));
+        return (Math.cos(arg / 2) >= 0) ? root * Math.sin(arg / 2) : -1 * root * Math.sin(arg / 2);
+    }
+    
+    /**
+     * Real part of e^(a + bi)
+     */
+    public static double expRe(double a, double b)
+    {
+        return Math.exp(a) * Math.cos(b);
+    }
+    
+    /**
+     * Imaginary part of e^(a + bi)
+     */
+    public static double expIm(double a, double b)
+    {
+        return Math.exp(a) * Math.sin(b);
+    }
+    
+    /**
+     * Real part of the natural logarithm of a + bi
+     */
+    public static double lnRe(double a, double b)
+    {
+        return Math.log(Math.sqrt(a * a + b * b));
+    }
+    
+    /**
+     * Imaginary part of the natural logarithm of a + bi (between 0 and 2 * pi)
+     */
+    public static double lnIm(double a, double b)
+    {
+        return arg(a, b);
+    }
 }
@@ -178,5 +178,51 @@ public class ComplexTest extends TestCase {
         assertEquals(otherComplex, otherComplex.ln().exp());
         assertEquals(otherComplex, otherComplex.exp().ln());   
     }
+    
+    /**
+     * Tests that the static kernels agree with the Complex methods
+     */
+    public void testKernels()
+    {
+        Complex first = new Complex(-4.5, 1.8);
+        Complex second = new Complex(0.3, -2.2);
+        Complex product = first.multiply(second);
+        assertEquals(product.real(), Complex.mulRe(-4.5, 1.8, 0.3, -2.2), 0.0);
+        assertEquals(product.imag(), Complex.mulIm(-4.5, 1.8, 0.3, -2.2), 0.0);
+        Complex quotient = first.divide(second);
+        assertEquals(quotient.real(), Complex.divRe(-4.5, 1.8, 0.3, -2.2), 0.0);
+        assertEquals(quotient.imag(), Complex.divIm(-4.5, 1.8, 0.3, -2.2), 0.0);
+        assertEquals(first, quotient.multiply(second));
+        assertEquals(first.arg(), Complex.arg(-4.5, 1.8), 0.0);
+        assertEquals(first.sqrt().real(), Complex.sqrtRe(-4.5, 1.8), 0.0);
+        assertEquals(first.sqrt().imag(), Complex.sqrtIm(-4.5, 1.8), 0.0);
+    }
+    
+    /**
+     * Tests MutableComplex
+     */
+    public void testMutableComplex()
+    {
+        MutableComplex total = new MutableComplex();
+        //accumulates (1 + i) + (1 - i) + (1 + i) in place
+        total.addInPlace(num1).addInPlace(num2).addInPlace(1.0, 1.0);
+        assertEquals(new Complex(3.0, 1.0), total.toComplex());
+        //every operation should match the corresponding Complex method
+        Complex value = new Complex(3.0, 1.0);
+        assertEquals(value.multiply(num2), total.mulInPlace(num2).toComplex());
+        value = value.multiply(num2);
+        assertEquals(value.divide(num1), total.divInPlace(num1).toComplex());
+        value = value.divide(num1);
+        assertEquals(value.square(), total.squareInPlace().toComplex());
+        value = value.square();
+        assertEquals(value.sqrt(), total.sqrtInPlace().toComplex());
+        value = value.sqrt();
+        assertEquals(value.ln(), total.lnInPlace().toComplex());
+        value = value.ln();
+        assertEquals(value.exp(), total.expInPlace().toComplex());
+        value = value.exp();
+        assertEquals(value.conj(), total.conjInPlace().toComplex());
+        assertEquals(new Complex(0.0, 0.0), total.subtractInPlace(value.conj()).toComplex());
+    }
 
 }
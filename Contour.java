@@ -0,0 +1,186 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path through the complex plane that a Function can be integrated along.
+ * A single-piece contour is a smooth curve z(t) for t between 0 and 1; a
+ * multi-piece contour (such as a polyline or a rectangle) is a chain of
+ * single-piece contours, each of which is integrated separately. A chain
+ * can still be evaluated as one path: each piece takes an equal share of
+ * the interval from 0 to 1.
+ *
+ * Contours are created with the static factories (segment, arc, circle,
+ * polyline, rectangle, join). Any other parametric path is made by
+ * subclassing Contour and overriding evaluate.
+ * Contours hold no mutable state, so one contour can be shared by
+ * several threads.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public abstract class Contour {
+
+    /**
+     * Finds the point z(t) on this contour and the derivative z'(t).
+     * On a chain of n pieces, piece k covers t from k/n to (k+1)/n.
+     *
+     * @param t the parameter, between 0 and 1
+     * @param out receives the real and imaginary parts of z(t) at indices 0 and 1,
+     * and the real and imaginary parts of z'(t) at indices 2 and 3
+     */
+    public abstract void evaluate(double t, double[] out);
+
+    /**
+     * Gets the smooth pieces that make up this contour, in order
+     *
+     * @return the pieces of this contour (just this contour, unless overridden)
+     */
+    public List<Contour> pieces()
+    {
+        return Collections.singletonList(this);
+    }
+
+    /**
+     * Creates the straight segment from start to end
+     *
+     * @param start the first point of the segment
+     * @param end the last point of the segment
+     * @return the segment
+     */
+    public static Contour segment(Complex start, Complex end)
+    {
+        final double startReal = start.real();
+        final double startImag = start.imag();
+        final double deltaReal = end.real() - start.real();
+        final double deltaImag = end.imag() - start.imag();
+        return new Contour() {
+            @Override
+            public void evaluate(double t, double[] out)
+            {
+                out[0] = startReal + t * deltaReal;
+                out[1] = startImag + t * deltaImag;
+                out[2] = deltaReal;
+                out[3] = deltaImag;
+            }
+        };
+    }
+
+    /**
+     * Creates an arc of a circle, running from startAngle to endAngle
+     * (counterclockwise if endAngle is larger than startAngle)
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     * @param startAngle the angle (in radians) at which the arc starts
+     * @param endAngle the angle (in radians) at which the arc ends
+     * @return the arc
+     */
+    public static Contour arc(Complex center, final double radius,
+        final double startAngle, double endAngle)
+    {
+        final double centerReal = center.real();
+        final double centerImag = center.imag();
+        final double sweep = endAngle - startAngle;
+        return new Contour() {
+            @Override
+            public void evaluate(double t, double[] out)
+            {
+                double angle = startAngle + t * sweep;
+                double cos = Math.cos(angle);
+                double sin = Math.sin(angle);
+                out[0] = centerReal + radius * cos;
+                out[1] = centerImag + radius * sin;
+                out[2] = -radius * sweep * sin;
+                out[3] = radius * sweep * cos;
+            }
+        };
+    }
+
+    /**
+     * Creates a full circle, traversed once counterclockwise
+     * starting from center + radius
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     * @return the circle
+     */
+    public static Contour circle(Complex center, double radius)
+    {
+        return arc(center, radius, 0, 2 * Math.PI);
+    }
+
+    /**
+     * Creates the chain of straight segments through the given points
+     *
+     * @param vertices the points the polyline passes through, in order (at least two)
+     * @return the polyline
+     */
+    public static Contour polyline(Complex... vertices)
+    {
+        if (vertices.length < 2)
+        {
+            throw new IllegalArgumentException();
+        }
+        List<Contour> segments = new ArrayList<Contour>();
+        for (int i = 0; i + 1 < vertices.length; i++)
+        {
+            segments.add(segment(vertices[i], vertices[i + 1]));
+        }
+        return join(segments);
+    }
+
+    /**
+     * Creates the boundary of a rectangle with sides parallel to the axes,
+     * traversed once counterclockwise starting from lowerLeft
+     *
+     * @param lowerLeft the lower left corner of the rectangle
+     * @param upperRight the upper right corner of the rectangle
+     * @return the rectangle
+     */
+    public static Contour rectangle(Complex lowerLeft, Complex upperRight)
+    {
+        Complex lowerRight = new Complex(upperRight.real(), lowerLeft.imag());
+        Complex upperLeft = new Complex(lowerLeft.real(), upperRight.imag());
+        return polyline(lowerLeft, lowerRight, upperRight, upperLeft, lowerLeft);
+    }
+
+    /**
+     * Creates a contour made of other contours, traversed one after another
+     *
+     * @param parts the contours to chain together, in order (at least one)
+     * @return the combined contour
+     */
+    public static Contour join(List<Contour> parts)
+    {
+        final List<Contour> pieces = new ArrayList<Contour>();
+        for (Contour part : parts)
+        {
+            pieces.addAll(part.pieces());
+        }
+        if (pieces.isEmpty())
+        {
+            throw new IllegalArgumentException();
+        }
+        final int count = pieces.size();
+        return new Contour() {
+            @Override
+            public void evaluate(double t, double[] out)
+            {
+                //piece k runs over [k/count, (k+1)/count], so its speed is scaled by count
+                int k = Math.max(0, Math.min((int) (t * count), count - 1));
+                pieces.get(k).evaluate(t * count - k, out);
+                out[2] *= count;
+                out[3] *= count;
+            }
+
+            @Override
+            public List<Contour> pieces()
+            {
+                return Collections.unmodifiableList(pieces);
+            }
+        };
+    }
+}
@@ -0,0 +1,221 @@
+package complexNumbers;
+
+/**
+ * One node of an ExpressionDag. A node is a constant, a variable, or an
+ * operator applied to other nodes of the same ExpressionDag.
+ *
+ * Nodes are immutable and are only created by an ExpressionDag, which
+ * interns them: two structurally identical expressions built in the same
+ * ExpressionDag are always the very same node, so they can be compared
+ * with == and a subexpression that appears many times is stored (and
+ * evaluated) only once.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class DagNode {
+
+    private final ExpressionDag dag;
+    private final int id;
+    private final Quantity.Kind kind;
+    private final Operator operator;
+    private final double real;
+    private final double imag;
+    private final String name;
+    private final DagNode left;
+    private final DagNode right;
+    private final int hash;
+
+    /**
+     * Creates a node. Only called by ExpressionDag
+     *
+     * @param dag the ExpressionDag that owns the node
+     * @param id the position the node will have in the dag if it is new
+     * @param kind what sort of node this is
+     * @param operator the operator of an operation node (otherwise null)
+     * @param real the real part of a constant node
+     * @param imag the imaginary part of a constant node
+     * @param name the name of a variable node (otherwise null)
+     * @param left the child of a unary node, or the left child of a binary node
+     * @param right the right child of a binary node (otherwise null)
+     */
+    DagNode(ExpressionDag dag, int id, Quantity.Kind kind, Operator operator,
+        double real, double imag, String name, DagNode left, DagNode right)
+    {
+        this.dag = dag;
+        this.id = id;
+        this.kind = kind;
+        this.operator = operator;
+        this.real = real;
+        this.imag = imag;
+        this.name = name;
+        this.left = left;
+        this.right = right;
+        //children are already interned, so their identity hash codes describe them
+        int h = kind.hashCode();
+        h = 31 * h + (operator == null ? 0 : operator.hashCode());
+        h = 31 * h + Long.hashCode(Double.doubleToLongBits(real));
+        h = 31 * h + Long.hashCode(Double.doubleToLongBits(imag));
+        h = 31 * h + (name == null ? 0 : name.hashCode());
+        h = 31 * h + System.identityHashCode(left);
+        h = 31 * h + System.identityHashCode(right);
+        this.hash = h;
+    }
+
+    /**
+     * Gets the ExpressionDag this node belongs to
+     *
+     * @return the dag field
+     */
+    ExpressionDag getDag()
+    {
+        return dag;
+    }
+
+    /**
+     * Gets the position of this node in its ExpressionDag. A node's children
+     * always have smaller ids than the node itself
+     *
+     * @return the id field
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Tells whether this node is a constant, a variable, or an operation
+     *
+     * @return the kind field
+     */
+    public Quantity.Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Gets the operator of an operation node
+     *
+     * @return the operator field (null for constants and variables)
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * Gets the value of a constant node
+     *
+     * @return the value of this constant
+     * @throws UnsupportedOperationException if this is not a constant
+     */
+    public Complex getValue()
+    {
+        if (kind != Quantity.Kind.CONSTANT)
+        {
+            throw new UnsupportedOperationException();
+        }
+        return new Complex(real, imag);
+    }
+
+    /**
+     * Gets the real part of a constant node
+     *
+     * @return the real field (0 for other nodes)
+     */
+    double real()
+    {
+        return real;
+    }
+
+    /**
+     * Gets the imaginary part of a constant node
+     *
+     * @return the imag field (0 for other nodes)
+     */
+    double imag()
+    {
+        return imag;
+    }
+
+    /**
+     * Gets the name of a variable node
+     *
+     * @return the name field (null for constants and operations)
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the child of a unary node, or the left child of a binary node
+     *
+     * @return the left field (null for constants and variables)
+     */
+    public DagNode getLeft()
+    {
+        return left;
+    }
+
+    /**
+     * Gets the right child of a binary node
+     *
+     * @return the right field (null for every other node)
+     */
+    public DagNode getRight()
+    {
+        return right;
+    }
+
+    /**
+     * Tells whether another node has the same structure as this one. Used
+     * by ExpressionDag when interning; since children are already interned,
+     * they are compared by identity, and constants are compared by their
+     * exact bits (so 0.0 and -0.0 stay apart, and NaN matches NaN)
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof DagNode))
+        {
+            return false;
+        }
+        DagNode node = (DagNode) other;
+        return dag == node.dag && kind == node.kind && operator == node.operator &&
+            Double.doubleToLongBits(real) == Double.doubleToLongBits(node.real) &&
+            Double.doubleToLongBits(imag) == Double.doubleToLongBits(node.imag) &&
+            (name == null ? node.name == null : name.equals(node.name)) &&
+            left == node.left && right == node.right;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    /**
+     * Expresses this node as a String, in the same form as the equivalent
+     * Function. Shared subexpressions are written out every time they are
+     * used, so the String can be much longer than the node count suggests
+     */
+    public String toString()
+    {
+        switch (kind)
+        {
+            case CONSTANT:
+                return new Complex(real, imag).toString();
+            case VARIABLE:
+                return name;
+            case UNARY_OPERATION:
+                return operator.format(left.toString());
+            default:
+                return operator.format(left.toString(), right.toString());
+        }
+    }
+}
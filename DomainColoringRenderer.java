@@ -0,0 +1,402 @@
+package complexNumbers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Draws a domain-coloring plot of a function of one variable as a PPM or
+ * PNG image.
+ *
+ * Each pixel is one point of a GridEvaluation: the argument of the value
+ * there sets the hue (red for positive reals, then yellow, green, cyan,
+ * blue and magenta going counterclockwise) and the magnitude sets the
+ * brightness, from black at zeros towards full brightness at poles. Values
+ * of exactly 0 are black, infinite values are white and NaN is grey, so a
+ * grid point that lands exactly on a singularity (such as 0 for ln(z) or
+ * sqrt(1 / z)) gets a color like any other.
+ *
+ * The image is made a band of rows at a time. The points of a band are
+ * evaluated in tiles on the fork/join pool and turned into RGB bytes while
+ * the band before it is being compressed and written. The two bands take
+ * turns using the same two sets of primitive arrays, so only two bands are
+ * held in memory at once however large the image is, and nothing more is
+ * allocated for each band.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class DomainColoringRenderer {
+
+    /**
+     * The kinds of image file that can be written
+     */
+    public enum Format {
+        //binary portable pixmap (P6)
+        PPM,
+        //8-bit RGB PNG
+        PNG
+    }
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    //largest IDAT chunk written
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final GridEvaluation grid;
+    private final int width;
+    private final int height;
+    private int bandHeight = 64;
+
+    /**
+     * Sets up a plot of a function over a rectangle of the complex plane
+     *
+     * @param function the function to plot
+     * @param variableName the variable that takes the value of each pixel
+     * @param lowerLeft the corner with the smallest real and imaginary parts
+     * @param upperRight the corner with the largest real and imaginary parts
+     * @param width the width of the image in pixels
+     * @param height the height of the image in pixels
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public DomainColoringRenderer(Function function, String variableName, Complex lowerLeft,
+        Complex upperRight, int width, int height)
+    {
+        this.grid = function.evalGrid(variableName, lowerLeft, upperRight, width, height);
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Sets the number of rows rendered together
+     *
+     * @param bandHeight the number of rows in a band
+     * @throws IllegalArgumentException if bandHeight is less than 1
+     */
+    public void setBandHeight(int bandHeight)
+    {
+        if (bandHeight < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.bandHeight = bandHeight;
+    }
+
+    /**
+     * Sets the number of threads that evaluate the function
+     *
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        grid.setParallelism(parallelism);
+    }
+
+    /**
+     * Writes the image to a file
+     *
+     * @param path the file to write (replaced if it exists)
+     * @param format the kind of image to write
+     * @throws IOException if the file cannot be written
+     */
+    public void render(Path path, Format format) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), CHUNK_SIZE))
+        {
+            this.render(out, format);
+        }
+    }
+
+    /**
+     * Writes the image to a stream
+     *
+     * @param out where the image is written (flushed but not closed)
+     * @param format the kind of image to write
+     * @throws IOException if out fails
+     */
+    public void render(OutputStream out, Format format) throws IOException
+    {
+        OutputStream pixels;
+        Deflater deflater = null;
+        ChunkOutputStream idat = null;
+        if (format == Format.PPM)
+        {
+            out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            pixels = out;
+        }
+        else
+        {
+            out.write(PNG_SIGNATURE);
+            DataOutputStream header = new DataOutputStream(new ChunkOutputStream(out, "IHDR"));
+            header.writeInt(width);
+            header.writeInt(height);
+            //8 bits per sample, RGB, deflate, adaptive filtering, no interlace
+            header.write(new byte[] {8, 2, 0, 0, 0});
+            header.close();
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            idat = new ChunkOutputStream(out, "IDAT");
+            pixels = new DeflaterOutputStream(idat, deflater, CHUNK_SIZE);
+        }
+        int bandSize = Math.min(bandHeight, height) * width;
+        Band[] bands = {new Band(bandSize), new Band(bandSize)};
+        CompletableFuture<byte[]> next = null;
+        try
+        {
+            next = this.startBand(0, bands[0]);
+            for (int firstRow = 0, index = 0; firstRow < height; firstRow += bandHeight, index++)
+            {
+                byte[] band = this.join(next);
+                next = null;
+                //evaluate the next band into the other arrays while this one is written
+                if (firstRow + bandHeight < height)
+                {
+                    next = this.startBand(firstRow + bandHeight, bands[(index + 1) % 2]);
+                }
+                int rows = Math.min(bandHeight, height - firstRow);
+                for (int r = 0; r < rows; r++)
+                {
+                    if (format == Format.PNG)
+                    {
+                        //filter type 0: the row is stored as it is
+                        pixels.write(0);
+                    }
+                    pixels.write(band, r * width * 3, width * 3);
+                }
+            }
+            if (format == Format.PNG)
+            {
+                ((DeflaterOutputStream) pixels).finish();
+                idat.close();
+                new ChunkOutputStream(out, "IEND").close();
+            }
+            out.flush();
+        }
+        finally
+        {
+            if (next != null)
+            {
+                //writing failed, so the band being made is not wanted
+                next.cancel(false);
+                grid.cancel();
+            }
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Starts evaluating and coloring a band of rows in the background
+     */
+    private CompletableFuture<byte[]> startBand(int firstRow, Band band)
+    {
+        return CompletableFuture.supplyAsync(() -> this.renderBand(firstRow, band));
+    }
+
+    /**
+     * Waits for a band, passing on any exception thrown while making it
+     */
+    private byte[] join(CompletableFuture<byte[]> band)
+    {
+        try
+        {
+            return band.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates a band of rows and turns it into RGB bytes
+     *
+     * @param firstRow the first row of the band
+     * @param band the arrays to use, which must not be in use for another band
+     * @return three bytes for each pixel of the band, row by row (the band's rgb array)
+     */
+    private byte[] renderBand(int firstRow, Band band)
+    {
+        int count = Math.min(bandHeight, height - firstRow) * width;
+        grid.evaluateRows(firstRow, count / width, band.real, band.imag);
+        for (int i = 0; i < count; i++)
+        {
+            color(band.real[i], band.imag[i], band.rgb, 3 * i);
+        }
+        return band.rgb;
+    }
+
+    /**
+     * Finds the color of a value
+     *
+     * @param real the real part of the value
+     * @param imag the imaginary part of the value
+     * @param rgb receives the red, green and blue bytes
+     * @param offset where the red byte goes
+     */
+    static void color(double real, double imag, byte[] rgb, int offset)
+    {
+        if (Double.isNaN(real) || Double.isNaN(imag))
+        {
+            rgb[offset] = rgb[offset + 1] = rgb[offset + 2] = (byte) 128;
+            return;
+        }
+        double mag = Math.sqrt(real * real + imag * imag);
+        if (mag == 0 || Double.isInfinite(mag))
+        {
+            //there is no argument to take a hue from
+            rgb[offset] = rgb[offset + 1] = rgb[offset + 2] = mag == 0 ? 0 : (byte) 255;
+            return;
+        }
+        double value = 2 / Math.PI * Math.atan(mag);
+        double hue = Complex.arg(real, imag) * 3 / Math.PI;
+        int sector = (int) hue;
+        double rising = value * (hue - sector);
+        double falling = value - rising;
+        double red;
+        double green;
+        double blue;
+        switch (sector)
+        {
+            case 0:
+                red = value;
+                green = rising;
+                blue = 0;
+                break;
+            case 1:
+                red = falling;
+                green = value;
+                blue = 0;
+                break;
+            case 2:
+                red = 0;
+                green = value;
+                blue = rising;
+                break;
+            case 3:
+                red = 0;
+                green = falling;
+                blue = value;
+                break;
+            case 4:
+                red = rising;
+                green = 0;
+                blue = value;
+                break;
+            default:
+                //sector 5, or 6 when the argument is exactly 2 * pi
+                red = value;
+                green = 0;
+                blue = sector == 5 ? falling : 0;
+                break;
+        }
+        rgb[offset] = (byte) Math.round(255 * red);
+        rgb[offset + 1] = (byte) Math.round(255 * green);
+        rgb[offset + 2] = (byte) Math.round(255 * blue);
+    }
+
+    /**
+     * The values and colors of one band of rows
+     */
+    private static class Band {
+
+        private final double[] real;
+        private final double[] imag;
+        private final byte[] rgb;
+
+        /**
+         * Creates the arrays for a band of up to count pixels
+         */
+        Band(int count)
+        {
+            this.real = new double[count];
+            this.imag = new double[count];
+            this.rgb = new byte[3 * count];
+        }
+    }
+
+    /**
+     * Collects bytes into PNG chunks of the given type, each at most
+     * CHUNK_SIZE long, and writes them with their length and CRC. Closing it
+     * writes the last chunk (even an empty one if nothing else has been
+     * written) but does not close the underlying stream
+     */
+    private static class ChunkOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] type;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+        private boolean written;
+
+        ChunkOutputStream(OutputStream out, String type)
+        {
+            this.out = out;
+            this.type = type.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if (count == buffer.length)
+            {
+                this.writeChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            while (length > 0)
+            {
+                if (count == buffer.length)
+                {
+                    this.writeChunk();
+                }
+                int n = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (count > 0 || !written)
+            {
+                this.writeChunk();
+            }
+        }
+
+        private void writeChunk() throws IOException
+        {
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(buffer, 0, count);
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(count);
+            data.write(type);
+            data.write(buffer, 0, count);
+            data.writeInt((int) crc.getValue());
+            count = 0;
+            written = true;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package complexNumbers;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the whole library, readable over JMX
+ * (for example in JConsole or VisualVM) as "complexNumbers:type=EngineMetrics".
+ *
+ * There is one instance, which registers itself with the platform MBean
+ * server the first time the library records anything. If registration is
+ * not allowed, or the name is already taken (by another copy of the library
+ * in a different class loader), the metrics are still kept and can be read
+ * through get().
+ *
+ * Counters are LongAdders and histograms are LatencyHistograms, so threads
+ * updating them at the same time do not contend with each other.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    /**
+     * The name the metrics are registered under
+     */
+    public static final String OBJECT_NAME = "complexNumbers:type=EngineMetrics";
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    static
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name))
+            {
+                server.registerMBean(INSTANCE, name);
+            }
+        }
+        catch (JMException | SecurityException e)
+        {
+            //the metrics still work without JMX
+        }
+    }
+
+    private final LongAdder nodesAllocated = new LongAdder();
+    private final LongAdder treeCopies = new LongAdder();
+    private final LongAdder subAndEvalCalls = new LongAdder();
+    private final LongAdder integrationSamples = new LongAdder();
+    private final LongAdder simplifierRewrites = new LongAdder();
+    private final LatencyHistogram evaluateLatency = new LatencyHistogram();
+    private final LatencyHistogram diffLatency = new LatencyHistogram();
+    private final LatencyHistogram integrateLatency = new LatencyHistogram();
+
+    private EngineMetrics()
+    {
+    }
+
+    /**
+     * Gets the metrics of the library
+     *
+     * @return the only EngineMetrics
+     */
+    public static EngineMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    public long getNodesAllocated()
+    {
+        return nodesAllocated.sum();
+    }
+
+    public long getTreeCopies()
+    {
+        return treeCopies.sum();
+    }
+
+    public long getSubAndEvalCalls()
+    {
+        return subAndEvalCalls.sum();
+    }
+
+    public long getIntegrationSamples()
+    {
+        return integrationSamples.sum();
+    }
+
+    public long getSimplifierRewrites()
+    {
+        return simplifierRewrites.sum();
+    }
+
+    public LatencySummary getEvaluateLatency()
+    {
+        return evaluateLatency.summary();
+    }
+
+    public LatencySummary getDiffLatency()
+    {
+        return diffLatency.summary();
+    }
+
+    public LatencySummary getIntegrateLatency()
+    {
+        return integrateLatency.summary();
+    }
+
+    public void reset()
+    {
+        nodesAllocated.reset();
+        treeCopies.reset();
+        subAndEvalCalls.reset();
+        integrationSamples.reset();
+        simplifierRewrites.reset();
+        evaluateLatency.reset();
+        diffLatency.reset();
+        integrateLatency.reset();
+    }
+
+    //recording, called from the rest of the package
+
+    /**
+     * Records the nodes of a tree of Quantities that was just built from an
+     * Expression. Nodes are counted once per tree rather than in their
+     * constructors, which would put a shared counter update in the middle
+     * of every arithmetic operation on Complex. The caller knows the size
+     * from the tree's Expression, so nothing is walked here
+     *
+     * @param nodes the number of nodes in the tree
+     */
+    static void treeBuilt(int nodes)
+    {
+        INSTANCE.nodesAllocated.add(nodes);
+    }
+
+    static void treeCopied()
+    {
+        INSTANCE.treeCopies.increment();
+    }
+
+    static void simplifierRewrote()
+    {
+        INSTANCE.simplifierRewrites.increment();
+    }
+
+    /**
+     * Records an evaluation that started at the given System.nanoTime()
+     */
+    static void evaluated(long start, boolean subAndEval)
+    {
+        INSTANCE.evaluateLatency.record(System.nanoTime() - start);
+        if (subAndEval)
+        {
+            INSTANCE.subAndEvalCalls.increment();
+        }
+    }
+
+    /**
+     * Records a differentiation that started at the given System.nanoTime()
+     */
+    static void differentiated(long start)
+    {
+        INSTANCE.diffLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records an integration that started at the given System.nanoTime()
+     */
+    static void integrated(long start, int samples)
+    {
+        INSTANCE.integrateLatency.record(System.nanoTime() - start);
+        INSTANCE.integrationSamples.add(samples);
+    }
+}
@@ -0,0 +1,84 @@
+package complexNumbers;
+
+/**
+ * The management interface of EngineMetrics, registered with the platform
+ * MBean server as "complexNumbers:type=EngineMetrics". Counts are totals
+ * since the library was loaded or since the last call to reset. Latencies
+ * are in nanoseconds.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * Gets an estimate of the number of Quantity nodes allocated, counted
+     * once per tree when getTopQuantity builds the structure of a function
+     * held as an Expression.
+     *
+     * This is a lower bound, not an exact count. Trees built for internal
+     * use are missed: the working copy made by cleanUp and Simplifier, the
+     * results of Quantity.derivative and Function.fullySimplify(Quantity),
+     * and anything built with the Quantity constructors directly. Copies,
+     * derivatives, parsed and archived functions are held as Expressions and
+     * allocate no Quantities, and intermediate Complex values made during
+     * arithmetic are not counted either
+     *
+     * @return the number of nodes allocated
+     */
+    long getNodesAllocated();
+
+    /**
+     * Gets the number of calls to Function.copy, including those made by subAndEval
+     *
+     * @return the number of tree copies
+     */
+    long getTreeCopies();
+
+    /**
+     * Gets the number of calls to Function.subAndEval (all overloads)
+     *
+     * @return the number of subAndEval calls
+     */
+    long getSubAndEvalCalls();
+
+    /**
+     * Gets the number of times an integrand was evaluated by the integration methods of Function
+     *
+     * @return the number of integration samples
+     */
+    long getIntegrationSamples();
+
+    /**
+     * Gets the number of rewrites made by Simplifiers, including those made by cleanUp
+     *
+     * @return the number of simplifier rewrites
+     */
+    long getSimplifierRewrites();
+
+    /**
+     * Gets the distribution of the times taken by subAndEval and evalBatch
+     *
+     * @return a summary of the evaluation latencies
+     */
+    LatencySummary getEvaluateLatency();
+
+    /**
+     * Gets the distribution of the times taken by Function.diff
+     *
+     * @return a summary of the differentiation latencies
+     */
+    LatencySummary getDiffLatency();
+
+    /**
+     * Gets the distribution of the times taken by the integration methods of Function
+     *
+     * @return a summary of the integration latencies
+     */
+    LatencySummary getIntegrateLatency();
+
+    /**
+     * Sets every counter and histogram back to zero
+     */
+    void reset();
+}
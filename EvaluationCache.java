@@ -0,0 +1,291 @@
+package complexNumbers;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in cache for Function.subAndEval. Calling subAndEval through a
+ * cache skips the tree copy and fullySimplify whenever the same function
+ * has already been evaluated at the same point.
+ *
+ * Entries are keyed by the function's Expression together with the
+ * variable names and the exact bit patterns of the substituted values.
+ * Expressions compare by structure, with constants compared bit for bit,
+ * and carry their hash, so a lookup does not walk the function: on a hit
+ * the function still holds the very Expression in the key, and equals
+ * stops at identity. Complex.equals allows a small tolerance, so it cannot
+ * be used for keys: two values that differ only in the last bit are
+ * different keys here. Since the key is taken at every call, a function
+ * that is modified between calls is simply looked up under its new
+ * structure.
+ *
+ * The cache holds at most maximumSize entries and evicts the least
+ * recently used ones. It is split into independently locked stripes, so
+ * threads using different keys rarely wait for each other; the LRU order is
+ * kept per stripe. Hits and misses are counted with LongAdders.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class EvaluationCache {
+
+    //most stripes a cache is split into
+    private static final int MAX_STRIPES = 16;
+    //stored for evaluations that did not reduce to a single Complex
+    private static final double[] NOT_CONSTANT = new double[0];
+
+    private final Stripe[] stripes;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * One independently locked piece of the cache, in access order
+     */
+    private static class Stripe extends LinkedHashMap<Key, double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest)
+        {
+            return this.size() > capacity;
+        }
+    }
+
+    /**
+     * A cache key, compared exactly
+     */
+    private static final class Key {
+
+        private final Expression expression;
+        private final String[] names;
+        private final long[] bits;
+        private final int hash;
+
+        Key(Expression expression, String[] names, long[] bits)
+        {
+            this.expression = expression;
+            this.names = names;
+            this.bits = bits;
+            this.hash = 31 * (31 * expression.hashCode() + Arrays.hashCode(names)) + Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && expression.equals(key.expression) &&
+                Arrays.equals(names, key.names) && Arrays.equals(bits, key.bits);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * Creates an empty cache
+     *
+     * @param maximumSize the most entries the cache may hold (at least 1)
+     */
+    public EvaluationCache(int maximumSize)
+    {
+        if (maximumSize < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        int count = Math.min(MAX_STRIPES, maximumSize);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++)
+        {
+            //share out the capacity so the stripes add up to exactly maximumSize
+            stripes[i] = new Stripe(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Same as function.subAndEval(variableName1, value1), but answered from
+     * the cache when possible
+     *
+     * @param function the function to evaluate (not modified)
+     * @param variableName1 the variable to substitute
+     * @param value1 the value of the variable
+     * @return the value of the function, or null if it does not reduce to a single Complex
+     */
+    public Complex subAndEval(Function function, String variableName1, Complex value1)
+    {
+        Key key = new Key(function.toExpression(), new String[] {variableName1},
+            new long[] {Double.doubleToLongBits(value1.real()), Double.doubleToLongBits(value1.imag())});
+        double[] cached = this.lookup(key);
+        if (cached == null)
+        {
+            cached = this.store(key, function.subAndEval(variableName1, value1));
+        }
+        return toComplex(cached);
+    }
+
+    /**
+     * Same as function.subAndEval(variableName1, value1, variableName2, value2),
+     * but answered from the cache when possible
+     *
+     * @param function the function to evaluate (not modified)
+     * @param variableName1 the first variable to substitute
+     * @param value1 the value of the first variable
+     * @param variableName2 the second variable to substitute
+     * @param value2 the value of the second variable
+     * @return the value of the function, or null if it does not reduce to a single Complex
+     */
+    public Complex subAndEval(Function function, String variableName1, Complex value1,
+        String variableName2, Complex value2)
+    {
+        Key key = new Key(function.toExpression(), new String[] {variableName1, variableName2},
+            new long[] {Double.doubleToLongBits(value1.real()), Double.doubleToLongBits(value1.imag()),
+                Double.doubleToLongBits(value2.real()), Double.doubleToLongBits(value2.imag())});
+        double[] cached = this.lookup(key);
+        if (cached == null)
+        {
+            cached = this.store(key, function.subAndEval(variableName1, value1, variableName2, value2));
+        }
+        return toComplex(cached);
+    }
+
+    /**
+     * Gets the number of calls answered from the cache
+     *
+     * @return the number of hits
+     */
+    public long hitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of calls that had to evaluate the function
+     *
+     * @return the number of misses
+     */
+    public long missCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the most entries this cache may hold
+     *
+     * @return the maximumSize field
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Counts the entries currently in the cache
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes every entry (the hit and miss counts are kept)
+     */
+    public void clear()
+    {
+        for (Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Finds the stripe a key belongs to
+     */
+    private Stripe stripeFor(Key key)
+    {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[(h & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * Looks a key up, counting the hit or miss
+     *
+     * @return the cached result, or null on a miss
+     */
+    private double[] lookup(Key key)
+    {
+        Stripe stripe = this.stripeFor(key);
+        double[] cached;
+        synchronized (stripe)
+        {
+            cached = stripe.get(key);
+        }
+        if (cached == null)
+        {
+            misses.increment();
+        }
+        else
+        {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Stores the result of an evaluation (which happens outside any lock, so
+     * two threads that miss on the same key may both evaluate it)
+     *
+     * @return the stored form of the result
+     */
+    private double[] store(Key key, Complex result)
+    {
+        double[] stored = (result == null) ? NOT_CONSTANT : new double[] {result.real(), result.imag()};
+        Stripe stripe = this.stripeFor(key);
+        synchronized (stripe)
+        {
+            stripe.put(key, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Makes a new Complex from a stored result, so callers never share
+     * (and can never modify) the cached value
+     */
+    private static Complex toComplex(double[] stored)
+    {
+        return (stored.length == 0) ? null : new Complex(stored[0], stored[1]);
+    }
+}
@@ -0,0 +1,150 @@
+package complexNumbers;
+
+/**
+ * The scratch registers used while a CompiledFunction is evaluated, kept
+ * apart from the program itself.
+ *
+ * A compiled program is never changed once it is built, so any number of
+ * threads can evaluate the same CompiledFunction (or the same Function,
+ * see Function.eval) at once, as long as each one passes in its own
+ * EvaluationContext. Nothing is locked, and once a context's registers are
+ * big enough for the programs it is used with, evaluating allocates
+ * nothing.
+ *
+ * A context can be reused for any number of evaluations and for different
+ * programs; its registers grow the first time a bigger program needs them.
+ * A context must not be used by two threads at once. The results of the
+ * last evaluation are read back with resultReal(), resultImag(),
+ * derivativeReal() and derivativeImag().
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class EvaluationContext {
+
+    //value stack and variable registers
+    double[] stackReal;
+    double[] stackImag;
+    double[] variableReal;
+    double[] variableImag;
+    double resultReal;
+    double resultImag;
+    //derivative stack, for evalWithDerivative (created on first use)
+    double[] tangentReal;
+    double[] tangentImag;
+    double derivativeReal;
+    double derivativeImag;
+    final double[] kernelResult = new double[2];
+    //one block of points per stack entry, for evalBatch (created on first use)
+    double[][] blockReal;
+    double[][] blockImag;
+
+    /**
+     * Creates a context with small registers, which grow as needed
+     */
+    public EvaluationContext()
+    {
+        this(8, 2);
+    }
+
+    /**
+     * Creates a context with registers big enough for programs up to a
+     * given size, so that evaluating them never has to grow the registers
+     *
+     * @param stackDepth the deepest stack of the programs (see CompiledFunction.getStackDepth)
+     * @param variableCount the most variables any of the programs has
+     * @throws IllegalArgumentException if either argument is negative
+     */
+    public EvaluationContext(int stackDepth, int variableCount)
+    {
+        if (stackDepth < 0 || variableCount < 0)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.stackReal = new double[stackDepth];
+        this.stackImag = new double[stackDepth];
+        this.variableReal = new double[variableCount];
+        this.variableImag = new double[variableCount];
+    }
+
+    /**
+     * Gets the real part of the result of the last evaluation
+     *
+     * @return the real part of the result
+     */
+    public double resultReal()
+    {
+        return resultReal;
+    }
+
+    /**
+     * Gets the imaginary part of the result of the last evaluation
+     *
+     * @return the imaginary part of the result
+     */
+    public double resultImag()
+    {
+        return resultImag;
+    }
+
+    /**
+     * Gets the real part of the derivative found by the last call to evalWithDerivative
+     *
+     * @return the real part of the derivative
+     */
+    public double derivativeReal()
+    {
+        return derivativeReal;
+    }
+
+    /**
+     * Gets the imaginary part of the derivative found by the last call to evalWithDerivative
+     *
+     * @return the imaginary part of the derivative
+     */
+    public double derivativeImag()
+    {
+        return derivativeImag;
+    }
+
+    /**
+     * Makes sure the value stack and variable registers are big enough for a program
+     */
+    void reserve(int stackDepth, int variableCount)
+    {
+        if (stackReal.length < stackDepth)
+        {
+            stackReal = new double[stackDepth];
+            stackImag = new double[stackDepth];
+        }
+        if (variableReal.length < variableCount)
+        {
+            variableReal = new double[variableCount];
+            variableImag = new double[variableCount];
+        }
+    }
+
+    /**
+     * Makes sure the derivative stack is big enough for a program
+     */
+    void reserveTangents(int stackDepth)
+    {
+        if (tangentReal == null || tangentReal.length < stackDepth)
+        {
+            tangentReal = new double[stackDepth];
+            tangentImag = new double[stackDepth];
+        }
+    }
+
+    /**
+     * Makes sure there is a block of blockSize points for each stack entry of a program
+     */
+    void reserveBlocks(int stackDepth, int blockSize)
+    {
+        if (blockReal == null || blockReal.length < stackDepth)
+        {
+            blockReal = new double[stackDepth][blockSize];
+            blockImag = new double[stackDepth][blockSize];
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Evaluates a Function over and over while only some of its variables
+ * change, recomputing only what those changes affect.
+ *
+ * When an Evaluator is created, the function's tree is flattened into a
+ * list of nodes in which every child comes before its parent, and for each
+ * variable it records which nodes depend on it (the nodes on the paths from
+ * that variable up to the top Quantity). Every node keeps its last value.
+ * After set changes a variable, evaluate recomputes just the nodes that
+ * depend on it, so a sweep over one variable of a wide function does a
+ * small fraction of the work of subAndEval.
+ *
+ * The Evaluator works on a snapshot of the function taken when it is
+ * created; later changes to the Function are not seen. It is not
+ * thread-safe.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class Evaluator {
+
+    //the flattened tree, children first
+    private final Quantity.Kind[] kinds;
+    private final Operator[] operators;
+    //index of the (left) child and right child of each node, or the slot of a variable
+    private final int[] left;
+    private final int[] right;
+    //last value of each node (constants are filled in once)
+    private final double[] valueReal;
+    private final double[] valueImag;
+    //names of the variables, indexed by slot
+    private final String[] variableNames;
+    //for each slot, the nodes that depend on that variable, in increasing order
+    private final int[][] dependents;
+    //values of the variables, indexed by slot
+    private final double[] variableReal;
+    private final double[] variableImag;
+    private final boolean[] bound;
+    //slots changed since the last evaluation
+    private final boolean[] changed;
+    private int changedCount;
+    //scratch flags used when several variables have changed
+    private final boolean[] dirty;
+    private boolean evaluated;
+    private int lastRecomputed;
+
+    /**
+     * Prepares a function for incremental evaluation
+     *
+     * @param function the function to evaluate (not modified)
+     */
+    public Evaluator(Function function)
+    {
+        Flattener flattener = new Flattener();
+        flattener.add(function.toExpression());
+        int count = flattener.kinds.size();
+        this.kinds = flattener.kinds.toArray(new Quantity.Kind[count]);
+        this.operators = flattener.operators.toArray(new Operator[count]);
+        this.left = new int[count];
+        this.right = new int[count];
+        this.valueReal = new double[count];
+        this.valueImag = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            left[i] = flattener.left.get(i);
+            right[i] = flattener.right.get(i);
+            valueReal[i] = flattener.constantReal.get(i);
+            valueImag[i] = flattener.constantImag.get(i);
+        }
+        this.variableNames = flattener.names.toArray(new String[flattener.names.size()]);
+        int slots = variableNames.length;
+        this.dependents = new int[slots][];
+        for (int slot = 0; slot < slots; slot++)
+        {
+            BitSet nodes = new BitSet(count);
+            for (int i = 0; i < count; i++)
+            {
+                if (flattener.dependsOn.get(i).get(slot))
+                {
+                    nodes.set(i);
+                }
+            }
+            dependents[slot] = nodes.stream().toArray();
+        }
+        this.variableReal = new double[slots];
+        this.variableImag = new double[slots];
+        this.bound = new boolean[slots];
+        this.changed = new boolean[slots];
+        this.dirty = new boolean[count];
+    }
+
+    /**
+     * Walks a tree once, building the node lists
+     */
+    private static class Flattener {
+
+        final ArrayList<Quantity.Kind> kinds = new ArrayList<Quantity.Kind>();
+        final ArrayList<Operator> operators = new ArrayList<Operator>();
+        final ArrayList<Integer> left = new ArrayList<Integer>();
+        final ArrayList<Integer> right = new ArrayList<Integer>();
+        final ArrayList<Double> constantReal = new ArrayList<Double>();
+        final ArrayList<Double> constantImag = new ArrayList<Double>();
+        final ArrayList<BitSet> dependsOn = new ArrayList<BitSet>();
+        final ArrayList<String> names = new ArrayList<String>();
+
+        /**
+         * Adds an expression after its children
+         *
+         * @return the index of the expression
+         */
+        int add(Expression expression)
+        {
+            switch (expression.getKind())
+            {
+                case CONSTANT:
+                    return this.node(Quantity.Kind.CONSTANT, null, -1, -1,
+                        expression.real(), expression.imag(), new BitSet());
+                case VARIABLE:
+                {
+                    String name = expression.getName();
+                    int slot = names.indexOf(name);
+                    if (slot < 0)
+                    {
+                        slot = names.size();
+                        names.add(name);
+                    }
+                    BitSet variables = new BitSet();
+                    variables.set(slot);
+                    return this.node(Quantity.Kind.VARIABLE, null, slot, -1, 0, 0, variables);
+                }
+                case UNARY_OPERATION:
+                {
+                    int child = this.add(expression.getLeft());
+                    BitSet variables = (BitSet) dependsOn.get(child).clone();
+                    return this.node(Quantity.Kind.UNARY_OPERATION, expression.getOperator(),
+                        child, -1, 0, 0, variables);
+                }
+                default:
+                {
+                    int a = this.add(expression.getLeft());
+                    int b = this.add(expression.getRight());
+                    BitSet variables = (BitSet) dependsOn.get(a).clone();
+                    variables.or(dependsOn.get(b));
+                    return this.node(Quantity.Kind.BINARY_OPERATION, expression.getOperator(),
+                        a, b, 0, 0, variables);
+                }
+            }
+        }
+
+        private int node(Quantity.Kind kind, Operator operator, int a, int b,
+            double real, double imag, BitSet variables)
+        {
+            kinds.add(kind);
+            operators.add(operator);
+            left.add(a);
+            right.add(b);
+            constantReal.add(real);
+            constantImag.add(imag);
+            dependsOn.add(variables);
+            return kinds.size() - 1;
+        }
+    }
+
+    /**
+     * Gets the number of distinct variables in the function
+     *
+     * @return the number of slots
+     */
+    public int getVariableCount()
+    {
+        return variableNames.length;
+    }
+
+    /**
+     * Finds the slot of a variable
+     *
+     * @param variableName the name of the variable
+     * @return the slot, or -1 if the function has no such variable
+     */
+    public int slotOf(String variableName)
+    {
+        for (int slot = 0; slot < variableNames.length; slot++)
+        {
+            if (variableNames[slot].equals(variableName))
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the value of the variable in a slot. Setting a variable to the
+     * value (bit for bit) it already has does not cause any recomputation
+     *
+     * @param slot the slot of the variable
+     * @param real the real part of the value
+     * @param imag the imaginary part of the value
+     * @return this evaluator
+     */
+    public Evaluator set(int slot, double real, double imag)
+    {
+        if (bound[slot] && Double.doubleToLongBits(real) == Double.doubleToLongBits(variableReal[slot]) &&
+            Double.doubleToLongBits(imag) == Double.doubleToLongBits(variableImag[slot]))
+        {
+            return this;
+        }
+        variableReal[slot] = real;
+        variableImag[slot] = imag;
+        bound[slot] = true;
+        if (!changed[slot])
+        {
+            changed[slot] = true;
+            changedCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the value of a variable. Names the function does not contain are ignored
+     *
+     * @param variableName the name of the variable
+     * @param value the value of the variable
+     * @return this evaluator
+     */
+    public Evaluator set(String variableName, Complex value)
+    {
+        int slot = this.slotOf(variableName);
+        if (slot >= 0)
+        {
+            this.set(slot, value.real(), value.imag());
+        }
+        return this;
+    }
+
+    /**
+     * Evaluates the function at the current values of the variables,
+     * recomputing only the nodes that depend on variables changed since
+     * the last evaluation
+     *
+     * @return the value of the function
+     * @throws IllegalStateException if some variable has never been set
+     */
+    public Complex evaluate()
+    {
+        for (boolean slotBound : bound)
+        {
+            if (!slotBound)
+            {
+                throw new IllegalStateException();
+            }
+        }
+        lastRecomputed = 0;
+        if (!evaluated)
+        {
+            //the first time, everything that is not a constant is computed
+            for (int i = 0; i < kinds.length; i++)
+            {
+                if (kinds[i] != Quantity.Kind.CONSTANT)
+                {
+                    this.recompute(i);
+                }
+            }
+            evaluated = true;
+        }
+        else if (changedCount == 1)
+        {
+            //the dependents of a single variable are already in order
+            for (int slot = 0; slot < changed.length; slot++)
+            {
+                if (changed[slot])
+                {
+                    for (int node : dependents[slot])
+                    {
+                        this.recompute(node);
+                    }
+                }
+            }
+        }
+        else if (changedCount > 1)
+        {
+            //merge the dependents of every changed variable, then go through them in order
+            for (int slot = 0; slot < changed.length; slot++)
+            {
+                if (changed[slot])
+                {
+                    for (int node : dependents[slot])
+                    {
+                        dirty[node] = true;
+                    }
+                }
+            }
+            for (int i = 0; i < dirty.length; i++)
+            {
+                if (dirty[i])
+                {
+                    dirty[i] = false;
+                    this.recompute(i);
+                }
+            }
+        }
+        for (int slot = 0; slot < changed.length; slot++)
+        {
+            changed[slot] = false;
+        }
+        changedCount = 0;
+        int top = kinds.length - 1;
+        return new Complex(valueReal[top], valueImag[top]);
+    }
+
+    /**
+     * Gets the number of nodes the last call to evaluate had to compute
+     *
+     * @return the number of nodes recomputed
+     */
+    public int getLastRecomputed()
+    {
+        return lastRecomputed;
+    }
+
+    /**
+     * Gets the number of nodes in the flattened function
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount()
+    {
+        return kinds.length;
+    }
+
+    /**
+     * Computes the value of one node from its children
+     */
+    private void recompute(int i)
+    {
+        lastRecomputed++;
+        switch (kinds[i])
+        {
+            case VARIABLE:
+                valueReal[i] = variableReal[left[i]];
+                valueImag[i] = variableImag[left[i]];
+                break;
+            case UNARY_OPERATION:
+                ExpressionDag.applyUnary(operators[i], valueReal, valueImag, i, left[i]);
+                break;
+            case BINARY_OPERATION:
+                ExpressionDag.applyBinary(operators[i], valueReal, valueImag, i, left[i], right[i]);
+                break;
+            default:
+                //constants never change
+                break;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package complexNumbers;
+
+/**
+ * An immutable expression tree: a constant, a variable, or an operator
+ * applied to other Expressions.
+ *
+ * Nodes have no parent or housingFunction, so one node can be part of any
+ * number of trees at once. Every transformation (substitute, foldConstants,
+ * derivative) returns a new root and leaves the original alone; the parts
+ * of the tree that do not change are shared with the result rather than
+ * copied, and an operation that changes nothing returns the same node.
+ * Copying an Expression is never needed, and any number of threads can
+ * read one at the same time.
+ *
+ * Unlike DagNode, Expressions are not interned, so they need no
+ * ExpressionDag, and two equal expressions are not necessarily the same
+ * node (equals compares them by structure).
+ *
+ * A Function built from an Expression uses it until the mutable tree of
+ * Quantities is asked for (see Function.getTopQuantity). of and toQuantity
+ * convert between the two forms.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class Expression {
+
+    private final Quantity.Kind kind;
+    private final Operator operator;
+    private final double real;
+    private final double imag;
+    private final String name;
+    private final Expression left;
+    private final Expression right;
+    private final int size;
+    private final int hash;
+
+    //builds the terms of derivatives with fold, for the rules in Operator
+    private static final Operator.Builder<Expression> FOLDING = new Operator.Builder<Expression>() {
+        @Override
+        public Expression constant(double real, double imag)
+        {
+            return Expression.constant(real, imag);
+        }
+
+        @Override
+        public boolean isZero(Expression node)
+        {
+            return isConstant(node, 0, 0);
+        }
+
+        @Override
+        public Expression apply(Operator operator, Expression operand)
+        {
+            return fold(operator, operand);
+        }
+
+        @Override
+        public Expression apply(Operator operator, Expression left, Expression right)
+        {
+            return fold(operator, left, right);
+        }
+    };
+
+    /**
+     * Creates a node. Only called by the factory methods, which check the arguments
+     */
+    private Expression(Quantity.Kind kind, Operator operator, double real, double imag,
+        String name, Expression left, Expression right)
+    {
+        this.kind = kind;
+        this.operator = operator;
+        this.real = real;
+        this.imag = imag;
+        this.name = name;
+        this.left = left;
+        this.right = right;
+        this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+        //the children's hashes are already known, so this is constant time
+        int h = kind.hashCode();
+        h = 31 * h + (operator == null ? 0 : operator.hashCode());
+        h = 31 * h + Long.hashCode(Double.doubleToLongBits(real));
+        h = 31 * h + Long.hashCode(Double.doubleToLongBits(imag));
+        h = 31 * h + (name == null ? 0 : name.hashCode());
+        h = 31 * h + (left == null ? 0 : left.hash);
+        h = 31 * h + (right == null ? 0 : right.hash);
+        this.hash = h;
+    }
+
+    /**
+     * Gets the expression for a constant
+     *
+     * @param real the real part of the constant
+     * @param imag the imaginary part of the constant
+     * @return the expression
+     */
+    public static Expression constant(double real, double imag)
+    {
+        return new Expression(Quantity.Kind.CONSTANT, null, real, imag, null, null, null);
+    }
+
+    /**
+     * Gets the expression for a constant
+     *
+     * @param value the constant
+     * @return the expression
+     */
+    public static Expression constant(Complex value)
+    {
+        return constant(value.real(), value.imag());
+    }
+
+    /**
+     * Gets the expression for a variable
+     *
+     * @param name the name of the variable
+     * @return the expression
+     * @throws IllegalArgumentException if name is null
+     */
+    public static Expression variable(String name)
+    {
+        if (name == null)
+        {
+            throw new IllegalArgumentException("a variable needs a name");
+        }
+        return new Expression(Quantity.Kind.VARIABLE, null, 0, 0, name, null, null);
+    }
+
+    /**
+     * Gets the expression operator(child), exactly as given (see
+     * foldConstants and derivative for simplification)
+     *
+     * @param operator a unary operator
+     * @param child the operand
+     * @return the expression
+     * @throws IllegalArgumentException if operator is not unary or child is null
+     */
+    public static Expression unary(Operator operator, Expression child)
+    {
+        if (!operator.isUnary() || child == null)
+        {
+            throw new IllegalArgumentException();
+        }
+        return new Expression(Quantity.Kind.UNARY_OPERATION, operator, 0, 0, null, child, null);
+    }
+
+    /**
+     * Gets the expression (left operator right), exactly as given (see
+     * foldConstants and derivative for simplification)
+     *
+     * @param operator a binary operator
+     * @param left the left operand
+     * @param right the right operand
+     * @return the expression
+     * @throws IllegalArgumentException if operator is not binary or an operand is null
+     */
+    public static Expression binary(Operator operator, Expression left, Expression right)
+    {
+        if (operator.isUnary() || left == null || right == null)
+        {
+            throw new IllegalArgumentException();
+        }
+        return new Expression(Quantity.Kind.BINARY_OPERATION, operator, 0, 0, null, left, right);
+    }
+
+    /**
+     * Gets the expression for a tree of Quantities. The tree is only read
+     *
+     * @param quantity the top of the tree
+     * @return an expression with the same structure
+     */
+    public static Expression of(Quantity quantity)
+    {
+        switch (quantity.getKind())
+        {
+            case CONSTANT:
+                return constant((Complex) quantity);
+            case VARIABLE:
+                return variable(((Variable) quantity).getName());
+            case UNARY_OPERATION:
+            {
+                UnaryOperation unary = (UnaryOperation) quantity;
+                return unary(unary.getOperator(), of(unary.getChild()));
+            }
+            default:
+            {
+                BinaryOperation binary = (BinaryOperation) quantity;
+                return binary(binary.getOperator(), of(binary.getLeftChild()), of(binary.getRightChild()));
+            }
+        }
+    }
+
+    /**
+     * Builds a new tree of Quantities with the same structure as this
+     * expression. A node shared by several parts of the expression becomes
+     * a separate Quantity in each place, since a Quantity has one parent
+     *
+     * @return the top of the new tree
+     */
+    public Quantity toQuantity()
+    {
+        switch (kind)
+        {
+            case CONSTANT:
+                return new Complex(real, imag);
+            case VARIABLE:
+                return new Variable(name);
+            case UNARY_OPERATION:
+            {
+                UnaryOperation unary = new UnaryOperation(operator);
+                unary.setChild(left.toQuantity());
+                return unary;
+            }
+            default:
+            {
+                BinaryOperation binary = new BinaryOperation(operator);
+                binary.setLeftChild(left.toQuantity());
+                binary.setRightChild(right.toQuantity());
+                return binary;
+            }
+        }
+    }
+
+    /**
+     * Tells whether this is a constant, a variable, or an operation
+     *
+     * @return the kind field
+     */
+    public Quantity.Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Gets the operator of an operation
+     *
+     * @return the operator field (null for constants and variables)
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * Gets the value of a constant
+     *
+     * @return the value of this constant
+     * @throws UnsupportedOperationException if this is not a constant
+     */
+    public Complex getValue()
+    {
+        if (kind != Quantity.Kind.CONSTANT)
+        {
+            throw new UnsupportedOperationException();
+        }
+        return new Complex(real, imag);
+    }
+
+    /**
+     * Gets the real part of a constant without creating a Complex
+     */
+    double real()
+    {
+        return real;
+    }
+
+    /**
+     * Gets the imaginary part of a constant without creating a Complex
+     */
+    double imag()
+    {
+        return imag;
+    }
+
+    /**
+     * Gets the name of a variable
+     *
+     * @return the name field (null for constants and operations)
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the operand of a unary operation, or the left operand of a
+     * binary operation
+     *
+     * @return the left field (null for constants and variables)
+     */
+    public Expression getLeft()
+    {
+        return left;
+    }
+
+    /**
+     * Gets the right operand of a binary operation
+     *
+     * @return the right field (null for every other expression)
+     */
+    public Expression getRight()
+    {
+        return right;
+    }
+
+    /**
+     * Gets the number of nodes in this expression, counting a shared node
+     * once for every place it is used (so this is the size of toQuantity)
+     *
+     * @return the size field
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Replaces every instance of a variable with a value. Only the nodes
+     * above an instance of the variable are rebuilt; the value itself is
+     * shared by every place it goes
+     *
+     * @param variableName the name of the variable to be replaced
+     * @param value the expression that will take the variable's place
+     * @return the new expression, or this expression if the variable does not appear in it
+     */
+    public Expression substitute(String variableName, Expression value)
+    {
+        switch (kind)
+        {
+            case VARIABLE:
+                return name.equals(variableName) ? value : this;
+            case UNARY_OPERATION:
+            {
+                Expression newChild = left.substitute(variableName, value);
+                return newChild == left ? this : unary(operator, newChild);
+            }
+            case BINARY_OPERATION:
+            {
+                Expression newLeft = left.substitute(variableName, value);
+                Expression newRight = right.substitute(variableName, value);
+                return newLeft == left && newRight == right ? this : binary(operator, newLeft, newRight);
+            }
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Evaluates every operation whose operands are all constants, from the
+     * bottom up. Function.fullySimplify uses this. If no variables are left,
+     * the result is a single constant
+     *
+     * @return the new expression, or this expression if nothing could be evaluated
+     */
+    public Expression foldConstants()
+    {
+        switch (kind)
+        {
+            case UNARY_OPERATION:
+            {
+                Expression newChild = left.foldConstants();
+                if (newChild.kind == Quantity.Kind.CONSTANT)
+                {
+                    return constant(operator.apply(newChild.getValue()));
+                }
+                return newChild == left ? this : unary(operator, newChild);
+            }
+            case BINARY_OPERATION:
+            {
+                Expression newLeft = left.foldConstants();
+                Expression newRight = right.foldConstants();
+                if (newLeft.kind == Quantity.Kind.CONSTANT && newRight.kind == Quantity.Kind.CONSTANT)
+                {
+                    return constant(operator.apply(newLeft.getValue(), newRight.getValue()));
+                }
+                return newLeft == left && newRight == right ? this : binary(operator, newLeft, newRight);
+            }
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Builds the derivative of this expression, simplifying it as it is
+     * built by the same rules as BinaryOperation.of and UnaryOperation.of,
+     * with the rule for each operator taken from Operator.derivative. The
+     * parts of this expression that the derivative uses are shared instead
+     * of copied. Quantity.derivative and Function.diff both use this
+     *
+     * @param variableName the name of the variable with respect
+     * to which this expression will be differentiated
+     * @return the derivative
+     */
+    public Expression derivative(String variableName)
+    {
+        switch (kind)
+        {
+            case CONSTANT:
+                return constant(0, 0);
+            case VARIABLE:
+                if (variableName.equals(name))
+                {
+                    return constant(1, 0);
+                }
+                return variable("d" + name + "/d" + variableName);
+            case UNARY_OPERATION:
+                return operator.derivative(FOLDING, left, this, left.derivative(variableName));
+            default:
+                return operator.derivative(FOLDING, left, right,
+                    left.derivative(variableName), right.derivative(variableName));
+        }
+    }
+
+    /**
+     * Builds operator(child), simplified by the same rules as UnaryOperation.of
+     */
+    private static Expression fold(Operator operator, Expression child)
+    {
+        if (child.kind == Quantity.Kind.CONSTANT)
+        {
+            return constant(operator.apply(child.getValue()));
+        }
+        if (child.kind == Quantity.Kind.UNARY_OPERATION && Simplifier.undoes(operator, child.operator))
+        {
+            return child.left;
+        }
+        return unary(operator, child);
+    }
+
+    /**
+     * Builds (left operator right), simplified by the same rules as BinaryOperation.of
+     */
+    private static Expression fold(Operator operator, Expression left, Expression right)
+    {
+        switch (Simplifier.reduce(operator, left.kind == Quantity.Kind.CONSTANT, left.real, left.imag,
+            right.kind == Quantity.Kind.CONSTANT, right.real, right.imag))
+        {
+            case VALUE:
+                return constant(operator.apply(left.getValue(), right.getValue()));
+            case LEFT:
+                return left;
+            case RIGHT:
+                return right;
+            case ZERO:
+                return constant(0, 0);
+            default:
+                return binary(operator, left, right);
+        }
+    }
+
+    /**
+     * Tells whether an expression is a constant exactly equal to a value
+     */
+    private static boolean isConstant(Expression expression, double real, double imag)
+    {
+        return expression.kind == Quantity.Kind.CONSTANT &&
+            expression.real == real && expression.imag == imag;
+    }
+
+    /**
+     * Tells whether another expression has the same structure as this one.
+     * Constants are compared by their exact bits (so 0.0 and -0.0 differ,
+     * and NaN matches NaN). Shared nodes make this fast, since identical
+     * subtrees are found by identity before they are walked
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof Expression))
+        {
+            return false;
+        }
+        Expression expression = (Expression) other;
+        return hash == expression.hash && size == expression.size &&
+            kind == expression.kind && operator == expression.operator &&
+            Double.doubleToLongBits(real) == Double.doubleToLongBits(expression.real) &&
+            Double.doubleToLongBits(imag) == Double.doubleToLongBits(expression.imag) &&
+            (name == null ? expression.name == null : name.equals(expression.name)) &&
+            (left == null ? expression.left == null : left.equals(expression.left)) &&
+            (right == null ? expression.right == null : right.equals(expression.right));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    /**
+     * Expresses this expression as a String, in the same form as the
+     * equivalent Function
+     */
+    public String toString()
+    {
+        switch (kind)
+        {
+            case CONSTANT:
+                return new Complex(real, imag).toString();
+            case VARIABLE:
+                return name;
+            case UNARY_OPERATION:
+                return operator.format(left.toString());
+            default:
+                return operator.format(left.toString(), right.toString());
+        }
+    }
+}
@@ -0,0 +1,634 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores expressions as a directed acyclic graph in which every distinct
+ * subexpression appears exactly once (hash-consing). This is an optional
+ * alternative to the tree held by a Function: a tree has to copy a
+ * subexpression every time it is used, which is what makes repeated
+ * differentiation grow exponentially, while an ExpressionDag just points at
+ * the node it already has.
+ *
+ * Nodes are created through this class (constant, variable, unary, binary,
+ * fromFunction) and are interned in a table, so building the same
+ * expression twice gives the same DagNode. Derivatives are memoized for
+ * each node and variable, and evaluate computes each node reachable from
+ * the root once, in one pass over the nodes in id order. The reachable
+ * nodes of a root are listed once, the first time it is evaluated, and the
+ * list is kept for later evaluations of the same root.
+ *
+ * An ExpressionDag only ever grows; nodes are never removed. It is not
+ * thread-safe.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class ExpressionDag {
+
+    //interned nodes, looked up by structure
+    private final HashMap<DagNode, DagNode> table = new HashMap<DagNode, DagNode>();
+    //interned nodes, indexed by id
+    private final ArrayList<DagNode> nodes = new ArrayList<DagNode>();
+    //memoized derivatives, by variable name and then by node
+    private final HashMap<String, HashMap<DagNode, DagNode>> derivatives =
+        new HashMap<String, HashMap<DagNode, DagNode>>();
+    //the nodes reachable from each root evaluated so far, in id order
+    private final HashMap<DagNode, Schedule> schedules = new HashMap<DagNode, Schedule>();
+    //builds the terms of derivatives with fold, for the rules in Operator
+    private final Operator.Builder<DagNode> folding = new Operator.Builder<DagNode>() {
+        @Override
+        public DagNode constant(double real, double imag)
+        {
+            return ExpressionDag.this.constant(real, imag);
+        }
+
+        @Override
+        public boolean isZero(DagNode node)
+        {
+            return isConstant(node, 0, 0);
+        }
+
+        @Override
+        public DagNode apply(Operator operator, DagNode operand)
+        {
+            return fold(operator, operand);
+        }
+
+        @Override
+        public DagNode apply(Operator operator, DagNode left, DagNode right)
+        {
+            return fold(operator, left, right);
+        }
+    };
+
+    /**
+     * Gets the number of distinct nodes in this dag
+     *
+     * @return the number of nodes
+     */
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * Counts the distinct nodes an expression is made of
+     *
+     * @param root the top node of the expression
+     * @return the number of distinct nodes reachable from root (including root)
+     * @throws IllegalArgumentException if root belongs to another dag
+     */
+    public int size(DagNode root)
+    {
+        this.checkOwner(root);
+        return this.schedule(root).nodes.length;
+    }
+
+    /**
+     * Gets the node for a constant
+     *
+     * @param real the real part of the constant
+     * @param imag the imaginary part of the constant
+     * @return the interned node
+     */
+    public DagNode constant(double real, double imag)
+    {
+        return this.intern(new DagNode(this, nodes.size(), Quantity.Kind.CONSTANT,
+            null, real, imag, null, null, null));
+    }
+
+    /**
+     * Gets the node for a constant
+     *
+     * @param value the constant
+     * @return the interned node
+     */
+    public DagNode constant(Complex value)
+    {
+        return this.constant(value.real(), value.imag());
+    }
+
+    /**
+     * Gets the node for a variable
+     *
+     * @param name the name of the variable
+     * @return the interned node
+     */
+    public DagNode variable(String name)
+    {
+        if (name == null)
+        {
+            throw new IllegalArgumentException();
+        }
+        return this.intern(new DagNode(this, nodes.size(), Quantity.Kind.VARIABLE,
+            null, 0, 0, name, null, null));
+    }
+
+    /**
+     * Gets the node for a unary operator applied to a node
+     *
+     * @param operator a unary operator
+     * @param child the node the operator is applied to
+     * @return the interned node
+     * @throws IllegalArgumentException if operator is not unary or child
+     * belongs to another ExpressionDag
+     */
+    public DagNode unary(Operator operator, DagNode child)
+    {
+        if (!operator.isUnary())
+        {
+            throw new IllegalArgumentException();
+        }
+        this.checkOwner(child);
+        return this.intern(new DagNode(this, nodes.size(), Quantity.Kind.UNARY_OPERATION,
+            operator, 0, 0, null, child, null));
+    }
+
+    /**
+     * Gets the node for a binary operator applied to two nodes
+     *
+     * @param operator a binary operator
+     * @param left the left operand
+     * @param right the right operand
+     * @return the interned node
+     * @throws IllegalArgumentException if operator is not binary or an operand
+     * belongs to another ExpressionDag
+     */
+    public DagNode binary(Operator operator, DagNode left, DagNode right)
+    {
+        if (operator.isUnary())
+        {
+            throw new IllegalArgumentException();
+        }
+        this.checkOwner(left);
+        this.checkOwner(right);
+        return this.intern(new DagNode(this, nodes.size(), Quantity.Kind.BINARY_OPERATION,
+            operator, 0, 0, null, left, right));
+    }
+
+    /**
+     * Adds the expression held by a Function to this dag. Repeated
+     * subexpressions in the tree end up as a single node
+     *
+     * @param function the function to add (not modified)
+     * @return the node for the whole function
+     */
+    public DagNode fromFunction(Function function)
+    {
+        return this.fromExpression(function.toExpression());
+    }
+
+    /**
+     * Adds the expression below a Quantity to this dag
+     *
+     * @param quantity the top of the expression to add (not modified)
+     * @return the node for the expression
+     */
+    public DagNode fromQuantity(Quantity quantity)
+    {
+        return this.fromExpression(Expression.of(quantity));
+    }
+
+    /**
+     * Adds an Expression to this dag
+     *
+     * @param expression the expression to add
+     * @return the node for the expression
+     */
+    public DagNode fromExpression(Expression expression)
+    {
+        switch (expression.getKind())
+        {
+            case CONSTANT:
+                return this.constant(expression.real(), expression.imag());
+            case VARIABLE:
+                return this.variable(expression.getName());
+            case UNARY_OPERATION:
+                return this.unary(expression.getOperator(), this.fromExpression(expression.getLeft()));
+            default:
+                return this.binary(expression.getOperator(), this.fromExpression(expression.getLeft()),
+                    this.fromExpression(expression.getRight()));
+        }
+    }
+
+    /**
+     * Writes an expression out as an ordinary Function. Every use of a shared
+     * node becomes a separate copy in the tree, so the Function can be far
+     * larger than the dag
+     *
+     * @param root the top node of the expression
+     * @return a new Function equivalent to root
+     */
+    public Function toFunction(DagNode root)
+    {
+        this.checkOwner(root);
+        return new Function(this.toQuantity(root));
+    }
+
+    /**
+     * Builds a new tree of Quantities equivalent to a node
+     */
+    private Quantity toQuantity(DagNode node)
+    {
+        switch (node.getKind())
+        {
+            case CONSTANT:
+                return new Complex(node.real(), node.imag());
+            case VARIABLE:
+                return new Variable(node.getName());
+            case UNARY_OPERATION:
+            {
+                UnaryOperation unary = new UnaryOperation(node.getOperator());
+                unary.setChild(this.toQuantity(node.getLeft()));
+                return unary;
+            }
+            default:
+            {
+                BinaryOperation binary = new BinaryOperation(node.getOperator());
+                binary.setLeftChild(this.toQuantity(node.getLeft()));
+                binary.setRightChild(this.toQuantity(node.getRight()));
+                return binary;
+            }
+        }
+    }
+
+    /**
+     * Differentiates an expression with respect to a variable. The rules and
+     * the simplifications made while building the result are the same as
+     * Quantity.derivative (so toFunction gives the same expression as
+     * Function.diff), but nothing is copied: the derivative refers to the
+     * existing nodes, and the derivative of each node is only found once
+     *
+     * @param node the expression to differentiate
+     * @param variableName the variable with respect to which it is differentiated
+     * @return the node for the derivative
+     */
+    public DagNode diff(DagNode node, String variableName)
+    {
+        this.checkOwner(node);
+        HashMap<DagNode, DagNode> memo = derivatives.get(variableName);
+        if (memo == null)
+        {
+            memo = new HashMap<DagNode, DagNode>();
+            derivatives.put(variableName, memo);
+        }
+        return this.diff(node, variableName, memo);
+    }
+
+    /**
+     * Differentiates an expression several times with respect to a variable
+     *
+     * @param node the expression to differentiate
+     * @param variableName the variable with respect to which it is differentiated
+     * @param order how many times to differentiate (0 returns node itself)
+     * @return the node for the derivative
+     */
+    public DagNode diff(DagNode node, String variableName, int order)
+    {
+        if (order < 0)
+        {
+            throw new IllegalArgumentException();
+        }
+        DagNode result = node;
+        for (int i = 0; i < order; i++)
+        {
+            result = this.diff(result, variableName);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the derivative of a node, reusing any derivative found before
+     */
+    private DagNode diff(DagNode node, String variableName, HashMap<DagNode, DagNode> memo)
+    {
+        DagNode known = memo.get(node);
+        if (known != null)
+        {
+            return known;
+        }
+        DagNode result;
+        switch (node.getKind())
+        {
+            case CONSTANT:
+                //derivative of a constant is always zero
+                result = this.constant(0, 0);
+                break;
+            case VARIABLE:
+                if (variableName.equals(node.getName()))
+                {
+                    result = this.constant(1, 0);
+                }
+                else
+                {
+                    result = this.variable("d" + node.getName() + "/d" + variableName);
+                }
+                break;
+            case UNARY_OPERATION:
+                result = node.getOperator().derivative(folding, node.getLeft(), node,
+                    this.diff(node.getLeft(), variableName, memo));
+                break;
+            default:
+                result = node.getOperator().derivative(folding, node.getLeft(), node.getRight(),
+                    this.diff(node.getLeft(), variableName, memo), this.diff(node.getRight(), variableName, memo));
+                break;
+        }
+        memo.put(node, result);
+        return result;
+    }
+
+    /**
+     * Gets the node for operator(child), simplified by the same rules as UnaryOperation.of
+     */
+    private DagNode fold(Operator operator, DagNode child)
+    {
+        if (child.getKind() == Quantity.Kind.CONSTANT)
+        {
+            return this.constant(operator.apply(child.getValue()));
+        }
+        if (child.getKind() == Quantity.Kind.UNARY_OPERATION && Simplifier.undoes(operator, child.getOperator()))
+        {
+            return child.getLeft();
+        }
+        return this.unary(operator, child);
+    }
+
+    /**
+     * Gets the node for (left operator right), simplified by the same rules as BinaryOperation.of
+     */
+    private DagNode fold(Operator operator, DagNode left, DagNode right)
+    {
+        switch (Simplifier.reduce(operator, left.getKind() == Quantity.Kind.CONSTANT, left.real(), left.imag(),
+            right.getKind() == Quantity.Kind.CONSTANT, right.real(), right.imag()))
+        {
+            case VALUE:
+                return this.constant(operator.apply(left.getValue(), right.getValue()));
+            case LEFT:
+                return left;
+            case RIGHT:
+                return right;
+            case ZERO:
+                return this.constant(0, 0);
+            default:
+                return this.binary(operator, left, right);
+        }
+    }
+
+    /**
+     * Tells whether a node is a constant exactly equal to a value
+     */
+    private static boolean isConstant(DagNode node, double real, double imag)
+    {
+        return node.getKind() == Quantity.Kind.CONSTANT &&
+            node.real() == real && node.imag() == imag;
+    }
+
+    /**
+     * Evaluates an expression of one variable
+     *
+     * @param root the top node of the expression
+     * @param variableName the name of the variable
+     * @param value the value of the variable
+     * @return the value of the expression
+     */
+    public Complex evaluate(DagNode root, String variableName, Complex value)
+    {
+        HashMap<String, Complex> values = new HashMap<String, Complex>();
+        values.put(variableName, value);
+        return this.evaluate(root, values);
+    }
+
+    /**
+     * Evaluates an expression. Each distinct node reachable from root is
+     * computed exactly once, however many times it is used, by going through
+     * the nodes in id order (children always come before their parents)
+     *
+     * @param root the top node of the expression
+     * @param values the value of every variable in the expression, by name
+     * @return the value of the expression
+     * @throws IllegalArgumentException if a variable has no value
+     */
+    public Complex evaluate(DagNode root, Map<String, Complex> values)
+    {
+        this.checkOwner(root);
+        Schedule schedule = this.schedule(root);
+        double[] re = schedule.valueReal;
+        double[] im = schedule.valueImag;
+        for (int i = 0; i < schedule.nodes.length; i++)
+        {
+            DagNode node = schedule.nodes[i];
+            switch (node.getKind())
+            {
+                case CONSTANT:
+                    re[i] = node.real();
+                    im[i] = node.imag();
+                    break;
+                case VARIABLE:
+                {
+                    Complex value = values.get(node.getName());
+                    if (value == null)
+                    {
+                        throw new IllegalArgumentException(node.getName());
+                    }
+                    re[i] = value.real();
+                    im[i] = value.imag();
+                    break;
+                }
+                case UNARY_OPERATION:
+                    applyUnary(node.getOperator(), re, im, i, schedule.left[i]);
+                    break;
+                default:
+                    applyBinary(node.getOperator(), re, im, i, schedule.left[i], schedule.right[i]);
+                    break;
+            }
+        }
+        int top = schedule.nodes.length - 1;
+        return new Complex(re[top], im[top]);
+    }
+
+    /**
+     * Stores the result of a unary operator on the value at index a at index target
+     */
+    static void applyUnary(Operator operator, double[] re, double[] im, int target, int a)
+    {
+        double x = re[a];
+        double y = im[a];
+        switch (operator)
+        {
+            case SQUARE:
+                re[target] = Complex.mulRe(x, y, x, y);
+                im[target] = Complex.mulIm(x, y, x, y);
+                break;
+            case SQRT:
+                re[target] = Complex.sqrtRe(x, y);
+                im[target] = Complex.sqrtIm(x, y);
+                break;
+            case EXP:
+                re[target] = Complex.expRe(x, y);
+                im[target] = Complex.expIm(x, y);
+                break;
+            case LN:
+                re[target] = Complex.lnRe(x, y);
+                im[target] = Complex.lnIm(x, y);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Stores the result of a binary operator on the values at indices a and b at index target
+     */
+    static void applyBinary(Operator operator, double[] re, double[] im, int target, int a, int b)
+    {
+        double x = re[a];
+        double y = im[a];
+        double u = re[b];
+        double v = im[b];
+        switch (operator)
+        {
+            case ADD:
+                re[target] = x + u;
+                im[target] = y + v;
+                break;
+            case SUBTRACT:
+                re[target] = x - u;
+                im[target] = y - v;
+                break;
+            case MULTIPLY:
+                re[target] = Complex.mulRe(x, y, u, v);
+                im[target] = Complex.mulIm(x, y, u, v);
+                break;
+            case DIVIDE:
+                re[target] = Complex.divRe(x, y, u, v);
+                im[target] = Complex.divIm(x, y, u, v);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Gets the nodes reachable from root in id order, listing them the
+     * first time root is asked for. Nodes never change, so neither does the list
+     */
+    private Schedule schedule(DagNode root)
+    {
+        Schedule schedule = schedules.get(root);
+        if (schedule == null)
+        {
+            schedule = new Schedule(this.mark(root));
+            schedules.put(root, schedule);
+        }
+        return schedule;
+    }
+
+    /**
+     * Marks every node reachable from root, indexed by id
+     */
+    private boolean[] mark(DagNode root)
+    {
+        boolean[] reachable = new boolean[root.getId() + 1];
+        reachable[root.getId()] = true;
+        //children have smaller ids, so one downward sweep reaches everything
+        for (int id = root.getId(); id >= 0; id--)
+        {
+            if (reachable[id])
+            {
+                DagNode node = nodes.get(id);
+                if (node.getLeft() != null)
+                {
+                    reachable[node.getLeft().getId()] = true;
+                }
+                if (node.getRight() != null)
+                {
+                    reachable[node.getRight().getId()] = true;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * The nodes reachable from one root, in id order (so the root is last),
+     * with the positions of their children in the list and room for their values
+     */
+    private final class Schedule {
+
+        private final DagNode[] nodes;
+        private final int[] left;
+        private final int[] right;
+        private final double[] valueReal;
+        private final double[] valueImag;
+
+        /**
+         * Lists the marked nodes
+         *
+         * @param reachable the nodes to list, indexed by id
+         */
+        Schedule(boolean[] reachable)
+        {
+            int[] position = new int[reachable.length];
+            int count = 0;
+            for (int id = 0; id < reachable.length; id++)
+            {
+                if (reachable[id])
+                {
+                    position[id] = count++;
+                }
+            }
+            this.nodes = new DagNode[count];
+            this.left = new int[count];
+            this.right = new int[count];
+            this.valueReal = new double[count];
+            this.valueImag = new double[count];
+            for (int id = 0; id < reachable.length; id++)
+            {
+                if (reachable[id])
+                {
+                    int i = position[id];
+                    DagNode node = ExpressionDag.this.nodes.get(id);
+                    this.nodes[i] = node;
+                    if (node.getLeft() != null)
+                    {
+                        this.left[i] = position[node.getLeft().getId()];
+                    }
+                    if (node.getRight() != null)
+                    {
+                        this.right[i] = position[node.getRight().getId()];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the interned node equal to candidate, adding candidate
+     * to the table if there is none yet
+     */
+    private DagNode intern(DagNode candidate)
+    {
+        DagNode existing = table.get(candidate);
+        if (existing != null)
+        {
+            return existing;
+        }
+        table.put(candidate, candidate);
+        nodes.add(candidate);
+        return candidate;
+    }
+
+    /**
+     * Makes sure a node was created by this dag
+     */
+    private void checkOwner(DagNode node)
+    {
+        if (node.getDag() != this)
+        {
+            throw new IllegalArgumentException();
+        }
+    }
+}
@@ -0,0 +1,717 @@
+package complexNumbers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Turns text into Functions with a hand-written recursive-descent
+ * parser. The grammar accepts ordinary notation as well as everything
+ * Function.toString produces:
+ *
+ *     expression = term (("+" | "-") term)*
+ *     term       = unary (("*" | "/") unary)*
+ *     unary      = "-" unary | postfix
+ *     postfix    = primary ("^2" | ".sqrt()" | ".exp()" | ".ln()")*
+ *     primary    = number ["i"] | name | ("sqrt" | "exp" | "ln") "(" expression ")"
+ *                | "(" expression ")"
+ *
+ * For example "sqrt(1 + x^2)" and "((1.0 + (x^2)).sqrt())" give the same
+ * tree. A number followed directly by i is imaginary, and a parenthesized
+ * real number plus or minus an imaginary number, such as "(0.0 + 1.0i)", is
+ * read as a single constant, just as Complex.toString writes it. Negating a
+ * number gives a negative constant; negating anything else gives (-1.0 * a).
+ * Names are letters, digits and underscores, starting with a letter or
+ * underscore (NaN and Infinity are numbers).
+ *
+ * The parser reads straight from a CharSequence, and numbers that fit in a
+ * double exactly are converted without creating any Strings. Variable names
+ * are the only Strings it creates, and repeated names share one String.
+ * Each node is built once, straight into the immutable Expression the new
+ * Function holds; no structure of Quantities is built.
+ * parseLines and parseFile parse one expression per line from a Reader or a
+ * memory-mapped file.
+ *
+ * An ExpressionParser keeps state while parsing, so it must not be shared
+ * between threads; it can be reused for any number of expressions.
+ * Malformed text causes an IllegalArgumentException giving the position
+ * of the problem. For parseLines and parseFile it also gives the line, and
+ * the position is counted from the start of that line.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class ExpressionParser {
+
+    //powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    //largest mantissa that is an exact double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    //most distinct names remembered for reuse
+    private static final int NAME_CACHE_SIZE = 64;
+    //size of the buffer parseLines reads into (it grows for longer lines)
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private CharSequence text;
+    private int position;
+    private int end;
+    //where positions in error messages are counted from
+    private int lineStart;
+    private final String[] names = new String[NAME_CACHE_SIZE];
+    private int nameCount;
+    //the slot the next new name goes in, replacing the oldest once the cache is full
+    private int nextName;
+    //the most recent imaginary number literal, such as the 1.0i in (0.0 + 1.0i)
+    private Expression imaginaryLiteral;
+
+    /**
+     * Parses a whole CharSequence as one expression
+     *
+     * @param text the expression
+     * @return a new Function for the expression
+     * @throws IllegalArgumentException if text is not a valid expression
+     */
+    public Function parse(CharSequence text)
+    {
+        return this.parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses part of a CharSequence as one expression
+     *
+     * @param text the text containing the expression
+     * @param start the index of the first character of the expression
+     * @param end the index just past the last character of the expression
+     * @return a new Function for the expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public Function parse(CharSequence text, int start, int end)
+    {
+        return this.parse(text, start, end, 0);
+    }
+
+    /**
+     * Parses part of a CharSequence as one expression, counting the
+     * positions in error messages from lineStart
+     */
+    private Function parse(CharSequence text, int start, int end, int lineStart)
+    {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+        this.lineStart = lineStart;
+        try
+        {
+            Expression top = this.expression();
+            this.skipSpaces();
+            if (position < end)
+            {
+                throw this.error("unexpected '" + text.charAt(position) + "'");
+            }
+            return new Function(top);
+        }
+        finally
+        {
+            this.text = null;
+            this.imaginaryLiteral = null;
+        }
+    }
+
+    /**
+     * Parses one expression per line from a Reader. Blank lines are skipped
+     *
+     * @param reader the source of the text (not closed)
+     * @param sink receives each Function, in order
+     * @return the number of expressions parsed
+     * @throws IOException if the reader fails
+     * @throws IllegalArgumentException if a line is not a valid expression
+     */
+    public int parseLines(Reader reader, Consumer<Function> sink) throws IOException
+    {
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        CharBuffer view = CharBuffer.wrap(buffer);
+        int filled = 0;
+        int lineNumber = 0;
+        int count = 0;
+        boolean done = false;
+        while (!done)
+        {
+            if (filled == buffer.length)
+            {
+                //a line longer than the buffer: make room for it
+                char[] larger = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, filled);
+                buffer = larger;
+                view = CharBuffer.wrap(buffer);
+            }
+            int read = reader.read(buffer, filled, buffer.length - filled);
+            if (read < 0)
+            {
+                done = true;
+            }
+            else
+            {
+                filled += read;
+            }
+            //parse every complete line (and, at the end, whatever is left)
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    lineNumber++;
+                    count += this.parseLine(view, lineStart, i, lineNumber, sink);
+                    lineStart = i + 1;
+                }
+            }
+            if (done && lineStart < filled)
+            {
+                lineNumber++;
+                count += this.parseLine(view, lineStart, filled, lineNumber, sink);
+                lineStart = filled;
+            }
+            System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+            filled -= lineStart;
+        }
+        return count;
+    }
+
+    /**
+     * Parses one expression per line from a file, which is mapped into memory
+     * rather than read. The file must be ASCII (or UTF-8 that only uses ASCII).
+     * Blank lines are skipped
+     *
+     * @param path the file to parse
+     * @param sink receives each Function, in order
+     * @return the number of expressions parsed
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if a line is not a valid expression
+     */
+    public int parseFile(Path path, Consumer<Function> sink) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("file too large to map: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            AsciiSequence chars = new AsciiSequence(mapped, 0, (int) size);
+            int count = 0;
+            int lineNumber = 0;
+            int lineStart = 0;
+            for (int i = 0; i < size; i++)
+            {
+                if (mapped.get(i) == '\n')
+                {
+                    lineNumber++;
+                    count += this.parseLine(chars, lineStart, i, lineNumber, sink);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < size)
+            {
+                count += this.parseLine(chars, lineStart, (int) size, lineNumber + 1, sink);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Parses one line (without its line break), unless it is blank
+     *
+     * @return 1 if an expression was parsed, 0 if the line was blank
+     */
+    private int parseLine(CharSequence chars, int start, int stop, int lineNumber, Consumer<Function> sink)
+    {
+        if (stop > start && chars.charAt(stop - 1) == '\r')
+        {
+            stop--;
+        }
+        int first = start;
+        while (first < stop && Character.isWhitespace(chars.charAt(first)))
+        {
+            first++;
+        }
+        if (first == stop)
+        {
+            return 0;
+        }
+        Function function;
+        try
+        {
+            function = this.parse(chars, start, stop, start);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+        }
+        sink.accept(function);
+        return 1;
+    }
+
+    /**
+     * expression = term (("+" | "-") term)*
+     */
+    private Expression expression()
+    {
+        Expression left = this.term();
+        while (true)
+        {
+            char next = this.peek();
+            Operator operator;
+            if (next == '+')
+            {
+                operator = Operator.ADD;
+            }
+            else if (next == '-')
+            {
+                operator = Operator.SUBTRACT;
+            }
+            else
+            {
+                return left;
+            }
+            position++;
+            left = Expression.binary(operator, left, this.term());
+        }
+    }
+
+    /**
+     * term = unary (("*" | "/") unary)*
+     */
+    private Expression term()
+    {
+        Expression left = this.unary();
+        while (true)
+        {
+            char next = this.peek();
+            Operator operator;
+            if (next == '*')
+            {
+                operator = Operator.MULTIPLY;
+            }
+            else if (next == '/')
+            {
+                operator = Operator.DIVIDE;
+            }
+            else
+            {
+                return left;
+            }
+            position++;
+            left = Expression.binary(operator, left, this.unary());
+        }
+    }
+
+    /**
+     * unary = "-" unary | postfix
+     */
+    private Expression unary()
+    {
+        if (this.peek() != '-')
+        {
+            return this.postfix();
+        }
+        position++;
+        Expression operand = this.unary();
+        if (operand.getKind() == Quantity.Kind.CONSTANT)
+        {
+            //a negative number
+            return Expression.constant(-operand.real(), operand.imag() == 0 ? operand.imag() : -operand.imag());
+        }
+        return Expression.binary(Operator.MULTIPLY, Expression.constant(-1, 0), operand);
+    }
+
+    /**
+     * postfix = primary ("^2" | ".sqrt()" | ".exp()" | ".ln()")*
+     */
+    private Expression postfix()
+    {
+        Expression operand = this.primary();
+        while (true)
+        {
+            char next = this.peek();
+            if (next == '^')
+            {
+                position++;
+                if (this.peek() != '2')
+                {
+                    throw this.error("only ^2 is supported");
+                }
+                position++;
+                if (position < end && Character.isDigit(text.charAt(position)))
+                {
+                    throw this.error("only ^2 is supported");
+                }
+                operand = Expression.unary(Operator.SQUARE, operand);
+            }
+            else if (next == '.')
+            {
+                position++;
+                this.skipSpaces();
+                Operator operator = this.functionName();
+                if (operator == null)
+                {
+                    throw this.error("expected sqrt, exp or ln");
+                }
+                this.expect('(');
+                this.expect(')');
+                operand = Expression.unary(operator, operand);
+            }
+            else
+            {
+                return operand;
+            }
+        }
+    }
+
+    /**
+     * primary = number ["i"] | name | function "(" expression ")" | "(" expression ")"
+     */
+    private Expression primary()
+    {
+        char next = this.peek();
+        if (next == '(')
+        {
+            position++;
+            Expression inner = this.expression();
+            this.expect(')');
+            return this.complexLiteral(inner);
+        }
+        if ((next >= '0' && next <= '9') || next == '.')
+        {
+            double value = this.number();
+            if (position < end && text.charAt(position) == 'i' && !this.isNameChar(position + 1))
+            {
+                position++;
+                imaginaryLiteral = Expression.constant(0, value);
+                return imaginaryLiteral;
+            }
+            return Expression.constant(value, 0);
+        }
+        if (isNameStart(next))
+        {
+            int start = position;
+            Operator operator = this.functionName();
+            if (operator != null && this.peek() == '(')
+            {
+                position++;
+                Expression argument = this.expression();
+                this.expect(')');
+                return Expression.unary(operator, argument);
+            }
+            position = start;
+            while (this.isNameChar(position))
+            {
+                position++;
+            }
+            if (this.matches(start, "NaN"))
+            {
+                return Expression.constant(Double.NaN, 0);
+            }
+            if (this.matches(start, "Infinity"))
+            {
+                return Expression.constant(Double.POSITIVE_INFINITY, 0);
+            }
+            return Expression.variable(this.name(start, position));
+        }
+        if (position >= end)
+        {
+            throw this.error("unexpected end of expression");
+        }
+        throw this.error("unexpected '" + next + "'");
+    }
+
+    /**
+     * Turns a parenthesized (a + bi) or (a - bi), where a is a real number and
+     * bi is an imaginary number literal, into the single constant it stands for
+     */
+    private Expression complexLiteral(Expression inner)
+    {
+        if (inner.getKind() != Quantity.Kind.BINARY_OPERATION)
+        {
+            return inner;
+        }
+        Operator operator = inner.getOperator();
+        if ((operator != Operator.ADD && operator != Operator.SUBTRACT) ||
+            inner.getLeft().getKind() != Quantity.Kind.CONSTANT ||
+            inner.getRight() != imaginaryLiteral)
+        {
+            return inner;
+        }
+        Expression real = inner.getLeft();
+        if (real.imag() != 0)
+        {
+            return inner;
+        }
+        return Expression.constant(real.real(),
+            operator == Operator.ADD ? imaginaryLiteral.imag() : -imaginaryLiteral.imag());
+    }
+
+    /**
+     * Reads sqrt, exp or ln if the text at the current position is one of
+     * them (as a whole name), without creating a String
+     *
+     * @return the operator, or null (with the position unchanged) if there is none
+     */
+    private Operator functionName()
+    {
+        int start = position;
+        int stop = start;
+        while (this.isNameChar(stop))
+        {
+            stop++;
+        }
+        Operator operator = null;
+        if (stop - start == 4 && this.matches(start, "sqrt"))
+        {
+            operator = Operator.SQRT;
+        }
+        else if (stop - start == 3 && this.matches(start, "exp"))
+        {
+            operator = Operator.EXP;
+        }
+        else if (stop - start == 2 && this.matches(start, "ln"))
+        {
+            operator = Operator.LN;
+        }
+        if (operator != null)
+        {
+            position = stop;
+        }
+        return operator;
+    }
+
+    /**
+     * Reads a number. When the digits fit in a double exactly and the power of
+     * ten is small, the value is computed directly, which gives the correctly
+     * rounded result; anything else goes to Double.parseDouble
+     */
+    private double number()
+    {
+        int start = position;
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean sawDigit = false;
+        while (position < end && Character.isDigit(text.charAt(position)))
+        {
+            int digit = text.charAt(position) - '0';
+            if (significantDigits < 18)
+            {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0)
+                {
+                    significantDigits++;
+                }
+            }
+            else
+            {
+                exponent++;
+                exact &= (digit == 0);
+            }
+            sawDigit = true;
+            position++;
+        }
+        if (position < end && text.charAt(position) == '.')
+        {
+            position++;
+            while (position < end && Character.isDigit(text.charAt(position)))
+            {
+                int digit = text.charAt(position) - '0';
+                if (significantDigits < 18)
+                {
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                    if (mantissa != 0)
+                    {
+                        significantDigits++;
+                    }
+                }
+                else
+                {
+                    exact &= (digit == 0);
+                }
+                sawDigit = true;
+                position++;
+            }
+        }
+        if (!sawDigit)
+        {
+            throw this.error("malformed number");
+        }
+        if (position < end && (text.charAt(position) == 'e' || text.charAt(position) == 'E'))
+        {
+            position++;
+            boolean negative = false;
+            if (position < end && (text.charAt(position) == '+' || text.charAt(position) == '-'))
+            {
+                negative = text.charAt(position) == '-';
+                position++;
+            }
+            if (position >= end || !Character.isDigit(text.charAt(position)))
+            {
+                throw this.error("malformed number");
+            }
+            int power = 0;
+            while (position < end && Character.isDigit(text.charAt(position)))
+            {
+                //past a few thousand the value is zero or infinite anyway
+                if (power < 100000)
+                {
+                    power = power * 10 + (text.charAt(position) - '0');
+                }
+                position++;
+            }
+            exponent += negative ? -power : power;
+        }
+        if (exact && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22)
+        {
+            return (exponent >= 0) ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        }
+        return Double.parseDouble(text.subSequence(start, position).toString());
+    }
+
+    /**
+     * Gets the String for a name, reusing the String from an earlier
+     * occurrence of the same name when there is one
+     */
+    private String name(int start, int stop)
+    {
+        int length = stop - start;
+        for (int n = 0; n < nameCount; n++)
+        {
+            String candidate = names[n];
+            if (candidate.length() == length && this.matches(start, candidate))
+            {
+                return candidate;
+            }
+        }
+        String name = text.subSequence(start, stop).toString();
+        names[nextName] = name;
+        nextName = (nextName + 1) % NAME_CACHE_SIZE;
+        nameCount = Math.min(nameCount + 1, NAME_CACHE_SIZE);
+        return name;
+    }
+
+    /**
+     * Tells whether the text at start begins with the given word (and the
+     * word is not just the start of a longer name)
+     */
+    private boolean matches(int start, String word)
+    {
+        int stop = start + word.length();
+        if (stop > end || this.isNameChar(stop))
+        {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++)
+        {
+            if (text.charAt(start + i) != word.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameStart(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private boolean isNameChar(int index)
+    {
+        if (index >= end)
+        {
+            return false;
+        }
+        char c = text.charAt(index);
+        return isNameStart(c) || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Skips spaces and returns the next character (or 0 at the end)
+     */
+    private char peek()
+    {
+        this.skipSpaces();
+        return (position < end) ? text.charAt(position) : 0;
+    }
+
+    private void skipSpaces()
+    {
+        while (position < end && Character.isWhitespace(text.charAt(position)))
+        {
+            position++;
+        }
+    }
+
+    private void expect(char expected)
+    {
+        if (this.peek() != expected)
+        {
+            throw this.error("expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String problem)
+    {
+        return new IllegalArgumentException(problem + " at position " + (position - lineStart));
+    }
+
+    /**
+     * Shows the bytes of an ASCII buffer as characters, without decoding them
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        AsciiSequence(ByteBuffer bytes, int offset, int length)
+        {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length()
+        {
+            return length;
+        }
+
+        public char charAt(int index)
+        {
+            return (char) (bytes.get(offset + index) & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int stop)
+        {
+            return new AsciiSequence(bytes, offset + start, stop - start);
+        }
+
+        public String toString()
+        {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+            {
+                chars[i] = this.charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
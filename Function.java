@@ -1,5 +1,9 @@
 package complexNumbers;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Holds the field topQuantity, which serves as the peak
  * of the function structure hierarchy. The structure looks something like this
@@ -28,14 +32,49 @@ package complexNumbers;
  * field "topQuantity," and each Quantity in the hierarchy references the Function
  * using the field "housingFunction".                
  * 
+ * A function can also be held as an immutable Expression instead of this
+ * structure. Functions made by parse, copy, diff and compose start out that
+ * way: copying one just shares its Expression, and substitute and
+ * fullySimplify build new Expressions that share the unchanged parts of the
+ * old one. The structure of Quantities is only built when something asks for
+ * it with getTopQuantity, and from then on the function works on that
+ * structure as before, until substitute or fullySimplify, which always work
+ * on an Expression, turn it back into one (a structure obtained earlier is
+ * then no longer part of the function). Everything except substitute,
+ * fullySimplify and getTopQuantity only reads the function, so one function
+ * can be used by many threads at once.
+ * 
  * @author Ken
  * @version 9/28/2019
  *
  */
 public class Function {
     
+    //exactly one of topQuantity and expression is set (see the class comment)
     private Quantity topQuantity;
+    private Expression expression;
     private boolean cleaned;
+    //counts changes to the function, so eval can tell when to compile again
+    private int version;
+    //the program run by eval, and the version it was compiled from
+    private volatile SharedProgram sharedProgram;
+    
+    /**
+     * A compiled program together with the version of the function it came
+     * from, so that eval can tell when the function has changed since it
+     * was compiled
+     */
+    private static final class SharedProgram {
+        
+        private final int version;
+        private final CompiledFunction program;
+        
+        SharedProgram(int version, CompiledFunction program)
+        {
+            this.version = version;
+            this.program = program;
+        }
+    }
     
     /**
      * Creates a function with the given topQuantity
@@ -50,12 +89,50 @@ public class Function {
     }
     
     /**
-     * Returns the value of the topQuantity field
+     * Creates a function held as an immutable Expression
+     * 
+     * @param expression the expression of the function
+     * @throws IllegalArgumentException if expression is null
+     */
+    public Function(Expression expression)
+    {
+        if (expression == null)
+        {
+            throw new IllegalArgumentException("a function needs an expression");
+        }
+        this.expression = expression;
+        cleaned = false;
+    }
+    
+    /**
+     * Creates a function from text, such as "sqrt(1 + x^2)" or anything
+     * toString produces (see ExpressionParser for the full grammar)
+     * 
+     * @param text the expression
+     * @return a new Function for the expression
+     * @throws IllegalArgumentException if text is not a valid expression
+     */
+    public static Function parse(CharSequence text)
+    {
+        return new ExpressionParser().parse(text);
+    }
+    
+    /**
+     * Returns the value of the topQuantity field. If the function is held
+     * as an Expression, the structure of Quantities is built first, and the
+     * function uses that structure from then on
      * 
      * @return the topQuanity field
      */
     public Quantity getTopQuantity()
     {
+        if (topQuantity == null)
+        {
+            topQuantity = expression.toQuantity();
+            topQuantity.updateFunction(this);
+            EngineMetrics.treeBuilt(expression.size());
+            expression = null;
+        }
         return topQuantity;
     }
     
@@ -67,6 +144,51 @@ public class Function {
     public void setTopQuantity(Quantity newTopQuantity)
     {
         this.topQuantity = newTopQuantity;
+        newTopQuantity.updateFunction(this);
+        this.expression = null;
+        this.changed();
+    }
+    
+    /**
+     * Notes that this function has changed, so the program used by eval is
+     * out of date. Called by setTopQuantity and setExpression, and by the
+     * operations in the structure of Quantities when one of their children
+     * is replaced
+     */
+    void changed()
+    {
+        version++;
+    }
+    
+    /**
+     * Gets this function as an immutable Expression. If the function is held
+     * as an Expression, that Expression is returned; otherwise one is built
+     * from the structure of Quantities, which is left alone
+     * 
+     * @return the expression of this function
+     */
+    public Expression toExpression()
+    {
+        return expression != null ? expression : Expression.of(topQuantity);
+    }
+    
+    /**
+     * Holds this function as an Expression from now on. A structure of
+     * Quantities it had before is no longer part of it
+     */
+    private void setExpression(Expression newExpression)
+    {
+        this.expression = newExpression;
+        this.topQuantity = null;
+        this.changed();
+    }
+    
+    /**
+     * Builds a new structure equal to this function's, which the caller may change
+     */
+    Quantity newTree()
+    {
+        return topQuantity != null ? topQuantity.copy() : expression.toQuantity();
     }
     
     /**
@@ -100,42 +222,19 @@ public class Function {
      */
     public String toString()
     {
-        return this.topQuantity.toString();
+        return topQuantity != null ? topQuantity.toString() : expression.toString();
     }
     
     /**
      * Attempts to evaluate the given UnaryOperation
      * (Does not work if operation is at the top of the hierarchy)
-     * 
-     * @throws UnsupportedOperationException
      */
     private void evaluateOp(UnaryOperation unOp)
     {
         //if child is a Complex object
-        if (("" + unOp.getChild().getClass()).equals("class complexNumbers.Complex"))
+        if (unOp.getChild().getKind() == Quantity.Kind.CONSTANT)
         {
-            Complex newComplex = null;
-            //uses the opType to figure out how to calculate newComplex
-            if (unOp.getType().equals("^2"))
-            {
-                newComplex = ((Complex) unOp.getChild()).square();
-            }
-            else if (unOp.getType().equals("sqrt"))
-            {
-                newComplex = ((Complex) unOp.getChild()).sqrt();
-            }
-            else if (unOp.getType().equals("exp"))
-            {
-                newComplex = ((Complex) unOp.getChild()).exp();
-            }
-            else if (unOp.getType().equals("ln"))
-            {
-                newComplex = ((Complex) unOp.getChild()).ln();
-            }
-            else
-            {
-                throw new UnsupportedOperationException();
-            }
+            Complex newComplex = unOp.getOperator().apply((Complex) unOp.getChild());
             //replaces itself in the structure with newComplex
             this.replace(unOp, newComplex);
         }
@@ -148,34 +247,12 @@ public class Function {
      */
     private void evaluateOp(BinaryOperation binOp)
     {
-        //used for testing class type
-        Complex testingComplex = new Complex();
         //if both children are Complex objects
-        if (binOp.getLeftChild().getClass() == testingComplex.getClass() &&
-            binOp.getRightChild().getClass() == testingComplex.getClass())
+        if (binOp.getLeftChild().getKind() == Quantity.Kind.CONSTANT &&
+            binOp.getRightChild().getKind() == Quantity.Kind.CONSTANT)
         {
-            Complex newComplex = null;
-            //uses the opType to figure out how to calculate newComplex
-            if (binOp.getType().equals("+"))
-            {
-                newComplex = ((Complex) binOp.getLeftChild()).add((Complex) binOp.getRightChild());
-            }
-            else if (binOp.getType().equals("-"))
-            {
-                newComplex = ((Complex) binOp.getLeftChild()).subtract((Complex) binOp.getRightChild());
-            }
-            else if (binOp.getType().equals("*"))
-            {
-                newComplex = ((Complex) binOp.getLeftChild()).multiply((Complex) binOp.getRightChild());
-            }
-            else if (binOp.getType().equals("/"))
-            {
-                newComplex = ((Complex) binOp.getLeftChild()).divide((Complex) binOp.getRightChild());
-            }
-            else
-            {
-                throw new UnsupportedOperationException();
-            }
+            Complex newComplex = binOp.getOperator().apply((Complex) binOp.getLeftChild(),
+                (Complex) binOp.getRightChild());
             //replaces itself in the structure with newComplex
             this.replace(binOp, newComplex);
         }
@@ -196,14 +273,14 @@ public class Function {
         Quantity parent = oldQuantity.getParent();
         if (parent == null)
         {
-            topQuantity = newQuantity;
+            this.setTopQuantity(newQuantity);
         }
-        else if (("" + parent.getClass()).equals("class complexNumbers.UnaryOperation")) //if the parent is a UnaryOperation:
+        else if (parent.getKind() == Quantity.Kind.UNARY_OPERATION) //if the parent is a UnaryOperation:
         {
             ((UnaryOperation) parent).setChild(newQuantity);           
         }
         //if the parent is a BinaryOperation and this is the leftChild:
-        else if (((BinaryOperation) parent).getLeftChild().equals(oldQuantity))
+        else if (((BinaryOperation) parent).getLeftChild() == oldQuantity)
         {
             ((BinaryOperation) parent).setLeftChild(newQuantity); 
         }
@@ -222,19 +299,16 @@ public class Function {
      */
     public void evaluate(Quantity quantity)
     {
-        //used for testing class type
-        BinaryOperation binOp = new BinaryOperation("+");
-        UnaryOperation unOp = new UnaryOperation("sqrt");
-        
-        //if quantity is a UnaryOperation
-        if (quantity.getClass() == unOp.getClass())
-        {
-            this.evaluateOp((UnaryOperation) quantity);
-        }
-        //if quantity is a BinaryOperation
-        else if (quantity.getClass() == binOp.getClass())
+        switch (quantity.getKind())
         {
-            this.evaluateOp((BinaryOperation) quantity);
+            case UNARY_OPERATION:
+                this.evaluateOp((UnaryOperation) quantity);
+                break;
+            case BINARY_OPERATION:
+                this.evaluateOp((BinaryOperation) quantity);
+                break;
+            default:
+                break;
         }
     }
     
@@ -245,7 +319,7 @@ public class Function {
      */
     public void fullySimplify()
     {
-        this.fullySimplify(topQuantity);
+        this.setExpression(this.toExpression().foldConstants());
     }
     
     /**
@@ -258,54 +332,15 @@ public class Function {
      */
     public void fullySimplify(Quantity quantity)
     {
-      //used for testing class type
-        BinaryOperation binOp = new BinaryOperation("+");
-        UnaryOperation unOp = new UnaryOperation("sqrt");
-        Complex num = new Complex();
-        
-        //if quantity is a UnaryOperation
-        if (quantity.getClass() == unOp.getClass())
+        //the constants are folded by Expression.foldConstants, and the part
+        //that changed is put back in place of quantity
+        Expression before = Expression.of(quantity);
+        Expression after = before.foldConstants();
+        if (after != before)
         {
-            Quantity child = ((UnaryOperation) quantity).getChild();
-            //if the child is a Complex
-            if (child.getClass() == num.getClass())
-            {
-                this.evaluate(quantity);
-            }
-            //if the child is a BinaryOperation or UnaryOperation
-            else if (child.getClass() == binOp.getClass() ||
-                (child.getClass() == unOp.getClass()))
-            {
-                this.fullySimplify(child);
-                this.evaluate(quantity);
-            }
-        }
-        //if quantity is a BinaryOperation
-        else if (quantity.getClass() == binOp.getClass())
-        {
-            Quantity leftChild = ((BinaryOperation) quantity).getLeftChild();
-            Quantity rightChild = ((BinaryOperation) quantity).getRightChild();
-            //if the leftChild is a BinaryOperation or UnaryOperation
-            if (leftChild.getClass() == binOp.getClass() ||
-                (leftChild.getClass() == unOp.getClass()))
-            {
-                this.fullySimplify(leftChild);
-            }
-            //if the rightChild is a BinaryOperation or UnaryOperation
-            if (rightChild.getClass() == binOp.getClass() ||
-                (rightChild.getClass() == unOp.getClass()))
-            {
-                this.fullySimplify(rightChild);
-            }
-            //calculate leftChild and rightChild again
-            leftChild = ((BinaryOperation) quantity).getLeftChild();
-            rightChild = ((BinaryOperation) quantity).getRightChild();
-            //if both children are Complex
-            if (leftChild.getClass() == num.getClass() &&
-                rightChild.getClass() == num.getClass())
-            {
-                this.evaluate(quantity);
-            }                
+            Quantity folded = after.toQuantity();
+            folded.updateFunction(this);
+            this.replace(quantity, folded);
         }
     }
     
@@ -318,7 +353,19 @@ public class Function {
      */
     public void substitute(String variableName, Quantity value)
     {
-        topQuantity.substitute(variableName, value);
+        this.substitute(variableName, Expression.of(value));
+    }
+    
+    /**
+     * Replaces every instance of a certain variable in the
+     * function with a given value
+     * 
+     * @param variableName the name of the variable to be replaced
+     * @param value the expression that this variable will be replaced with
+     */
+    public void substitute(String variableName, Expression value)
+    {
+        this.setExpression(this.toExpression().substitute(variableName, value));
         //substitution may create unsimplified expressions
         cleaned = false;
     }
@@ -333,14 +380,19 @@ public class Function {
      */
     public Complex subAndEval(String variableName1, Complex value1)
     {
+        FunctionEvaluateEvent event = new FunctionEvaluateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         Function copy = this.copy();
         copy.substitute(variableName1, value1);
         copy.fullySimplify();
-        //is the topQuantity a Complex?
-        Complex testComplex = new Complex();
-        if (copy.getTopQuantity().getClass() == testComplex.getClass())
+        this.commitEvaluate(event, startTime, "subAndEval", 1);
+        //is the result a Complex? (the copy is held as an Expression, so
+        //this does not build its structure)
+        Expression result = copy.toExpression();
+        if (result.getKind() == Quantity.Kind.CONSTANT)
         {
-            return (Complex) copy.getTopQuantity();
+            return result.getValue();
         }
         else
         {
@@ -358,15 +410,20 @@ public class Function {
      */
     public Complex subAndEval(String variableName1, Complex value1, String variableName2, Complex value2)
     {
+        FunctionEvaluateEvent event = new FunctionEvaluateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         Function copy = this.copy();
         copy.substitute(variableName1, value1);
         copy.substitute(variableName2, value2);
         copy.fullySimplify();
-        //is the topQuantity a Complex?
-        Complex testComplex = new Complex();
-        if (copy.getTopQuantity().getClass() == testComplex.getClass())
+        this.commitEvaluate(event, startTime, "subAndEval", 1);
+        //is the result a Complex? (the copy is held as an Expression, so
+        //this does not build its structure)
+        Expression result = copy.toExpression();
+        if (result.getKind() == Quantity.Kind.CONSTANT)
         {
-            return (Complex) copy.getTopQuantity();
+            return result.getValue();
         }
         else
         {
@@ -375,20 +432,224 @@ public class Function {
     }
     
     /**
-     * Creates a copy of this function
+     * Substitutes any number of values and evaluates the function. Instead of
+     * copying the tree and walking it once per variable, the function is
+     * compiled once (which resolves every variable to a slot) and then
+     * evaluated in a single pass
+     * 
+     * @param values the values of the variables, by name (names that do not
+     * appear in the function are ignored)
+     * @return If every variable of the function has a value, return the value
+     * of the function. Otherwise, return null
+     */
+    public Complex subAndEval(Map<String, Complex> values)
+    {
+        FunctionEvaluateEvent event = new FunctionEvaluateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        VariableBinding binding = this.bind().setAll(values);
+        Complex value = binding.isComplete() ? binding.evaluate() : null;
+        this.commitEvaluate(event, startTime, "subAndEval", 1);
+        return value;
+    }
+
+    /**
+     * Records the time an evaluation took, and its event if the recording wants it
+     */
+    private void commitEvaluate(FunctionEvaluateEvent event, long startTime, String method, int sampleCount)
+    {
+        EngineMetrics.evaluated(startTime, "subAndEval".equals(method));
+        if (event.shouldCommit())
+        {
+            event.describe(this.toExpression());
+            event.method = method;
+            event.sampleCount = sampleCount;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Prepares this function for repeated evaluation with many variables.
+     * Set the values on the returned binding and call its evaluate method
+     * 
+     * @return a binding for this function with no values set yet
+     */
+    public VariableBinding bind()
+    {
+        return new VariableBinding(this.compile());
+    }
+    
+    /**
+     * Creates a copy of this function. The copy is held as an Expression:
+     * if this function is too, the two share it, so copying takes constant
+     * time; otherwise the Expression is built from this function's structure
      * 
      * @return a copy of this function
      */
     public Function copy()
     {
-        Quantity newTopQuantity = this.getTopQuantity().copy();
-        Function newFunction = new Function(newTopQuantity);
+        TreeCopyEvent event = new TreeCopyEvent();
+        event.begin();
+        EngineMetrics.treeCopied();
+        Function newFunction = new Function(this.toExpression());
+        if (event.shouldCommit())
+        {
+            event.describe(this.toExpression());
+            event.commit();
+        }
         return newFunction;
     }
+
+    /**
+     * Evaluates a function of (at most) one variable at the given point,
+     * without changing or copying the function. The result is read back
+     * with the context's resultReal() and resultImag().
+     * 
+     * Any number of threads can evaluate the same function at once, each
+     * with its own context, as long as none of them changes it. The function
+     * is compiled the first time and the program is shared until the
+     * function changes (through substitute, fullySimplify, setTopQuantity or
+     * replacing a child of one of its operations), so this does not lock or
+     * allocate
+     * 
+     * @param context the registers to use (not shared with another thread)
+     * @param real the real part of the value of the variable
+     * @param imag the imaginary part of the value of the variable
+     * @throws IllegalStateException if the function has more than one variable
+     */
+    public void eval(EvaluationContext context, double real, double imag)
+    {
+        this.sharedProgram().eval(context, real, imag);
+    }
     
+    /**
+     * Evaluates this function with values given by variable name, without
+     * changing or copying the function (see eval(EvaluationContext, double, double)).
+     * The result is read back with the context's resultReal() and resultImag()
+     * 
+     * @param context the registers to use (not shared with another thread)
+     * @param variableNames the names of the variables
+     * @param real the real parts of the variables, in the same order as variableNames
+     * @param imag the imaginary parts of the variables, in the same order as variableNames
+     * @throws IllegalArgumentException if a variable of the function is not named
+     */
+    public void eval(EvaluationContext context, String[] variableNames, double[] real, double[] imag)
+    {
+        this.sharedProgram().eval(context, variableNames, real, imag);
+    }
+    
+    /**
+     * Gets the program run by eval, compiling it if the function has
+     * changed since the last time. Two threads may both compile it, in
+     * which case either program is kept; they are the same
+     */
+    private CompiledFunction sharedProgram()
+    {
+        SharedProgram shared = sharedProgram;
+        if (shared == null || shared.version != version)
+        {
+            shared = new SharedProgram(version, CompiledFunction.compile(this.toExpression()));
+            sharedProgram = shared;
+        }
+        return shared.program;
+    }
+    
+    /**
+     * Lowers this function into a flat postfix program that can be evaluated
+     * repeatedly without copying the tree or allocating any Complex objects.
+     * The function itself is not modified.
+     *
+     * @return the compiled version of this function
+     */
+    public CompiledFunction compile()
+    {
+        return CompiledFunction.compile(this.toExpression());
+    }
+
+    /**
+     * Lowers this function into a postfix program and, if generateBytecode is
+     * true, also generates a class at runtime that evaluates the program as
+     * straight-line code. If the class cannot be generated, the returned
+     * program is interpreted just like one from compile()
+     *
+     * @param generateBytecode whether to try to generate a class for the program
+     * @return the compiled version of this function
+     */
+    public CompiledFunction compile(boolean generateBytecode)
+    {
+        if (generateBytecode)
+        {
+            return CompiledFunction.compileToBytecode(this.toExpression());
+        }
+        return CompiledFunction.compile(this.toExpression());
+    }
+
+    /**
+     * Evaluates this function at many values of one variable. The tree is
+     * walked once for the whole batch, and each operation runs as a loop
+     * over primitive arrays. The function itself is not modified.
+     *
+     * @param variableName the name of the variable being substituted
+     * @param real the real parts of the values of the variable
+     * @param imag the imaginary parts of the values of the variable
+     * @param outReal receives the real parts of the results
+     * @param outImag receives the imaginary parts of the results
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public void evalBatch(String variableName, double[] real, double[] imag,
+        double[] outReal, double[] outImag)
+    {
+        this.evalBatch(new String[] {variableName}, new double[][] {real},
+            new double[][] {imag}, outReal, outImag);
+    }
+
+    /**
+     * Evaluates this function at many values of several variables. The tree
+     * is walked once for the whole batch, and each operation runs as a loop
+     * over primitive arrays. The function itself is not modified.
+     *
+     * @param variableNames the names of the variables being substituted
+     * @param real the real parts of the values, indexed like variableNames and then by point
+     * @param imag the imaginary parts of the values, indexed like variableNames and then by point
+     * @param outReal receives the real parts of the results
+     * @param outImag receives the imaginary parts of the results
+     * @throws IllegalArgumentException if the function contains a variable not in variableNames
+     */
+    public void evalBatch(String[] variableNames, double[][] real, double[][] imag,
+        double[] outReal, double[] outImag)
+    {
+        FunctionEvaluateEvent event = new FunctionEvaluateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        CompiledFunction compiled = this.compile();
+        //line the inputs up with the slots of the compiled program
+        double[][] slotReal = new double[compiled.getVariableCount()][];
+        double[][] slotImag = new double[compiled.getVariableCount()][];
+        for (int i = 0; i < variableNames.length; i++)
+        {
+            int slot = compiled.slotOf(variableNames[i]);
+            if (slot != -1)
+            {
+                slotReal[slot] = real[i];
+                slotImag[slot] = imag[i];
+            }
+        }
+        for (int slot = 0; slot < slotReal.length; slot++)
+        {
+            if (slotReal[slot] == null)
+            {
+                throw new IllegalArgumentException();
+            }
+        }
+        compiled.evalBatch(slotReal, slotImag, outReal, outImag);
+        this.commitEvaluate(event, startTime, "evalBatch", outReal.length);
+    }
+
     /**
      * Approximates the derivative of this function with respect to a given
-     * variable at a given location
+     * variable at a given location with a finite difference (the step is
+     * 1/precision). approxDeriv(String, Complex) gives the exact derivative
+     * and is usually the better choice
      * 
      * @param variableName the variable with respect to which the function will be differentiated
      * @param location the location at which the derivative is being calculated 
@@ -406,18 +667,24 @@ public class Function {
     }
     
     /**
-     * Approximates the derivative of this function with respect to a given
-     * variable at a given location. Default precision is 1000000
+     * Finds the derivative of this function with respect to a given
+     * variable at a given location. Rather than taking a finite difference,
+     * this evaluates the function once while carrying derivatives along
+     * (forward-mode automatic differentiation), so the result is exact up
+     * to rounding and the tree is neither copied nor modified.
      * 
      * @param variableName the variable with respect to which the function will be differentiated
      * @param location the location at which the derivative is being calculated 
      * (for example, if variableName == "x" and location == 2, the derivative is taken at x == 2)
      * 
-     * @return Complex an approximation of the derivative at the given point
+     * @return Complex the derivative at the given point
+     * @throws IllegalArgumentException if the function contains any other variable
      */
     public Complex approxDeriv(String variableName, Complex location)
     {
-        return this.approxDeriv(variableName, location, 1000000);
+        CompiledFunction compiled = this.compileFor(variableName);
+        compiled.evalWithDerivative(location.real(), location.imag());
+        return new Complex(compiled.derivativeReal(), compiled.derivativeImag());
     }
     
     /**
@@ -433,14 +700,19 @@ public class Function {
      */
     public Complex approxIntegral(String variableName, Complex start, Complex end, int precision)
     {
+        FunctionIntegrateEvent event = new FunctionIntegrateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         Complex dx = (end.subtract(start)).divide(new Complex(precision, 0));
-        Complex total = new Complex();
+        MutableComplex total = new MutableComplex();
         //this program essentially finds the Riemann sum over this interval
         for (int i = 0; i < precision; i++)
         {
-            total = total.add(this.subAndEval(variableName, start.add(dx)));
+            Complex point = new Complex(start.real() + dx.real() * i, start.imag() + dx.imag() * i);
+            total.addInPlace(this.subAndEval(variableName, point));
         }
-        return total.multiply(dx);      
+        this.commitIntegrate(event, startTime, "approxIntegral", precision, true);
+        return total.mulInPlace(dx).toComplex();      
     }
     
     /**
@@ -455,21 +727,273 @@ public class Function {
      */
     public Complex approxIntegral(String variableName, Complex start, Complex end)
     {
+        FunctionIntegrateEvent event = new FunctionIntegrateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         int defaultPrecision = 1000000;
         Complex dx = (end.subtract(start)).divide(new Complex(defaultPrecision, 0));
-        Complex total = new Complex();
+        MutableComplex total = new MutableComplex();
         //this program essentially finds the Riemann sum over this interval
         for (int i = 0; i < defaultPrecision; i++)
         {
-            total = total.add(this.subAndEval(variableName, start.add(dx.multiply(new Complex(i, 0)))));
+            Complex point = new Complex(start.real() + dx.real() * i, start.imag() + dx.imag() * i);
+            total.addInPlace(this.subAndEval(variableName, point));
         }
-        return total.multiply(dx);      
+        this.commitIntegrate(event, startTime, "approxIntegral", defaultPrecision, true);
+        return total.mulInPlace(dx).toComplex();
+    }
+
+    /**
+     * Integrates this function with respect to a given variable along the
+     * straight segment between two given bounds, using adaptive Gauss-Kronrod
+     * quadrature. Intervals are cut in half where the integrand needs it until
+     * the estimated error is within the tolerance, so smooth functions need
+     * only a few hundred evaluations.
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     * @param absoluteTolerance the acceptable absolute error
+     * @param relativeTolerance the acceptable error relative to the magnitude of the result
+     * @param maxEvaluations the most times the function may be evaluated
+     *
+     * @return the value of the integral, its estimated error, and the number of evaluations used
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public IntegrationResult integrate(String variableName, Complex start, Complex end,
+        double absoluteTolerance, double relativeTolerance, int maxEvaluations)
+    {
+        FunctionIntegrateEvent event = new FunctionIntegrateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        CompiledFunction compiled = this.compileFor(variableName);
+        IntegrationResult result = new GaussKronrod(compiled, absoluteTolerance, relativeTolerance,
+            maxEvaluations).integrate(start, end);
+        this.commitIntegrate(event, startTime, "integrate", result.getEvaluations(), result.isConverged());
+        return result;
+    }
+
+    /**
+     * Integrates this function with respect to a given variable along the
+     * straight segment between two given bounds, using adaptive Gauss-Kronrod
+     * quadrature. Default tolerance is 1e-10 (absolute or relative) and at
+     * most 100000 evaluations are made
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     *
+     * @return the value of the integral, its estimated error, and the number of evaluations used
+     */
+    public IntegrationResult integrate(String variableName, Complex start, Complex end)
+    {
+        return this.integrate(variableName, start, end, 1e-10, 1e-10, 100000);
+    }
+
+    /**
+     * Integrates this function with respect to a given variable along a
+     * contour. Each smooth piece of the contour is integrated with adaptive
+     * Gauss-Kronrod quadrature, with the pieces running in parallel, and
+     * the results are added up in the order of the pieces.
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param contour the path of integration
+     * @param tolerance the acceptable error (absolute, split evenly over the pieces, or relative)
+     * @param maxEvaluations the most times the function may be evaluated (split evenly over the pieces)
+     *
+     * @return the value of the integral, its estimated error, and the number of evaluations used
+     * @throws IllegalArgumentException if the function contains any other variable, or if
+     * maxEvaluations leaves fewer than 15 evaluations for a piece
+     */
+    public IntegrationResult contourIntegral(String variableName, Contour contour,
+        double tolerance, int maxEvaluations)
+    {
+        FunctionIntegrateEvent event = new FunctionIntegrateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        final CompiledFunction compiled = this.compileFor(variableName);
+        List<Contour> pieces = contour.pieces();
+        final double pieceTolerance = tolerance / pieces.size();
+        final int budget = maxEvaluations / pieces.size();
+        final double relativeTolerance = tolerance;
+        //each piece gets its own copy of the compiled function, since the copies hold registers
+        List<IntegrationResult> results = pieces.parallelStream()
+            .map(piece -> new GaussKronrod(compiled.copy(), pieceTolerance, relativeTolerance, budget)
+                .integrate(piece))
+            .collect(Collectors.toList());
+        MutableComplex total = new MutableComplex();
+        double error = 0;
+        int evaluations = 0;
+        boolean converged = true;
+        for (IntegrationResult result : results)
+        {
+            total.addInPlace(result.getValue());
+            error += result.getErrorEstimate();
+            evaluations += result.getEvaluations();
+            converged = converged && result.isConverged();
+        }
+        this.commitIntegrate(event, startTime, "contourIntegral", evaluations, converged);
+        return new IntegrationResult(total.toComplex(), error, evaluations, converged);
+    }
+
+    /**
+     * Records the time and samples an integration took, and its event if the recording wants it
+     */
+    private void commitIntegrate(FunctionIntegrateEvent event, long startTime, String method, int sampleCount,
+        boolean converged)
+    {
+        EngineMetrics.integrated(startTime, sampleCount);
+        if (event.shouldCommit())
+        {
+            event.describe(this.toExpression());
+            event.method = method;
+            event.sampleCount = sampleCount;
+            event.converged = converged;
+            event.commit();
+        }
+    }
+
+    /**
+     * Integrates this function with respect to a given variable along a
+     * contour. At most 100000 evaluations are made in all
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param contour the path of integration
+     * @param tolerance the acceptable error (absolute, split evenly over the pieces, or relative)
+     *
+     * @return the value of the integral, its estimated error, and the number of evaluations used
+     */
+    public IntegrationResult contourIntegral(String variableName, Contour contour, double tolerance)
+    {
+        return this.contourIntegral(variableName, contour, tolerance, 100000);
+    }
+
+    /**
+     * Compiles this function and makes sure the given variable is the only one in it
+     *
+     * @param variableName the only variable the function may contain
+     * @return the compiled function
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    CompiledFunction compileFor(String variableName)
+    {
+        CompiledFunction compiled = this.compile();
+        if (compiled.getVariableCount() > 1 ||
+            (compiled.getVariableCount() == 1 && compiled.slotOf(variableName) != 0))
+        {
+            throw new IllegalArgumentException();
+        }
+        return compiled;
+    }
+
+    /**
+     * Approximates the integral of this function with respect to a given
+     * variable between two given bounds, using the same Riemann sum as
+     * approxIntegral but evaluating the samples on several threads. The
+     * result does not depend on the number of threads.
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     * @param precision the number of samples. Higher precision = more accurate
+     * @param parallelism the number of threads that will evaluate samples
+     *
+     * @return Complex an approximation of the integral
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public Complex approxIntegralParallel(String variableName, Complex start, Complex end,
+        int precision, int parallelism)
+    {
+        FunctionIntegrateEvent event = new FunctionIntegrateEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        CompiledFunction compiled = this.compileFor(variableName);
+        Complex value = new ParallelIntegrator(compiled, start, end, precision).integrate(parallelism);
+        this.commitIntegrate(event, startTime, "approxIntegralParallel", precision, true);
+        return value;
+    }
+
+    /**
+     * Approximates the integral of this function with respect to a given
+     * variable between two given bounds on every available processor.
+     * Default precision is 1000000
+     *
+     * @param variableName the variable with respect to which the function will be integrated
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     *
+     * @return Complex an approximation of the integral
+     */
+    public Complex approxIntegralParallel(String variableName, Complex start, Complex end)
+    {
+        return this.approxIntegralParallel(variableName, start, end, 1000000,
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Finds the zeros of this function inside a rectangle of the complex
+     * plane, using Newton's method from a grid of seeds, or the
+     * Aberth-Ehrlich method if the function is a polynomial (see RootFinder)
+     *
+     * @param variableName the variable of the function
+     * @param lowerLeft the corner with the smallest real and imaginary parts
+     * @param upperRight the corner with the largest real and imaginary parts
+     *
+     * @return the distinct zeros found, sorted by real part and then imaginary part
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public List<Complex> findRoots(String variableName, Complex lowerLeft, Complex upperRight)
+    {
+        return new RootFinder(this, variableName).findRoots(lowerLeft, upperRight);
+    }
+
+    /**
+     * Prepares the evaluation of this function at every point of a grid
+     * covering a rectangle of the complex plane. The grid is evaluated in
+     * tiles on a fork/join pool when evaluate is called on the result, which
+     * can also be given a tile size, a progress listener and a number of
+     * threads, and can be cancelled. The function itself is not modified.
+     *
+     * @param variableName the variable that takes the value of each grid point
+     * @param lowerLeft the corner with the smallest real and imaginary parts
+     * @param upperRight the corner with the largest real and imaginary parts
+     * @param width the number of columns
+     * @param height the number of rows
+     *
+     * @return the evaluation, ready to run
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public GridEvaluation evalGrid(String variableName, Complex lowerLeft, Complex upperRight,
+        int width, int height)
+    {
+        return new GridEvaluation(this.compileFor(variableName), lowerLeft, upperRight, width, height);
     }
 
-    
     /**
-     * Creates a copy of this function, differentiates the copy,
-     * and returns that copy
+     * Evaluates this function at every point of a grid covering a rectangle
+     * of the complex plane, on the common fork/join pool. Row 0 is the top
+     * of the rectangle, and the point in column c and row r is stored at
+     * index r * width + c
+     *
+     * @param variableName the variable that takes the value of each grid point
+     * @param lowerLeft the corner with the smallest real and imaginary parts
+     * @param upperRight the corner with the largest real and imaginary parts
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param outReal receives the real parts of the results
+     * @param outImag receives the imaginary parts of the results
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public void evalGrid(String variableName, Complex lowerLeft, Complex upperRight,
+        int width, int height, double[] outReal, double[] outImag)
+    {
+        this.evalGrid(variableName, lowerLeft, upperRight, width, height).evaluate(outReal, outImag);
+    }
+
+
+    /**
+     * Creates the derivative of this function, which is simplified
+     * as it is built (see Expression.derivative), and returns it
      * 
      * @param variableName the name of the variable with respect
      * to which this function will be differentiated
@@ -478,12 +1002,23 @@ public class Function {
      */
     public Function diff(String variableName)
     {
-        Function copy = this.copy();
-        copy.getTopQuantity().diff(variableName);
+        FunctionDiffEvent event = new FunctionDiffEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        //the derivative is built as a new expression, which shares the parts
+        //of this function's expression it uses, so nothing is copied first
+        Function derivative = new Function(this.toExpression().derivative(variableName));
         //differentiation may create unsimplified expressions
-        cleaned = false;
-        return copy;
-        
+        derivative.setCleaned(false);
+        EngineMetrics.differentiated(startTime);
+        if (event.shouldCommit())
+        {
+            event.describe(this.toExpression());
+            event.variable = variableName;
+            event.resultNodeCount = derivative.toExpression().size();
+            event.commit();
+        }
+        return derivative;
     }
     
     /**
@@ -498,33 +1033,22 @@ public class Function {
      */
     public Function compose(String variableName, Function function2)
     {
+        //the copy is held as an Expression, which function2's is shared into
         Function copy = this.copy();
-        copy.substitute(variableName, function2.getTopQuantity());
-        //update all housingFunction fields of every quantity in copy
-        copy.getTopQuantity().updateFunction(copy);
+        copy.substitute(variableName, function2.toExpression());
         //composition may create unsimplified expressions
-        cleaned = false;
+        copy.setCleaned(false);
         return copy;
     }
     
     /**
      * Creates a copy of this function, removes any unnecessarily complicated
-     * expressions from the copy (such as 1 * (0 + x)), and returns the copy
+     * expressions from the copy (such as 1 * (0 + x)), and returns the copy.
+     * The rules in StandardRule are applied from the bottom of the tree up
+     * until none of them applies anywhere, so one call is always enough
      */
     public Function cleanUp()
     {
-        //create a copy of this function
-        Quantity newTopQuantity = this.getTopQuantity().copy();
-        Function newFunction = new Function(newTopQuantity);
-        //this method will continue to run until no unsimplified expressions are
-        //detected
-        if (!newFunction.getCleaned())
-        {
-            //assume that unsimplified expressions are absent until one is found
-            cleaned = true;
-            newFunction = newTopQuantity.cleanUp();
-            //update topQuantity
-        }
-        return newFunction;
+        return Simplifier.standard().simplify(this);
     }
 }
@@ -0,0 +1,501 @@
+package complexNumbers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary file of Functions, read lazily.
+ *
+ * The format (version 1, all numbers big-endian) is:
+ *
+ *     int    magic (0x43584641, "CXFA")
+ *     short  version
+ *     short  flags (0)
+ *     int    number of variable names
+ *            each name: unsigned short length, then that many bytes of UTF-8
+ *     int    number of functions
+ *     int[]  offset of each function in the data section, plus the end of the data
+ *     byte[] data: each function as a preorder stream of tags
+ *
+ * Each node is a tag byte followed by its operands: TAG_REAL and a double,
+ * TAG_COMPLEX and two doubles, TAG_VARIABLE and the index of the name in
+ * the name table (as an unsigned LEB128 varint), or the tag of an operator
+ * followed by its operands' nodes. Names are stored once for the whole
+ * archive, however many times they are used.
+ *
+ * An archive is opened over a ByteBuffer (open maps the file into memory).
+ * Only the header and the name table are read at that point; get decodes
+ * one function straight from the buffer when it is asked for, without
+ * building any Strings. Reads use absolute positions, so an open archive
+ * can be shared by several threads.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class FunctionArchive {
+
+    /**
+     * The first four bytes of every archive
+     */
+    public static final int MAGIC = 0x43584641;
+
+    /**
+     * The version of the format written by this class
+     */
+    public static final int VERSION = 1;
+
+    //node tags (part of the format, so they must never change)
+    static final byte TAG_REAL = 0;
+    static final byte TAG_COMPLEX = 1;
+    static final byte TAG_VARIABLE = 2;
+    static final byte TAG_SQUARE = 3;
+    static final byte TAG_SQRT = 4;
+    static final byte TAG_EXP = 5;
+    static final byte TAG_LN = 6;
+    static final byte TAG_ADD = 7;
+    static final byte TAG_SUBTRACT = 8;
+    static final byte TAG_MULTIPLY = 9;
+    static final byte TAG_DIVIDE = 10;
+
+    private final ByteBuffer buffer;
+    private final String[] names;
+    private final int count;
+    //absolute positions of the offset index and of the data section
+    private final int indexStart;
+    private final int dataStart;
+
+    /**
+     * Reads the header and name table of an archive
+     */
+    private FunctionArchive(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        try
+        {
+            int position = 0;
+            if (buffer.getInt(position) != MAGIC)
+            {
+                throw new IllegalArgumentException("not a function archive");
+            }
+            int version = buffer.getShort(position + 4);
+            if (version < 1 || version > VERSION)
+            {
+                throw new IllegalArgumentException("unsupported archive version " + version);
+            }
+            position += 8;
+            int nameCount = buffer.getInt(position);
+            position += 4;
+            if (nameCount < 0)
+            {
+                throw new IllegalArgumentException("corrupt name table");
+            }
+            this.names = new String[nameCount];
+            for (int n = 0; n < nameCount; n++)
+            {
+                int length = buffer.getShort(position) & 0xffff;
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++)
+                {
+                    bytes[i] = buffer.get(position + 2 + i);
+                }
+                names[n] = new String(bytes, StandardCharsets.UTF_8);
+                position += 2 + length;
+            }
+            this.count = buffer.getInt(position);
+            if (count < 0)
+            {
+                throw new IllegalArgumentException("corrupt function index");
+            }
+            this.indexStart = position + 4;
+            this.dataStart = indexStart + 4 * (count + 1);
+            if (dataStart < 0 || dataStart > buffer.limit() ||
+                dataStart + (long) buffer.getInt(indexStart + 4 * count) > buffer.limit())
+            {
+                throw new IllegalArgumentException("truncated archive");
+            }
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            throw new IllegalArgumentException("truncated archive", e);
+        }
+    }
+
+    /**
+     * Opens an archive held in a buffer. The buffer's contents must not
+     * change while the archive is in use
+     *
+     * @param buffer the archive, starting at index 0 of the buffer
+     * @return the archive
+     * @throws IllegalArgumentException if the buffer does not hold a valid archive
+     */
+    public static FunctionArchive wrap(ByteBuffer buffer)
+    {
+        return new FunctionArchive(buffer.duplicate());
+    }
+
+    /**
+     * Opens an archive file by mapping it into memory. Functions are only
+     * decoded when get is called
+     *
+     * @param path the archive file
+     * @return the archive
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the file is not a valid archive
+     */
+    public static FunctionArchive open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("file too large to map: " + path);
+            }
+            return new FunctionArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Gets the number of functions in the archive
+     *
+     * @return the number of functions
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Decodes one function. Like a parsed function, it is held as an
+     * Expression until something changes it
+     *
+     * @param index the position of the function in the archive
+     * @return a new Function
+     * @throws IndexOutOfBoundsException if there is no function at index
+     * @throws IllegalArgumentException if the function's data is corrupt
+     */
+    public Function get(int index)
+    {
+        if (index < 0 || index >= count)
+        {
+            throw new IndexOutOfBoundsException("function " + index + " of " + count);
+        }
+        int start = dataStart + buffer.getInt(indexStart + 4 * index);
+        int stop = dataStart + buffer.getInt(indexStart + 4 * (index + 1));
+        Decoder decoder = new Decoder(start, stop);
+        try
+        {
+            Expression top = decoder.read();
+            if (decoder.position != stop)
+            {
+                throw new IllegalArgumentException("corrupt function " + index);
+            }
+            return new Function(top);
+        }
+        catch (IndexOutOfBoundsException | BufferUnderflowException e)
+        {
+            throw new IllegalArgumentException("corrupt function " + index, e);
+        }
+    }
+
+    /**
+     * Reads the nodes of one function, keeping its own position
+     */
+    private class Decoder {
+
+        int position;
+        final int stop;
+
+        Decoder(int start, int stop)
+        {
+            this.position = start;
+            this.stop = stop;
+        }
+
+        Expression read()
+        {
+            if (position >= stop)
+            {
+                throw new IllegalArgumentException("truncated function");
+            }
+            byte tag = buffer.get(position++);
+            switch (tag)
+            {
+                case TAG_REAL:
+                {
+                    double real = buffer.getDouble(position);
+                    position += 8;
+                    return Expression.constant(real, 0);
+                }
+                case TAG_COMPLEX:
+                {
+                    double real = buffer.getDouble(position);
+                    double imag = buffer.getDouble(position + 8);
+                    position += 16;
+                    return Expression.constant(real, imag);
+                }
+                case TAG_VARIABLE:
+                {
+                    int name = this.readVarint();
+                    if (name >= names.length)
+                    {
+                        throw new IllegalArgumentException("unknown name " + name);
+                    }
+                    return Expression.variable(names[name]);
+                }
+                case TAG_SQUARE:
+                case TAG_SQRT:
+                case TAG_EXP:
+                case TAG_LN:
+                    return Expression.unary(operatorOf(tag), this.read());
+                case TAG_ADD:
+                case TAG_SUBTRACT:
+                case TAG_MULTIPLY:
+                case TAG_DIVIDE:
+                {
+                    Expression left = this.read();
+                    return Expression.binary(operatorOf(tag), left, this.read());
+                }
+                default:
+                    throw new IllegalArgumentException("unknown tag " + tag);
+            }
+        }
+
+        int readVarint()
+        {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7)
+            {
+                byte b = buffer.get(position++);
+                value |= (b & 0x7f) << shift;
+                if (b >= 0)
+                {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+    }
+
+    /**
+     * Writes functions as an archive
+     *
+     * @param functions the functions, in the order get will return them
+     * @param out where the archive is written (not closed)
+     * @throws IOException if out fails
+     */
+    public static void write(List<Function> functions, OutputStream out) throws IOException
+    {
+        //every name used by any function, in order of first use
+        LinkedHashMap<String, Integer> names = new LinkedHashMap<String, Integer>();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        int[] offsets = new int[functions.size() + 1];
+        for (int i = 0; i < functions.size(); i++)
+        {
+            offsets[i] = dataOut.size();
+            writeNode(functions.get(i).toExpression(), dataOut, names);
+        }
+        offsets[functions.size()] = dataOut.size();
+        dataOut.flush();
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeShort(0);
+        header.writeInt(names.size());
+        for (String name : names.keySet())
+        {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xffff)
+            {
+                throw new IllegalArgumentException("variable name too long");
+            }
+            header.writeShort(bytes.length);
+            header.write(bytes);
+        }
+        header.writeInt(functions.size());
+        for (int offset : offsets)
+        {
+            header.writeInt(offset);
+        }
+        data.writeTo(header);
+        header.flush();
+    }
+
+    /**
+     * Writes functions as an archive file
+     *
+     * @param functions the functions, in the order get will return them
+     * @param path the file to write (replaced if it exists)
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Function> functions, Path path) throws IOException
+    {
+        try (OutputStream out = Files.newOutputStream(path))
+        {
+            write(functions, out);
+        }
+    }
+
+    /**
+     * Encodes a single function as an archive of one function
+     *
+     * @param function the function to encode
+     * @return the archive
+     */
+    public static byte[] toBytes(Function function)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            write(Collections.singletonList(function), out);
+        }
+        catch (IOException e)
+        {
+            //a ByteArrayOutputStream never fails
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a function written by toBytes
+     *
+     * @param bytes an archive of one function
+     * @return a new Function
+     * @throws IllegalArgumentException if bytes does not hold a valid archive
+     */
+    public static Function fromBytes(byte[] bytes)
+    {
+        FunctionArchive archive = wrap(ByteBuffer.wrap(bytes));
+        if (archive.size() != 1)
+        {
+            throw new IllegalArgumentException("expected one function, found " + archive.size());
+        }
+        return archive.get(0);
+    }
+
+    /**
+     * Writes an expression and everything below it in preorder
+     */
+    private static void writeNode(Expression expression, DataOutputStream out,
+        Map<String, Integer> names) throws IOException
+    {
+        switch (expression.getKind())
+        {
+            case CONSTANT:
+                //only a positive zero imaginary part can be left out and restored exactly
+                if (Double.doubleToRawLongBits(expression.imag()) == 0L)
+                {
+                    out.writeByte(TAG_REAL);
+                    out.writeDouble(expression.real());
+                }
+                else
+                {
+                    out.writeByte(TAG_COMPLEX);
+                    out.writeDouble(expression.real());
+                    out.writeDouble(expression.imag());
+                }
+                break;
+            case VARIABLE:
+            {
+                String name = expression.getName();
+                Integer index = names.get(name);
+                if (index == null)
+                {
+                    index = names.size();
+                    names.put(name, index);
+                }
+                out.writeByte(TAG_VARIABLE);
+                writeVarint(index, out);
+                break;
+            }
+            case UNARY_OPERATION:
+                out.writeByte(tagOf(expression.getOperator()));
+                writeNode(expression.getLeft(), out, names);
+                break;
+            default:
+                out.writeByte(tagOf(expression.getOperator()));
+                writeNode(expression.getLeft(), out, names);
+                writeNode(expression.getRight(), out, names);
+                break;
+        }
+    }
+
+    private static void writeVarint(int value, DataOutputStream out) throws IOException
+    {
+        while ((value & ~0x7f) != 0)
+        {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Finds the tag that stands for an operator
+     */
+    static byte tagOf(Operator operator)
+    {
+        switch (operator)
+        {
+            case SQUARE:
+                return TAG_SQUARE;
+            case SQRT:
+                return TAG_SQRT;
+            case EXP:
+                return TAG_EXP;
+            case LN:
+                return TAG_LN;
+            case ADD:
+                return TAG_ADD;
+            case SUBTRACT:
+                return TAG_SUBTRACT;
+            case MULTIPLY:
+                return TAG_MULTIPLY;
+            default:
+                return TAG_DIVIDE;
+        }
+    }
+
+    /**
+     * Finds the operator a tag stands for
+     */
+    static Operator operatorOf(byte tag)
+    {
+        switch (tag)
+        {
+            case TAG_SQUARE:
+                return Operator.SQUARE;
+            case TAG_SQRT:
+                return Operator.SQRT;
+            case TAG_EXP:
+                return Operator.EXP;
+            case TAG_LN:
+                return Operator.LN;
+            case TAG_ADD:
+                return Operator.ADD;
+            case TAG_SUBTRACT:
+                return Operator.SUBTRACT;
+            case TAG_MULTIPLY:
+                return Operator.MULTIPLY;
+            case TAG_DIVIDE:
+                return Operator.DIVIDE;
+            default:
+                throw new IllegalArgumentException("unknown tag " + tag);
+        }
+    }
+}
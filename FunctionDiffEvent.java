@@ -0,0 +1,26 @@
+package complexNumbers;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a function is differentiated by Function.diff. The node and
+ * variable counts are those of the function being differentiated.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@Name("complexNumbers.FunctionDiff")
+@Label("Function Diff")
+@Description("Symbolic differentiation of a Function")
+final class FunctionDiffEvent extends FunctionEvent {
+
+    @Label("Variable")
+    @Description("The variable the derivative was taken with respect to")
+    String variable;
+
+    @Label("Result Node Count")
+    @Description("The number of nodes in the derivative")
+    int resultNodeCount;
+}
@@ -0,0 +1,29 @@
+package complexNumbers;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Recorded when a function is evaluated by subAndEval or evalBatch. Single
+ * evaluations are usually microseconds long, so only those taking at least
+ * 1 ms are recorded unless the recording's settings lower the threshold.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@Name("complexNumbers.FunctionEvaluate")
+@Label("Function Evaluate")
+@Description("Evaluation of a Function at one or more points")
+@Threshold("1 ms")
+final class FunctionEvaluateEvent extends FunctionEvent {
+
+    @Label("Method")
+    @Description("The Function method that did the evaluation")
+    String method;
+
+    @Label("Sample Count")
+    @Description("The number of points the function was evaluated at")
+    int sampleCount;
+}
@@ -0,0 +1,90 @@
+package complexNumbers;
+
+import java.util.HashSet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The fields shared by the Java Flight Recorder events of this package,
+ * which describe the function an operation worked on.
+ *
+ * The events are used like this, so that when recording is off (or the
+ * operation is shorter than the event's threshold) the only cost is taking
+ * two timestamps, and the function is only described for events that are
+ * kept:
+ *
+ *     TreeCopyEvent event = new TreeCopyEvent();
+ *     event.begin();
+ *     ...
+ *     if (event.shouldCommit())
+ *     {
+ *         event.describe(function.toExpression());
+ *         event.commit();
+ *     }
+ *
+ * The events appear under "Complex Numbers" in JDK Mission Control, with
+ * the elapsed time as their duration.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@Category("Complex Numbers")
+abstract class FunctionEvent extends Event {
+
+    //longest expression recorded; longer ones are cut off with "..."
+    private static final int MAX_EXPRESSION_LENGTH = 256;
+
+    @Label("Expression")
+    @Description("The function, as written by toString (cut off after 256 characters)")
+    String expression;
+
+    @Label("Node Count")
+    @Description("The number of nodes in the function's tree")
+    int nodeCount;
+
+    @Label("Variable Count")
+    @Description("The number of distinct variables in the function")
+    int variableCount;
+
+    /**
+     * Fills in the expression, node count and variable count of a function.
+     * The node count is Expression.size, so only the variables are walked
+     *
+     * @param function the expression of the function
+     */
+    void describe(Expression function)
+    {
+        String text = function.toString();
+        this.expression = text.length() <= MAX_EXPRESSION_LENGTH ? text :
+            text.substring(0, MAX_EXPRESSION_LENGTH - 3) + "...";
+        this.nodeCount = function.size();
+        HashSet<String> variables = new HashSet<String>();
+        collectVariables(function, variables);
+        this.variableCount = variables.size();
+    }
+
+    /**
+     * Collects the names of the variables in an expression
+     */
+    private static void collectVariables(Expression expression, HashSet<String> variables)
+    {
+        switch (expression.getKind())
+        {
+            case VARIABLE:
+                variables.add(expression.getName());
+                break;
+            case UNARY_OPERATION:
+                collectVariables(expression.getLeft(), variables);
+                break;
+            case BINARY_OPERATION:
+                collectVariables(expression.getLeft(), variables);
+                collectVariables(expression.getRight(), variables);
+                break;
+            default:
+                break;
+        }
+    }
+}
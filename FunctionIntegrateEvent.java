@@ -0,0 +1,30 @@
+package complexNumbers;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a function is integrated by approxIntegral,
+ * approxIntegralParallel, integrate or contourIntegral.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@Name("complexNumbers.FunctionIntegrate")
+@Label("Function Integrate")
+@Description("Numerical integration of a Function")
+final class FunctionIntegrateEvent extends FunctionEvent {
+
+    @Label("Method")
+    @Description("The Function method that did the integration")
+    String method;
+
+    @Label("Sample Count")
+    @Description("The number of times the integrand was evaluated")
+    int sampleCount;
+
+    @Label("Converged")
+    @Description("Whether the requested tolerance was met (always true for fixed-sample methods)")
+    boolean converged;
+}
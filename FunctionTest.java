@@ -0,0 +1,1592 @@
+/**
+ * 
+ */
+package complexNumbers;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import com.sun.management.ThreadMXBean;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the methods of the Function class, as well
+ * as Quantity and its subclasses
+ * 
+ * @author kenneth
+ * @version 9/24/2019
+ *
+ */
+public class FunctionTest extends TestCase {
+    
+    private Function function1;
+    private Function function2;
+    private Function function3;
+    private Function function4;
+    private Function function5;
+    private Function function6;
+    
+    public void setUp()
+    {
+        //creating function1, which is sqrt(1 + x^2)
+        UnaryOperation sqrt = new UnaryOperation("sqrt");
+        function1 = new Function(sqrt);
+        BinaryOperation plus = new BinaryOperation("+");
+        sqrt.setChild(plus);
+        plus.setLeftChild(new Complex(1.0, 0.0));
+        plus.setRightChild(new UnaryOperation("^2"));
+        ((UnaryOperation) plus.getRightChild()).setChild(new Variable("x"));
+        //creating function2, which is (x - y)^2
+        UnaryOperation square = new UnaryOperation("^2");
+        function2 = new Function(square);
+        BinaryOperation minus = new BinaryOperation("-");
+        square.setChild(minus);
+        minus.setLeftChild(new Variable("x"));
+        minus.setRightChild(new Variable("y"));
+        //creating function3, which is z^2
+        UnaryOperation square1 = new UnaryOperation("^2");
+        function3 = new Function(square1);
+        square1.setChild(new Variable("z"));
+        //creating function4, which is e^w
+        UnaryOperation exp = new UnaryOperation("exp");
+        function4 = new Function(exp);
+        exp.setChild(new Variable("w"));
+        //creating function5, which is sqrt(x)
+        UnaryOperation sqrt2 = new UnaryOperation("sqrt");
+        function5 = new Function(sqrt2);
+        sqrt2.setChild(new Variable("x"));
+        //creating function6, which is ln(x)
+        UnaryOperation ln = new UnaryOperation("ln");
+        ln.setChild(new Variable("x"));
+        function6 = new Function(ln);
+    }
+    
+    /**
+     * First test of function1, which is sqrt(1 + x^2)
+     */
+    public void test1Function1()
+    {
+        //test toString method of function1
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //substitute i for x
+        function1.substitute("x", new Complex(0.0, 1.0));
+        assertEquals("((1.0 + ((0.0 + 1.0i)^2)).sqrt())", function1.toString());
+        //completely evaluate function1
+        function1.fullySimplify();
+        assertEquals("0.0", function1.toString());
+    }
+    
+    /**
+     * Second test of function1, which is sqrt(1 + x^2)
+     */
+    public void test2Function1()
+    {
+        //test toString method of function1
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //substitute i for x and completely evaluate function1
+        Complex result = function1.subAndEval("x", new Complex(0.0, 1.0));
+        assertEquals(new Complex(0.0, 0.0), result);
+    }
+    
+    /**
+     * Fourth test of function1, which is sqrt(1 + x^2)
+     */
+    public void test4Function1()
+    {
+        //test toString method of function1
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //make a copy of this function and test toString on that
+        Function copy = function1.copy();
+        assertEquals("((1.0 + (x^2)).sqrt())", copy.toString());
+        //substitute 1 + i for x into the copy and fully simplify
+        copy.substitute("x", new Complex(1.0, 1.0));
+        copy.fullySimplify();
+        assertEquals("(1.272019649514069 + 0.7861513777574233i)", copy.toString());
+        //make sure original function is unchanged
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+    }
+    
+    /**
+     * Third test of function1, which is sqrt(1 + x^2)
+     */
+    public void test3Function1()
+    {
+        //test toString method of function1
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //substitute i for x and completely evaluate function1
+        Complex result = function1.subAndEval("x", new Complex(Math.sqrt(3.0), 0.0));
+        assertEquals(new Complex(2.0, 0.0), result);
+        //test diff() on function1
+        assertEquals("((2.0 * (x * dx/dt)) / (2.0 * ((1.0 + (x^2)).sqrt())))", function1.diff("t").toString());
+    }
+    
+    /**
+     * First test of function2, which is (x - y)^2
+     */
+    public void test1Function2()
+    {
+        //test toString method of function2
+        assertEquals("((x - y)^2)", function2.toString());
+        //substitute 1 + 2i for x and 1 + i for y and completely evaluate function2
+        Complex result = function2.subAndEval("x", new Complex(1.0, 2.0), "y", new Complex(1.0, 1.0));
+        assertEquals(new Complex(-1.0, 0.0), result);   
+        //make sure function2 is unchanged
+        assertEquals("((x - y)^2)", function2.toString());
+        //test diff on this function
+        assertEquals("(2.0 * ((x - y) * (1.0 - dy/dx)))", function2.diff("x").toString());
+        assertEquals("(2.0 * ((x - y) * (dx/dy - 1.0)))", function2.diff("y").toString());
+        assertEquals("(2.0 * ((x - y) * (dx/dt - dy/dt)))", function2.diff("t").toString());
+    }
+    
+    /**
+     * First test of function3, which is z^2
+     */
+    public void test1Function3()
+    {
+        //test toString method of function3
+        assertEquals("(z^2)", function3.toString());
+        //approximate derivative at z = 2 (using non-default precision)
+        assertEquals(new Complex(4, 0), function3.approxDeriv("z", new Complex(2, 0), 100000));
+        //approximate derivative at z = 2 (using default precision)
+        assertEquals(new Complex(4, 0), function3.approxDeriv("z", new Complex(2, 0)));
+        //approximate derivatives at other values
+        assertEquals(new Complex(20, 0), function3.approxDeriv("z", new Complex(10, 0)));
+        assertEquals(new Complex(10, -6), function3.approxDeriv("z", new Complex(5, -3)));
+        assertEquals("(2.0 * z)", function3.diff("z").toString());
+        assertEquals("(2.0 * (z * dz/dx))", function3.diff("x").toString());
+        assertEquals(new Complex(0, -0.33333333333), function3.approxIntegral("z", new Complex(0, 0), new Complex(0, 1)));
+    }
+    
+    /**
+     * First test of function4, which is e^w
+     */
+    public void test1Function4()
+    {
+        //test toString method of function3
+        assertEquals("(w.exp())", function4.toString());
+        //approximate derivative at w = 0 (using default precision)
+        assertEquals(new Complex(1, 0), function4.approxDeriv("w", new Complex(0, 0)));
+        //approximate derivative at w = 1 (using default precision)
+        assertEquals(new Complex(Math.E, 0), function4.approxDeriv("w", new Complex(1, 0)));
+        assertEquals("(w.exp())", function4.diff("w").toString());
+        assertEquals("(dw/dx * (w.exp()))", function4.diff("x").toString());
+        //approximate integral from w = 0 to w = 1
+        assertEquals(new Complex(Math.E - 1, 0), function4.approxIntegral("w", new Complex(0, 0), new Complex(1, 0)));
+        assertEquals(new Complex(-2, 0), function4.approxIntegral("w", new Complex(0, 0), new Complex(0, Math.PI)));
+        //test the compose method
+        assertEquals("((z^2).exp())", function4.compose("w", function3).toString());
+        assertEquals("((w.exp())^2)", function3.compose("z", function4).toString());
+        //differentiate the composed function e^(x^2) at x = 1
+        assertEquals(new Complex(2 * Math.E, 0), function4.compose("w", function3).diff("z").subAndEval("z", new Complex(1, 0)));
+    }
+    
+    /**
+     * First test of function5, which is sqrt(x)
+     */
+    public void test1Function5()
+    {
+        //test toString method of function5
+        assertEquals("(x.sqrt())", function5.toString());
+        //test diff on function3
+        assertEquals("(1.0 / (2.0 * (x.sqrt())))", function5.diff("x").toString());
+        //find the second derivative of sqrt(x) and plug x = 1 into that derivative
+        assertEquals(new Complex(-0.25, 0), function5.diff("x").diff("x").subAndEval("x", new Complex(1, 0)));
+        //function5 is fully simplified, so cleanUp() should do nothing
+        assertEquals("(x.sqrt())", function5.cleanUp().toString());
+        assertEquals(function5.diff("x").diff("x").subAndEval("x", new Complex(5.2, -3.1)), 
+            function5.diff("x").diff("x").cleanUp().subAndEval("x", new Complex(5.2, -3.1)));
+    }
+    
+    /**
+     * First test of function6, which is ln(x)
+     */
+    public void test1function6()
+    {
+        //diff should work on this function
+        assertEquals("(dx/dt / x)", function6.diff("t").toString());
+        
+        //creating e^(lnx)
+        UnaryOperation exp = new UnaryOperation("exp");
+        exp.setChild(function6.getTopQuantity());
+        Function unsimplified = new Function(exp);
+        assertEquals("((x.ln()).exp())", unsimplified.toString());
+        //creating 1 + e^(lnx)
+        BinaryOperation add = new BinaryOperation("+");
+        UnaryOperation exp2 = new UnaryOperation("exp");
+        UnaryOperation ln2 = new UnaryOperation("ln");
+        add.setLeftChild(new Complex(1, 0));
+        add.setRightChild(exp2);
+        exp2.setChild(ln2);
+        ln2.setChild(new Variable("x"));
+        Function unsimplified2 = new Function(add);
+        assertEquals("(1.0 + ((x.ln()).exp()))", unsimplified2.toString());
+        //creating e^(lnx) + e^(lny)
+        UnaryOperation exp1 = new UnaryOperation("exp");
+        UnaryOperation exp3 = new UnaryOperation("exp");
+        UnaryOperation ln1 = new UnaryOperation("ln");
+        UnaryOperation ln3 = new UnaryOperation("ln");
+        BinaryOperation plus = new BinaryOperation("+");
+        plus.setLeftChild(exp1);
+        plus.setRightChild(exp3);
+        exp1.setChild(ln1);
+        exp3.setChild(ln3);
+        ln1.setChild(new Variable("x"));
+        ln3.setChild(new Variable("y"));
+        Function unsimplified3 = new Function(plus);
+        assertEquals("(((x.ln()).exp()) + ((y.ln()).exp()))", unsimplified3.toString());
+        
+        //trying to simplify e^(lnx)
+        assertEquals("x", unsimplified.cleanUp().toString());
+        //trying to simplify 1 + e^(lnx)
+        assertEquals("(1.0 + x)", unsimplified2.cleanUp().toString());
+        //trying to simplify e^(lnx) + e^(lny)
+        assertEquals("(x + y)", unsimplified3.cleanUp().toString());
+
+
+    }
+
+    /**
+     * Tests that compiled functions give the same results as subAndEval
+     */
+    public void testCompile()
+    {
+        Complex[] points = {new Complex(0.0, 1.0), new Complex(1.0, 1.0),
+            new Complex(5.2, -3.1), new Complex(-2.0, 0.5)};
+        Function[] functions = {function1, function3, function4, function5, function6,
+            function5.diff("x").diff("x")};
+        for (Function function : functions)
+        {
+            CompiledFunction compiled = function.compile();
+            for (Complex point : points)
+            {
+                String name = compiled.getVariableName(0);
+                Complex expected = function.subAndEval(name, point);
+                compiled.eval(point.real(), point.imag());
+                assertEquals(expected.real(), compiled.resultReal(), 0.0);
+                assertEquals(expected.imag(), compiled.resultImag(), 0.0);
+            }
+        }
+        //function2 has two variables, which are given slots in order of appearance
+        CompiledFunction compiled = function2.compile();
+        assertEquals(2, compiled.getVariableCount());
+        assertEquals(1, compiled.slotOf("y"));
+        assertEquals(-1, compiled.slotOf("z"));
+        compiled.eval(new double[] {1.0, 1.0}, new double[] {2.0, 1.0});
+        assertEquals(new Complex(-1.0, 0.0), new Complex(compiled.resultReal(), compiled.resultImag()));
+        //the original function is left untouched
+        assertEquals("((x - y)^2)", function2.toString());
+    }
+
+    /**
+     * Tests that generated programs give the same results as interpreted ones
+     */
+    public void testCompileToBytecode()
+    {
+        Function[] functions = {function1, function4, function5.diff("x").diff("x"), function6};
+        for (Function function : functions)
+        {
+            CompiledFunction interpreted = function.compile();
+            CompiledFunction generated = function.compile(true);
+            assertFalse(interpreted.isGenerated());
+            for (double re = -2.0; re <= 2.0; re += 0.75)
+            {
+                interpreted.eval(re, 0.3);
+                generated.eval(re, 0.3);
+                assertEquals(interpreted.resultReal(), generated.resultReal(), 0.0);
+                assertEquals(interpreted.resultImag(), generated.resultImag(), 0.0);
+            }
+        }
+        assertTrue(function1.compile(true).isGenerated());
+        //a deep program needs more than 256 locals, and a long one is left to the interpreter
+        String deep = "x";
+        StringBuilder longer = new StringBuilder("x");
+        for (int i = 0; i < 400; i++)
+        {
+            deep = i < 70 ? "(ln(x) + " + deep + ")" : deep;
+            longer.append(" * x");
+        }
+        CompiledFunction generated = Function.parse(deep).compile(true);
+        assertTrue(generated.isGenerated());
+        CompiledFunction interpreted = Function.parse(deep).compile();
+        interpreted.eval(1.5, -0.5);
+        generated.eval(1.5, -0.5);
+        assertEquals(interpreted.resultReal(), generated.resultReal(), 0.0);
+        assertEquals(interpreted.resultImag(), generated.resultImag(), 0.0);
+        assertFalse(Function.parse(longer).compile(true).isGenerated());
+    }
+
+    /**
+     * Tests that batch evaluation gives the same results as subAndEval
+     */
+    public void testEvalBatch()
+    {
+        //more points than fit in one block
+        int count = 700;
+        double[] re = new double[count];
+        double[] im = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            re[i] = -3.0 + i * 0.01;
+            im[i] = 0.5 - i * 0.002;
+        }
+        double[] outRe = new double[count];
+        double[] outIm = new double[count];
+        Function function = function5.diff("x").diff("x");
+        function.evalBatch("x", re, im, outRe, outIm);
+        for (int i = 0; i < count; i += 37)
+        {
+            Complex expected = function.subAndEval("x", new Complex(re[i], im[i]));
+            assertEquals(expected.real(), outRe[i], 0.0);
+            assertEquals(expected.imag(), outIm[i], 0.0);
+        }
+        //two variables, given in a different order than they appear
+        outRe = new double[2];
+        outIm = new double[2];
+        function2.evalBatch(new String[] {"y", "x"}, new double[][] {{1.0, 0.0}, {1.0, 3.0}},
+            new double[][] {{1.0, 0.0}, {2.0, 0.0}}, outRe, outIm);
+        assertEquals(new Complex(-1.0, 0.0), new Complex(outRe[0], outIm[0]));
+        assertEquals(new Complex(9.0, 0.0), new Complex(outRe[1], outIm[1]));
+        //every variable must be given a value
+        try
+        {
+            function2.evalBatch("x", re, im, outRe, outIm);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+    }
+
+    /**
+     * Tests the Operator enum and the node kind tags
+     */
+    public void testOperators()
+    {
+        //the String constructors still work and map onto operators
+        assertEquals(Operator.SQUARE, new UnaryOperation("^2").getOperator());
+        assertEquals(Operator.DIVIDE, new BinaryOperation("/").getOperator());
+        assertEquals("sqrt", new UnaryOperation(Operator.SQRT).getType());
+        for (Operator operator : Operator.values())
+        {
+            assertEquals(operator, Operator.fromSymbol(operator.getSymbol()));
+        }
+        //an operator can only be used with the right number of operands
+        try
+        {
+            new UnaryOperation("+");
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+        try
+        {
+            new BinaryOperation(Operator.LN);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+        assertEquals(new Complex(-1, 0), Operator.MULTIPLY.apply(new Complex(0, 1), new Complex(0, 1)));
+        assertEquals(Quantity.Kind.UNARY_OPERATION, function1.getTopQuantity().getKind());
+        assertEquals(Quantity.Kind.VARIABLE, ((UnaryOperation) function3.getTopQuantity()).getChild().getKind());
+    }
+
+    /**
+     * Tests the parallel version of approxIntegral
+     */
+    public void testApproxIntegralParallel()
+    {
+        assertEquals(function4.approxIntegral("w", new Complex(0, 0), new Complex(0, Math.PI)),
+            function4.approxIntegralParallel("w", new Complex(0, 0), new Complex(0, Math.PI)));
+        assertEquals(new Complex(0, -0.33333333333),
+            function3.approxIntegralParallel("z", new Complex(0, 0), new Complex(0, 1)));
+        //the result should not depend on the number of threads
+        Complex serial = function1.approxIntegralParallel("x", new Complex(0, 0), new Complex(2, 1), 300001, 1);
+        for (int parallelism = 2; parallelism <= 8; parallelism *= 2)
+        {
+            Complex parallel = function1.approxIntegralParallel("x", new Complex(0, 0), new Complex(2, 1), 300001, parallelism);
+            assertEquals(serial.real(), parallel.real(), 0.0);
+            assertEquals(serial.imag(), parallel.imag(), 0.0);
+        }
+    }
+
+    /**
+     * Tests adaptive Gauss-Kronrod integration
+     */
+    public void testIntegrate()
+    {
+        //integral of e^w from 0 to i*pi is -2
+        IntegrationResult result = function4.integrate("w", new Complex(0, 0), new Complex(0, Math.PI));
+        assertEquals(-2.0, result.getValue().real(), 1e-12);
+        assertEquals(0.0, result.getValue().imag(), 1e-12);
+        assertTrue(result.isConverged());
+        assertTrue(result.getErrorEstimate() <= 1e-10);
+        //a smooth integrand needs far fewer samples than the Riemann sum
+        assertTrue(result.getEvaluations() < 1000);
+        //sqrt(x) has an infinite derivative at 0, so the interval has to be cut up
+        IntegrationResult sqrt = function5.integrate("x", new Complex(0, 0), new Complex(1, 0), 1e-9, 1e-9, 100000);
+        assertEquals(2.0 / 3.0, sqrt.getValue().real(), 1e-8);
+        assertTrue(sqrt.getEvaluations() > GaussKronrod.POINTS);
+        //a tight budget stops early and says so
+        IntegrationResult capped = function5.integrate("x", new Complex(0, 0), new Complex(1, 0), 1e-15, 0, 15);
+        assertEquals(15, capped.getEvaluations());
+        assertFalse(capped.isConverged());
+        //the precision overload now steps along the interval
+        assertEquals(new Complex(Math.E - 1, 0), function4.approxIntegral("w", new Complex(0, 0), new Complex(1, 0), 100000));
+    }
+
+    /**
+     * Tests integration along contours
+     */
+    public void testContourIntegral()
+    {
+        //1/x around the unit circle is 2*pi*i
+        BinaryOperation over = new BinaryOperation(Operator.DIVIDE);
+        over.setLeftChild(new Complex(1, 0));
+        over.setRightChild(new Variable("x"));
+        Function reciprocal = new Function(over);
+        IntegrationResult circle = reciprocal.contourIntegral("x", Contour.circle(new Complex(0, 0), 1), 1e-10);
+        assertEquals(0.0, circle.getValue().real(), 1e-10);
+        assertEquals(2 * Math.PI, circle.getValue().imag(), 1e-10);
+        assertTrue(circle.isConverged());
+        //the same around a rectangle enclosing the pole
+        IntegrationResult rectangle = reciprocal.contourIntegral("x",
+            Contour.rectangle(new Complex(-1, -2), new Complex(3, 1)), 1e-10);
+        assertEquals(0.0, rectangle.getValue().real(), 1e-9);
+        assertEquals(2 * Math.PI, rectangle.getValue().imag(), 1e-9);
+        //a chain evaluates as one path, each piece taking an equal share of t
+        final Contour box = Contour.rectangle(new Complex(-1, -2), new Complex(3, 1));
+        double[] point = new double[4];
+        box.evaluate(0.125, point);
+        assertEquals(1.0, point[0], 1e-12);
+        assertEquals(-2.0, point[1], 1e-12);
+        assertEquals(16.0, point[2], 1e-12);
+        assertEquals(0.0, point[3], 1e-12);
+        box.evaluate(0.6, point);
+        assertEquals(1.4, point[0], 1e-12);
+        assertEquals(1.0, point[1], 1e-12);
+        assertEquals(-16.0, point[2], 1e-12);
+        assertEquals(0.0, point[3], 1e-12);
+        IntegrationResult whole = reciprocal.contourIntegral("x", new Contour() {
+            @Override
+            public void evaluate(double t, double[] out)
+            {
+                box.evaluate(t, out);
+            }
+        }, 1e-10);
+        assertEquals(rectangle.getValue(), whole.getValue());
+        //the evaluation budget is shared by the pieces
+        IntegrationResult limited = reciprocal.contourIntegral("x", box, 1e-14, 200);
+        assertTrue(limited.getEvaluations() <= 200);
+        //z^2 is entire, so any path between the same end points gives the same answer
+        IntegrationResult polyline = function3.contourIntegral("z",
+            Contour.polyline(new Complex(0, 0), new Complex(1, 1), new Complex(0, 1)), 1e-12);
+        assertEquals(new Complex(0, -0.33333333333), polyline.getValue());
+        IntegrationResult arc = function3.contourIntegral("z",
+            Contour.arc(new Complex(0, 0), 1, 0, Math.PI / 2), 1e-12);
+        assertEquals(new Complex(-1.0 / 3.0, -1.0 / 3.0), arc.getValue());
+        //a straight segment matches integrate
+        assertEquals(function4.integrate("w", new Complex(0, 0), new Complex(1, 0)).getValue(),
+            function4.contourIntegral("w", Contour.segment(new Complex(0, 0), new Complex(1, 0)), 1e-10).getValue());
+    }
+
+    /**
+     * Tests exact derivatives found by carrying derivatives through evaluation
+     */
+    public void testEvalWithDerivative()
+    {
+        //d/dx sqrt(1 + x^2) = x / sqrt(1 + x^2)
+        Complex exact = function1.approxDeriv("x", new Complex(3, 0));
+        assertEquals(3 / Math.sqrt(10), exact.real(), 1e-15);
+        assertEquals(0.0, exact.imag(), 0.0);
+        //d/dx ln(x) = 1/x, also off the real axis
+        assertEquals(new Complex(1, 0).divide(new Complex(2, 1)),
+            function6.approxDeriv("x", new Complex(2, 1)));
+        //the tree is left as it was
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //d/dy (x - y)^2 = -2(x - y), with respect to one slot of several
+        CompiledFunction compiled = function2.compile();
+        double[] re = new double[2];
+        double[] im = new double[2];
+        re[compiled.slotOf("x")] = 5;
+        re[compiled.slotOf("y")] = 2;
+        im[compiled.slotOf("y")] = 1;
+        compiled.evalWithDerivative(compiled.slotOf("y"), re, im);
+        assertEquals(8.0, compiled.resultReal(), 0.0);
+        assertEquals(-6.0, compiled.resultImag(), 0.0);
+        assertEquals(-6.0, compiled.derivativeReal(), 0.0);
+        assertEquals(2.0, compiled.derivativeImag(), 0.0);
+        //quotient rule: d/dx (1 / x) = -1 / x^2
+        BinaryOperation over = new BinaryOperation(Operator.DIVIDE);
+        over.setLeftChild(new Complex(1, 0));
+        over.setRightChild(new Variable("x"));
+        CompiledFunction reciprocal = new Function(over).compile();
+        reciprocal.evalWithDerivative(2, 0);
+        assertEquals(-0.25, reciprocal.derivativeReal(), 0.0);
+        //a function of another variable is rejected
+        try
+        {
+            function2.approxDeriv("x", new Complex(1, 0));
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+    }
+
+    /**
+     * Tests the hash-consed expression dag
+     */
+    public void testExpressionDag()
+    {
+        ExpressionDag dag = new ExpressionDag();
+        //identical expressions are the same node
+        DagNode root = dag.fromFunction(function1);
+        assertSame(root, dag.fromFunction(function1.copy()));
+        assertSame(dag.variable("x"), dag.fromFunction(function1).getLeft().getRight().getLeft());
+        assertEquals(function1.toString(), root.toString());
+        assertEquals(function1.toString(), dag.toFunction(root).toString());
+        //constants are compared by their exact bits
+        assertNotSame(dag.constant(0.0, 0.0), dag.constant(-0.0, 0.0));
+        //derivatives match Function.diff
+        DagNode derivative = dag.diff(root, "x");
+        assertEquals(function1.diff("x").toString(), derivative.toString());
+        assertEquals(function6.diff("x").toString(), dag.diff(dag.fromFunction(function6), "x").toString());
+        assertSame(derivative, dag.diff(root, "x"));
+        //evaluation agrees with the exact derivative
+        Complex point = new Complex(0.5, 0.25);
+        assertEquals(function1.approxDeriv("x", point), dag.evaluate(derivative, "x", point));
+        //higher derivatives share their subexpressions, so they grow slowly
+        DagNode fifth = dag.diff(root, "x", 5);
+        assertTrue(dag.size(fifth) < 300);
+        Complex fifthValue = dag.evaluate(fifth, "x", point);
+        Function tree = function1;
+        for (int i = 0; i < 5; i++)
+        {
+            tree = tree.diff("x");
+        }
+        Complex expected = tree.subAndEval("x", point);
+        assertEquals(expected.real(), fifthValue.real(), 1e-9 * expected.mag());
+        assertEquals(expected.imag(), fifthValue.imag(), 1e-9 * expected.mag());
+        //evaluating a root again reuses its list of nodes, and nodes added since do not disturb it
+        int fifthSize = dag.size(fifth);
+        dag.diff(fifth, "x");
+        assertEquals(fifthSize, dag.size(fifth));
+        Complex other = new Complex(-0.75, 1.5);
+        assertEquals(tree.subAndEval("x", other), dag.evaluate(fifth, "x", other));
+        assertEquals(fifthValue, dag.evaluate(fifth, "x", point));
+        //every variable needs a value
+        try
+        {
+            dag.evaluate(dag.fromFunction(function2), "x", point);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+    }
+
+    /**
+     * Tests the evaluation cache
+     */
+    public void testEvaluationCache() throws InterruptedException
+    {
+        EvaluationCache cache = new EvaluationCache(100);
+        Complex value = new Complex(3, 4);
+        assertEquals(function3.subAndEval("z", value), cache.subAndEval(function3, "z", value));
+        assertEquals(function3.subAndEval("z", value), cache.subAndEval(function3, "z", new Complex(3, 4)));
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+        //values are compared bit for bit, not with the tolerance of Complex.equals
+        Complex nearby = new Complex(Math.nextUp(3.0), 4);
+        assertEquals(value, nearby);
+        cache.subAndEval(function3, "z", nearby);
+        assertEquals(2, cache.missCount());
+        //an identical copy of the function shares entries, a different function does not
+        cache.subAndEval(function3.copy(), "z", value);
+        assertEquals(2, cache.hitCount());
+        cache.subAndEval(Function.parse(function3.toString()), "z", value);
+        cache.subAndEval(new Function(function3.toExpression().toQuantity()), "z", value);
+        assertEquals(4, cache.hitCount());
+        cache.subAndEval(function4, "z", value);
+        assertEquals(3, cache.missCount());
+        //two variables, and results that are not a single Complex
+        assertEquals(function2.subAndEval("x", value, "y", nearby),
+            cache.subAndEval(function2, "x", value, "y", nearby));
+        assertNull(cache.subAndEval(function2, "x", value));
+        assertNull(cache.subAndEval(function2, "x", value));
+        //the size limit is kept
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.subAndEval(function3, "z", new Complex(i, 0));
+        }
+        assertTrue(cache.size() <= cache.getMaximumSize());
+        //concurrent use gives the same answers
+        final EvaluationCache shared = new EvaluationCache(64);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(new Runnable() {
+                public void run()
+                {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        Complex point = new Complex(i % 100, 1);
+                        if (!point.square().equals(shared.subAndEval(function3, "z", point)))
+                        {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+        assertEquals(8000, shared.hitCount() + shared.missCount());
+        assertTrue(shared.size() <= 64);
+    }
+
+    /**
+     * Tests evaluation with any number of variables
+     */
+    public void testVariableBinding()
+    {
+        //a sum of 20 parameters p0 + p1 + ... + p19, weighted by their squares
+        Quantity sum = new Complex(0, 0);
+        Map<String, Complex> values = new HashMap<String, Complex>();
+        Complex expected = new Complex(0, 0);
+        for (int i = 0; i < 20; i++)
+        {
+            BinaryOperation plus = new BinaryOperation(Operator.ADD);
+            UnaryOperation square = new UnaryOperation(Operator.SQUARE);
+            square.setChild(new Variable("p" + i));
+            plus.setLeftChild(sum);
+            plus.setRightChild(square);
+            sum = plus;
+            Complex value = new Complex(i, 1);
+            values.put("p" + i, value);
+            expected = expected.add(value.square());
+        }
+        Function function = new Function(sum);
+        assertEquals(expected, function.subAndEval(values));
+        //a binding can be reused with new values
+        VariableBinding binding = function.bind().setAll(values);
+        assertEquals(20, binding.getVariableCount());
+        assertEquals(expected, binding.evaluate());
+        binding.set("p19", new Complex(0, 0)).set("unused", new Complex(5, 5));
+        assertEquals(expected.subtract(new Complex(19, 1).square()), binding.evaluate());
+        //agrees with the two-variable overload
+        Map<String, Complex> pair = new HashMap<String, Complex>();
+        pair.put("x", new Complex(3, 1));
+        pair.put("y", new Complex(-1, 2));
+        assertEquals(function2.subAndEval("x", new Complex(3, 1), "y", new Complex(-1, 2)),
+            function2.subAndEval(pair));
+        //a missing variable gives null, like subAndEval
+        pair.remove("y");
+        assertNull(function2.subAndEval(pair));
+        try
+        {
+            function2.bind().set("x", new Complex(1, 0)).evaluate();
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            //expected
+        }
+        //names are compared by value, not identity
+        Function copy = function3.copy();
+        copy.substitute(new String("z"), new Complex(2, 0));
+        copy.fullySimplify();
+        assertEquals("4.0", copy.toString());
+    }
+
+    /**
+     * Tests incremental evaluation
+     */
+    public void testEvaluator()
+    {
+        //(p0 + p1 + ... + p9).exp() * (x - 1)^2, where x is swept
+        Quantity sum = new Variable("p0");
+        Map<String, Complex> values = new HashMap<String, Complex>();
+        values.put("p0", new Complex(0.1, 0));
+        for (int i = 1; i < 10; i++)
+        {
+            BinaryOperation plus = new BinaryOperation(Operator.ADD);
+            plus.setLeftChild(sum);
+            plus.setRightChild(new Variable("p" + i));
+            sum = plus;
+            values.put("p" + i, new Complex(0.1 * i, -0.05 * i));
+        }
+        UnaryOperation exp = new UnaryOperation(Operator.EXP);
+        exp.setChild(sum);
+        BinaryOperation minus = new BinaryOperation(Operator.SUBTRACT);
+        minus.setLeftChild(new Variable("x"));
+        minus.setRightChild(new Complex(1, 0));
+        UnaryOperation square = new UnaryOperation(Operator.SQUARE);
+        square.setChild(minus);
+        BinaryOperation times = new BinaryOperation(Operator.MULTIPLY);
+        times.setLeftChild(exp);
+        times.setRightChild(square);
+        Function function = new Function(times);
+        Evaluator evaluator = new Evaluator(function);
+        for (String name : values.keySet())
+        {
+            evaluator.set(name, values.get(name));
+        }
+        evaluator.set("x", new Complex(0, 0));
+        values.put("x", new Complex(0, 0));
+        assertEquals(function.subAndEval(values), evaluator.evaluate());
+        assertEquals(evaluator.getNodeCount() - 1, evaluator.getLastRecomputed());
+        //sweeping x only touches x, x - 1, its square and the product
+        for (int k = 1; k <= 5; k++)
+        {
+            Complex x = new Complex(k, 0.5 * k);
+            values.put("x", x);
+            Complex value = evaluator.set("x", x).evaluate();
+            assertEquals(4, evaluator.getLastRecomputed());
+            Complex expected = function.subAndEval(values);
+            assertEquals(expected.real(), value.real(), 0.0);
+            assertEquals(expected.imag(), value.imag(), 0.0);
+        }
+        //setting the same value again recomputes nothing
+        evaluator.set("x", new Complex(5, 2.5));
+        evaluator.evaluate();
+        assertEquals(0, evaluator.getLastRecomputed());
+        //changing two variables at once
+        values.put("p3", new Complex(2, 2));
+        values.put("x", new Complex(-1, 0));
+        Complex value = evaluator.set("p3", new Complex(2, 2)).set("x", new Complex(-1, 0)).evaluate();
+        assertEquals(function.subAndEval(values), value);
+        assertTrue(evaluator.getLastRecomputed() < evaluator.getNodeCount());
+        //every variable needs a value
+        try
+        {
+            new Evaluator(function2).set("x", new Complex(1, 0)).evaluate();
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            //expected
+        }
+    }
+
+    /**
+     * Tests the rule-based simplifier
+     */
+    public void testSimplifier()
+    {
+        //one call takes a derivative all the way down
+        assertEquals("((2.0 * x) / (2.0 * ((1.0 + (x^2)).sqrt())))", function1.diff("x").cleanUp().toString());
+        assertEquals("(2.0 * z)", function3.diff("z").cleanUp().toString());
+        assertEquals("2.0", function3.diff("z").diff("z").cleanUp().toString());
+        assertEquals("(w.exp())", function4.diff("w").cleanUp().toString());
+        //simplifying again changes nothing
+        Function simplified = function1.diff("x").diff("x").cleanUp();
+        assertTrue(simplified.getCleaned());
+        assertEquals(simplified.toString(), simplified.cleanUp().toString());
+        //diff and compose mark only their results as unsimplified
+        assertFalse(simplified.diff("x").getCleaned());
+        assertFalse(simplified.compose("x", function3).getCleaned());
+        assertTrue(simplified.getCleaned());
+        //the value is unchanged
+        Complex point = new Complex(0.7, -0.2);
+        assertEquals(function1.diff("x").diff("x").subAndEval("x", point), simplified.subAndEval("x", point));
+        //the original function is not modified
+        Function derivative = function1.diff("x");
+        String before = derivative.toString();
+        derivative.cleanUp();
+        assertEquals(before, derivative.toString());
+        //0 - a and constant folding
+        BinaryOperation minus = new BinaryOperation(Operator.SUBTRACT);
+        minus.setLeftChild(new Complex(0, 0));
+        BinaryOperation times = new BinaryOperation(Operator.MULTIPLY);
+        times.setLeftChild(new Variable("x"));
+        times.setRightChild(new Complex(3, 0));
+        minus.setRightChild(times);
+        assertEquals("(-3.0 * x)", new Function(minus).cleanUp().toString());
+        //custom rules are added to the standard ones: a / a = 1 for identical variables
+        Simplifier custom = Simplifier.standard().withRules(Arrays.asList(new RewriteRule() {
+            public Operator getOperator()
+            {
+                return Operator.DIVIDE;
+            }
+
+            public Quantity rewrite(Quantity node)
+            {
+                Quantity left = ((BinaryOperation) node).getLeftChild();
+                Quantity right = ((BinaryOperation) node).getRightChild();
+                if (left.getKind() == Quantity.Kind.VARIABLE && right.getKind() == Quantity.Kind.VARIABLE &&
+                    ((Variable) left).getName().equals(((Variable) right).getName()))
+                {
+                    return new Complex(1, 0);
+                }
+                return null;
+            }
+        }));
+        BinaryOperation over = new BinaryOperation(Operator.DIVIDE);
+        over.setLeftChild(new Variable("x"));
+        over.setRightChild(new Variable("x"));
+        BinaryOperation plus = new BinaryOperation(Operator.ADD);
+        plus.setLeftChild(new Variable("y"));
+        plus.setRightChild(over);
+        Function ratio = new Function(plus);
+        assertEquals("(y + (x / x))", ratio.cleanUp().toString());
+        assertEquals("(y + 1.0)", custom.simplify(ratio).toString());
+    }
+
+    /**
+     * Tests the simplifying factories and the derivatives built with them
+     */
+    public void testSmartConstructors()
+    {
+        Variable x = new Variable("x");
+        //identities and annihilators never allocate an operation
+        assertSame(x, BinaryOperation.of(Operator.ADD, new Complex(0, 0), x));
+        assertSame(x, BinaryOperation.of(Operator.SUBTRACT, x, new Complex(0, 0)));
+        assertSame(x, BinaryOperation.of(Operator.MULTIPLY, new Complex(1, 0), x));
+        assertSame(x, BinaryOperation.of(Operator.DIVIDE, x, new Complex(1, 0)));
+        assertEquals("0.0", BinaryOperation.of(Operator.MULTIPLY, x, new Complex(0, 0)).toString());
+        //constants are folded
+        assertEquals(new Complex(5, 1), BinaryOperation.of(Operator.ADD, new Complex(2, 1), new Complex(3, 0)));
+        assertEquals(new Complex(0, 1), UnaryOperation.of(Operator.SQRT, new Complex(-1, 0)));
+        //inverse pairs are undone, except ln(e^x), which is x only up to 2*pi*i
+        assertSame(x, UnaryOperation.of(Operator.EXP, UnaryOperation.of(Operator.LN, x)));
+        assertEquals("((x.exp()).ln())", UnaryOperation.of(Operator.LN, UnaryOperation.of(Operator.EXP, x)).toString());
+        //only an exact 0 or 1 is dropped
+        assertEquals("(x * 1.00005)", BinaryOperation.of(Operator.MULTIPLY, x, new Complex(1.00005, 0)).toString());
+        assertEquals("(x + 5.0E-5)", BinaryOperation.of(Operator.ADD, x, new Complex(0.00005, 0)).toString());
+        Function small = Function.parse("0.00005 * x^2");
+        assertEquals(new Complex(0.0003, 0), small.diff("x").subAndEval("x", new Complex(3, 0)));
+        assertEquals(new Complex(0.0003, 0), new Function(small.getTopQuantity().copy()).diff("x").subAndEval("x", new Complex(3, 0)));
+        assertFalse(Function.parse("x * 1.00005").diff("x").toString().equals("1.0"));
+        //anything else is built as usual
+        assertEquals("(x - 1.0)", BinaryOperation.of(Operator.SUBTRACT, x, new Complex(1, 0)).toString());
+        try
+        {
+            BinaryOperation.of(Operator.SQRT, x, x);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            //expected
+        }
+        //derivatives never contain 0 * a or a * 1, and leave the original alone
+        assertEquals("2.0", function3.diff("z").diff("z").toString());
+        assertEquals("0.0", function3.diff("z").diff("z").diff("z").toString());
+        assertEquals("(z^2)", function3.toString());
+        Function derivative = function1.diff("x");
+        assertEquals("((2.0 * x) / (2.0 * ((1.0 + (x^2)).sqrt())))", derivative.toString());
+        assertEquals("((1.0 + (x^2)).sqrt())", function1.toString());
+        //the value agrees with the exact derivative
+        Complex point = new Complex(1.5, 0.5);
+        assertEquals(function1.approxDeriv("x", point), derivative.subAndEval("x", point));
+    }
+
+    /**
+     * Tests parsing text into functions
+     */
+    public void testParse() throws IOException
+    {
+        //ordinary notation and the toString form give the same tree
+        assertEquals(function1.toString(), Function.parse("sqrt(1 + x^2)").toString());
+        assertEquals(function2.toString(), Function.parse("(x - y)^2").toString());
+        assertEquals(function4.toString(), Function.parse("exp(w)").toString());
+        assertEquals(function6.toString(), Function.parse(" ln ( x ) ").toString());
+        //toString output parses back to the same function
+        Function[] functions = {function1, function2, function3, function4, function5, function6,
+            function1.diff("x"), function5.diff("x").diff("x")};
+        for (Function function : functions)
+        {
+            assertEquals(function.toString(), Function.parse(function.toString()).toString());
+        }
+        //complex literals, negative numbers and precedence
+        assertEquals("(0.0 + 1.0i)", Function.parse("(0.0 + 1.0i)").toString());
+        assertEquals("(1.5 - 2.0i)", Function.parse("(1.5 - 2i)").toString());
+        assertEquals("((-2.0 * x) + (3.0 / y))", Function.parse("-2*x + 3/y").toString());
+        assertEquals("(-1.0 * (x^2))", Function.parse("-x^2").toString());
+        assertEquals("(1.0 + (0.0 + 2.0i))", Function.parse("1.0 + (0.0 + 2.0i)").toString());
+        assertEquals(new Complex(-3, 4), Function.parse("(1 + 2i)^2").subAndEval("x", new Complex(0, 0)));
+        //numbers are read exactly
+        String[] numbers = {"0.1", "1e-5", "6.02214076E23", "123456789.123456789", "4.9E-324", "0.30000000000000004"};
+        for (String number : numbers)
+        {
+            Complex value = (Complex) Function.parse(number).getTopQuantity();
+            assertEquals(Double.parseDouble(number), value.real(), 0.0);
+        }
+        //malformed text is reported with its position
+        String[] malformed = {"", "x +", "(x", "x^3", "2x", "x.cos()", "sqrt x", "1e"};
+        for (String text : malformed)
+        {
+            try
+            {
+                Function.parse(text);
+                fail(text);
+            }
+            catch (IllegalArgumentException e)
+            {
+                assertTrue(e.getMessage().contains("position"));
+            }
+        }
+        //one expression per line, from a Reader and from a mapped file
+        String lines = "sqrt(1 + x^2)\r\n\n  z^2\nexp(w)";
+        final List<String> parsed = new ArrayList<String>();
+        ExpressionParser parser = new ExpressionParser();
+        assertEquals(3, parser.parseLines(new StringReader(lines), f -> parsed.add(f.toString())));
+        assertEquals(Arrays.asList(function1.toString(), function3.toString(), function4.toString()), parsed);
+        Path file = Files.createTempFile("functions", ".txt");
+        try
+        {
+            Files.write(file, lines.getBytes(StandardCharsets.US_ASCII));
+            parsed.clear();
+            assertEquals(3, parser.parseFile(file, f -> parsed.add(f.toString())));
+            assertEquals(function4.toString(), parsed.get(2));
+            Files.write(file, "x\nx +\n".getBytes(StandardCharsets.US_ASCII));
+            try
+            {
+                parser.parseFile(file, f -> parsed.add(f.toString()));
+                fail();
+            }
+            catch (IllegalArgumentException e)
+            {
+                //the position is counted from the start of the line
+                assertEquals("line 2: unexpected end of expression at position 3", e.getMessage());
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+        //once the name cache is full, new names replace the oldest ones in turn
+        StringBuilder many = new StringBuilder("v0");
+        for (int n = 1; n < 64; n++)
+        {
+            many.append(" + v").append(n);
+        }
+        parser.parse(many);
+        String first = ((Variable) parser.parse("v64").getTopQuantity()).getName();
+        parser.parse("v65");
+        assertSame(first, ((Variable) parser.parse("v64").getTopQuantity()).getName());
+    }
+
+    public void testFunctionArchive() throws IOException
+    {
+        Function mixed = Function.parse("(1.5 - 2i) * exp(z) / ln(x + y) - sqrt(0.1)");
+        List<Function> functions = Arrays.asList(function1, function3, function4, mixed, mixed.diff("z"));
+        //a single function round-trips through bytes with its constants exact
+        Function copy = FunctionArchive.fromBytes(FunctionArchive.toBytes(mixed));
+        assertEquals(mixed.toString(), copy.toString());
+        assertEquals(FunctionArchive.toBytes(mixed).length, FunctionArchive.toBytes(copy).length);
+        //a loaded function is held as an Expression, so reading it builds nothing
+        assertSame(copy.toExpression(), copy.toExpression());
+        assertEquals(mixed.toExpression(), copy.toExpression());
+        Function tiny = FunctionArchive.fromBytes(FunctionArchive.toBytes(Function.parse("0.30000000000000004")));
+        assertEquals(0.30000000000000004, ((Complex) tiny.getTopQuantity()).real(), 0.0);
+        //functions are loaded one at a time from a mapped file
+        Path file = Files.createTempFile("functions", ".cxfa");
+        try
+        {
+            FunctionArchive.write(functions, file);
+            FunctionArchive archive = FunctionArchive.open(file);
+            assertEquals(functions.size(), archive.size());
+            assertEquals(mixed.toString(), archive.get(3).toString());
+            for (int i = functions.size() - 1; i >= 0; i--)
+            {
+                assertEquals(functions.get(i).toString(), archive.get(i).toString());
+            }
+            try
+            {
+                archive.get(functions.size());
+                fail();
+            }
+            catch (IndexOutOfBoundsException e)
+            {
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+        //bad magic, a newer version and truncated data are rejected
+        byte[] bytes = FunctionArchive.toBytes(mixed);
+        byte[] badMagic = bytes.clone();
+        badMagic[0] = 0;
+        byte[] newer = bytes.clone();
+        newer[5] = (byte) (FunctionArchive.VERSION + 1);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        for (byte[] bad : Arrays.asList(badMagic, newer, truncated))
+        {
+            try
+            {
+                FunctionArchive.fromBytes(bad);
+                fail();
+            }
+            catch (IllegalArgumentException e)
+            {
+            }
+        }
+    }
+
+    public void testEvalGrid()
+    {
+        Complex lowerLeft = new Complex(-2, -1);
+        Complex upperRight = new Complex(1, 3);
+        int width = 37;
+        int height = 23;
+        double[] re = new double[width * height];
+        double[] im = new double[width * height];
+        function1.evalGrid("x", lowerLeft, upperRight, width, height, re, im);
+        //corners and an inside point match subAndEval
+        assertEquals(function1.subAndEval("x", new Complex(-2, 3)), new Complex(re[0], im[0]));
+        int last = width * height - 1;
+        assertEquals(function1.subAndEval("x", new Complex(1, -1)), new Complex(re[last], im[last]));
+        int index = 5 * width + 9;
+        Complex point = new Complex(-2 + 9 * 3.0 / (width - 1), 3 - 5 * 4.0 / (height - 1));
+        assertEquals(function1.subAndEval("x", point), new Complex(re[index], im[index]));
+        //the results do not depend on the tiles, threads or kind of output
+        GridEvaluation grid = function1.evalGrid("x", lowerLeft, upperRight, width, height);
+        grid.setTileSize(5, 7);
+        grid.setParallelism(3);
+        final AtomicInteger calls = new AtomicInteger();
+        grid.setProgressListener((done, total) -> calls.incrementAndGet());
+        DoubleBuffer buffer = ByteBuffer.allocateDirect(16 * width * height).asDoubleBuffer();
+        assertTrue(grid.evaluate(buffer));
+        assertEquals(8 * 4, grid.getTileCount());
+        assertEquals(grid.getTileCount(), calls.get());
+        for (int i = 0; i < width * height; i++)
+        {
+            assertEquals(re[i], buffer.get(2 * i), 0.0);
+            assertEquals(im[i], buffer.get(2 * i + 1), 0.0);
+        }
+        //the threads' buffers are reused when the tiles change size
+        grid.setTileSize(11, 2);
+        double[] retiledRe = new double[width * height];
+        double[] retiledIm = new double[width * height];
+        assertTrue(grid.evaluate(retiledRe, retiledIm));
+        assertTrue(Arrays.equals(re, retiledRe));
+        assertTrue(Arrays.equals(im, retiledIm));
+        //a singular point gives an infinite or NaN value there and leaves the rest of the grid alone
+        Function log = Function.parse("ln(z)");
+        Function root = Function.parse("sqrt(1 / z)");
+        double[] logRe = new double[9];
+        double[] logIm = new double[9];
+        double[] rootRe = new double[9];
+        double[] rootIm = new double[9];
+        log.evalGrid("z", new Complex(-1, -1), new Complex(1, 1), 3, 3, logRe, logIm);
+        root.evalGrid("z", new Complex(-1, -1), new Complex(1, 1), 3, 3, rootRe, rootIm);
+        assertEquals(Double.NEGATIVE_INFINITY, logRe[4], 0.0);
+        assertTrue(Double.isNaN(rootRe[4]) && Double.isNaN(rootIm[4]));
+        Complex corner = new Complex(1, -1);
+        assertEquals(log.subAndEval("z", corner), new Complex(logRe[8], logIm[8]));
+        assertEquals(root.subAndEval("z", corner), new Complex(rootRe[8], rootIm[8]));
+        //cancelling from the listener stops the remaining tiles
+        GridEvaluation cancelled = function1.evalGrid("x", lowerLeft, upperRight, 512, 512);
+        cancelled.setTileSize(16, 16);
+        cancelled.setParallelism(1);
+        cancelled.setProgressListener((done, total) -> cancelled.cancel());
+        assertFalse(cancelled.evaluate(new double[512 * 512], new double[512 * 512]));
+        assertTrue(cancelled.getTilesDone() < cancelled.getTileCount());
+        //a cancelled grid can be evaluated again
+        cancelled.setProgressListener(null);
+        assertTrue(cancelled.evaluate(new double[512 * 512], new double[512 * 512]));
+        assertFalse(cancelled.isCancelled());
+        assertEquals(cancelled.getTileCount(), cancelled.getTilesDone());
+        try
+        {
+            function2.evalGrid("x", lowerLeft, upperRight, width, height);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testDomainColoring() throws IOException
+    {
+        //x^2 - 1 on a 3 by 3 grid from -1 - i to 1 + i
+        Function function = Function.parse("x^2 - 1");
+        DomainColoringRenderer renderer = new DomainColoringRenderer(function, "x",
+            new Complex(-1, -1), new Complex(1, 1), 3, 3);
+        renderer.setBandHeight(2);
+        ByteArrayOutputStream ppm = new ByteArrayOutputStream();
+        renderer.render(ppm, DomainColoringRenderer.Format.PPM);
+        byte[] bytes = ppm.toByteArray();
+        String header = "P6\n3 3\n255\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII));
+        assertEquals(header.length() + 27, bytes.length);
+        //the zeros at -1 and 1 are black; -1 at 0 has half brightness and the hue of pi (cyan)
+        int middleRow = header.length() + 9;
+        assertEquals(Arrays.toString(new byte[] {0, 0, 0}),
+            Arrays.toString(Arrays.copyOfRange(bytes, middleRow, middleRow + 3)));
+        assertEquals(Arrays.toString(new byte[] {0, (byte) 128, (byte) 128}),
+            Arrays.toString(Arrays.copyOfRange(bytes, middleRow + 3, middleRow + 6)));
+        assertEquals(Arrays.toString(new byte[] {0, 0, 0}),
+            Arrays.toString(Arrays.copyOfRange(bytes, middleRow + 6, middleRow + 9)));
+        //the PNG holds the same pixels
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        renderer.render(png, DomainColoringRenderer.Format.PNG);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+        assertEquals(3, image.getWidth());
+        assertEquals(3, image.getHeight());
+        for (int row = 0; row < 3; row++)
+        {
+            for (int column = 0; column < 3; column++)
+            {
+                int offset = header.length() + 3 * (row * 3 + column);
+                int rgb = ((bytes[offset] & 0xff) << 16) | ((bytes[offset + 1] & 0xff) << 8) |
+                    (bytes[offset + 2] & 0xff);
+                assertEquals(rgb, image.getRGB(column, row) & 0xffffff);
+            }
+        }
+        //one-row bands reuse their arrays and give the same pixels
+        renderer.setBandHeight(1);
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        renderer.render(rows, DomainColoringRenderer.Format.PPM);
+        assertTrue(Arrays.equals(bytes, rows.toByteArray()));
+        //a failed write does not spoil the next render
+        OutputStream broken = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException
+            {
+                //fail in the middle of the first band
+                if (++written > header.length() + 5)
+                {
+                    throw new IOException("disk full");
+                }
+            }
+        };
+        try
+        {
+            renderer.render(broken, DomainColoringRenderer.Format.PPM);
+            fail();
+        }
+        catch (IOException e)
+        {
+        }
+        rows.reset();
+        renderer.render(rows, DomainColoringRenderer.Format.PPM);
+        assertTrue(Arrays.equals(bytes, rows.toByteArray()));
+        //a NaN value is grey and an infinite one white, rather than stopping the image
+        renderer = new DomainColoringRenderer(Function.parse("sqrt(1 / z)"), "z",
+            new Complex(-1, -1), new Complex(1, 1), 3, 3);
+        ppm.reset();
+        renderer.render(ppm, DomainColoringRenderer.Format.PPM);
+        assertEquals(Arrays.toString(new byte[] {(byte) 128, (byte) 128, (byte) 128}),
+            Arrays.toString(Arrays.copyOfRange(ppm.toByteArray(), middleRow + 3, middleRow + 6)));
+        renderer = new DomainColoringRenderer(Function.parse("ln(z)"), "z",
+            new Complex(-1, -1), new Complex(1, 1), 3, 3);
+        ppm.reset();
+        renderer.render(ppm, DomainColoringRenderer.Format.PPM);
+        assertEquals(Arrays.toString(new byte[] {(byte) 255, (byte) 255, (byte) 255}),
+            Arrays.toString(Arrays.copyOfRange(ppm.toByteArray(), middleRow + 3, middleRow + 6)));
+        //a larger image is made of several bands
+        renderer = new DomainColoringRenderer(function4, "w", new Complex(-3, -3), new Complex(3, 3), 300, 200);
+        png.reset();
+        renderer.render(png, DomainColoringRenderer.Format.PNG);
+        image = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+        assertEquals(300, image.getWidth());
+        assertEquals(200, image.getHeight());
+    }
+
+    public void testRootFinder()
+    {
+        //a polynomial is recognized and solved all at once
+        Function cubic = Function.parse("(x - 1) * (x^2 + 4) * 2.0");
+        RootFinder finder = new RootFinder(cubic, "x");
+        assertTrue(finder.isPolynomial());
+        assertEquals(3, finder.getDegree());
+        assertEquals(Arrays.asList(new Complex(0, -2), new Complex(0, 2), new Complex(1, 0)),
+            finder.polynomialRoots());
+        List<Complex> inside = cubic.findRoots("x", new Complex(-3, 0), new Complex(3, 3));
+        assertEquals(Arrays.asList(new Complex(0, 2), new Complex(1, 0)), inside);
+        //the same roots come from Newton's and Halley's methods from seeds
+        finder.setPolynomialSolver(false);
+        assertEquals(inside, finder.findRoots(new Complex(-3, 0), new Complex(3, 3)));
+        finder.setMethod(RootFinder.Method.HALLEY);
+        finder.setParallelism(2);
+        assertEquals(inside, finder.findRoots(new Complex(-3, 0), new Complex(3, 3)));
+        //a double root is reported once
+        RootFinder square = new RootFinder(Function.parse("(x - 1.5)^2"), "x");
+        assertEquals(Arrays.asList(new Complex(1.5, 0), new Complex(1.5, 0)), square.polynomialRoots());
+        square.setPolynomialSolver(false);
+        assertEquals(Arrays.asList(new Complex(1.5, 0)), square.findRoots(new Complex(-2, -2), new Complex(2, 2)));
+        //roots the polynomial solver has not converged on are left out
+        square.setPolynomialSolver(true);
+        square.setMaxIterations(1);
+        assertEquals(Arrays.asList(), square.findRoots(new Complex(-2, -2), new Complex(2, 2)));
+        //a polynomial that cancels out to zero has no isolated roots
+        RootFinder zero = new RootFinder(Function.parse("x - x"), "x");
+        assertEquals(0, zero.getDegree());
+        try
+        {
+            zero.findRoots(new Complex(-1, -1), new Complex(1, 1));
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+        }
+        //functions that are not polynomials are solved from seeds
+        Function transcendental = Function.parse("exp(x) - 2");
+        RootFinder general = new RootFinder(transcendental, "x");
+        assertFalse(general.isPolynomial());
+        List<Complex> logs = general.findRoots(new Complex(-1, -7), new Complex(2, 7));
+        assertEquals(Arrays.asList(new Complex(Math.log(2), -2 * Math.PI), new Complex(Math.log(2), 0),
+            new Complex(Math.log(2), 2 * Math.PI)), logs);
+        try
+        {
+            general.polynomialRoots();
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+        }
+        try
+        {
+            new RootFinder(function2, "x");
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testFlightRecorderEvents() throws IOException
+    {
+        Path file = Files.createTempFile("functions", ".jfr");
+        try (Recording recording = new Recording())
+        {
+            for (String name : Arrays.asList("complexNumbers.FunctionEvaluate", "complexNumbers.FunctionDiff",
+                "complexNumbers.FunctionIntegrate", "complexNumbers.TreeCopy"))
+            {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            function2.subAndEval("x", new Complex(1, 0), "y", new Complex(2, 0));
+            function1.diff("x");
+            function1.integrate("x", new Complex(0, 0), new Complex(1, 0));
+            function1.evalBatch("x", new double[10], new double[10], new double[10], new double[10]);
+            recording.stop();
+            recording.dump(file);
+            Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file))
+            {
+                String key = event.getEventType().getName();
+                if (event.hasField("method"))
+                {
+                    key += "/" + event.getString("method");
+                }
+                events.put(key, event);
+            }
+            RecordedEvent evaluate = events.get("complexNumbers.FunctionEvaluate/subAndEval");
+            assertEquals(function2.toString(), evaluate.getString("expression"));
+            assertEquals(4, evaluate.getInt("nodeCount"));
+            assertEquals(2, evaluate.getInt("variableCount"));
+            assertEquals(1, evaluate.getInt("sampleCount"));
+            assertEquals(10, events.get("complexNumbers.FunctionEvaluate/evalBatch").getInt("sampleCount"));
+            assertEquals(4, events.get("complexNumbers.TreeCopy").getInt("nodeCount"));
+            RecordedEvent diff = events.get("complexNumbers.FunctionDiff");
+            assertEquals("x", diff.getString("variable"));
+            assertEquals(5, diff.getInt("nodeCount"));
+            assertEquals(function1.diff("x").toExpression().size(), diff.getInt("resultNodeCount"));
+            RecordedEvent integrate = events.get("complexNumbers.FunctionIntegrate/integrate");
+            assertTrue(integrate.getBoolean("converged"));
+            assertTrue(integrate.getInt("sampleCount") >= 15);
+            assertFalse(integrate.getDuration().isNegative());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    public void testEngineMetrics() throws Exception
+    {
+        EngineMetrics metrics = EngineMetrics.get();
+        metrics.reset();
+        function1.subAndEval("x", new Complex(1, 0));
+        function2.subAndEval("x", new Complex(1, 0), "y", new Complex(2, 0));
+        function1.diff("x");
+        function1.approxIntegral("x", new Complex(0, 0), new Complex(1, 0), 50);
+        Function.parse("0 + x * 1").cleanUp();
+        //the two subAndEval calls and the 50 made by approxIntegral
+        assertEquals(52, metrics.getSubAndEvalCalls());
+        assertEquals(52, metrics.getTreeCopies());
+        assertEquals(50, metrics.getIntegrationSamples());
+        assertEquals(2, metrics.getSimplifierRewrites());
+        assertEquals(52, metrics.getEvaluateLatency().getCount());
+        assertEquals(1, metrics.getDiffLatency().getCount());
+        LatencySummary integrate = metrics.getIntegrateLatency();
+        assertEquals(1, integrate.getCount());
+        assertEquals(integrate.getMax(), integrate.getP50());
+        //the histogram's buckets are within 1/16 of the values in them
+        for (long value : new long[] {0, 15, 16, 17, 100, 12345, 987654321L, 1L << 40})
+        {
+            long bound = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value));
+            assertTrue(bound >= value);
+            assertTrue(bound - value <= value / 16);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+        LatencySummary summary = histogram.summary();
+        assertEquals(1000, summary.getCount());
+        assertEquals(500500.0, summary.getMean(), 0.0);
+        assertTrue(summary.getP50() >= 500000 && summary.getP50() <= 500000 * 17 / 16);
+        assertTrue(summary.getP99() >= 990000 && summary.getP99() <= 1000000);
+        assertEquals(1000000, summary.getMax());
+        //the metrics can be read over JMX
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(EngineMetrics.OBJECT_NAME);
+        assertEquals(52L, server.getAttribute(name, "SubAndEvalCalls"));
+        CompositeData latency = (CompositeData) server.getAttribute(name, "DiffLatency");
+        assertEquals(1L, latency.get("count"));
+        //nodes are counted when a structure of Quantities is built, not when parsing or sharing
+        metrics.reset();
+        Function parsed = Function.parse("x + 1");
+        parsed.copy().copy();
+        assertEquals(0, metrics.getNodesAllocated());
+        parsed.getTopQuantity();
+        assertEquals(3, metrics.getNodesAllocated());
+        assertEquals(2, metrics.getTreeCopies());
+    }
+
+    public void testExpression()
+    {
+        Function f = Function.parse("sqrt(1 + x^2) * exp(y)");
+        Expression original = f.toExpression();
+        //copies share the expression
+        Function g = f.copy();
+        assertSame(original, g.toExpression());
+        //substitution rebuilds only the path to the variable
+        g.substitute("y", new Complex(0, 0));
+        assertSame(original, f.toExpression());
+        assertSame(original.getLeft(), g.toExpression().getLeft());
+        assertEquals("((1.0 + (x^2)).sqrt())", g.toExpression().getLeft().toString());
+        assertEquals(original, Expression.of(f.toExpression().toQuantity()));
+        assertEquals(original.hashCode(), Function.parse(f.toString()).toExpression().hashCode());
+        assertFalse(original.equals(g.toExpression()));
+        assertEquals(8, original.size());
+        //building the structure of the copy leaves the original alone
+        g.getTopQuantity();
+        g.substitute("x", new Complex(2, 0));
+        assertEquals("(((1.0 + (x^2)).sqrt()) * (y.exp()))", f.toString());
+        //diff and subAndEval agree with the structure of Quantities
+        String[] texts = {"sqrt(1 + x^2) * exp(y)", "ln(x) / (x - 2*y)", "exp(ln(x^2)) + sqrt(x)^2",
+            "(x * x) * 3.5 - 1 / x"};
+        for (String text : texts)
+        {
+            Function held = Function.parse(text);
+            Function built = new Function(held.toExpression().toQuantity());
+            assertEquals(built.diff("x").toString(), held.diff("x").toString());
+            assertEquals(built.diff("y").toString(), held.diff("y").toString());
+            assertEquals(built.subAndEval("x", new Complex(0.5, 0.25), "y", new Complex(-1, 2)),
+                held.subAndEval("x", new Complex(0.5, 0.25), "y", new Complex(-1, 2)));
+            assertNull(held.subAndEval("y", new Complex(-1, 2)));
+            assertEquals(text, built.compose("x", function3).toString(),
+                held.compose("x", function3).toString());
+        }
+        //a held function is only read, so threads can share it
+        final Function shared = Function.parse("sqrt(1 + x^2) * exp(x)");
+        final Complex expected = shared.copy().subAndEval("x", new Complex(0.3, 0.1));
+        final AtomicInteger mismatches = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(() ->
+            {
+                for (int i = 0; i < 1000; i++)
+                {
+                    Function copy = shared.copy();
+                    copy.substitute("x", new Complex(0.3, 0.1));
+                    copy.fullySimplify();
+                    if (!expected.equals(shared.subAndEval("x", new Complex(0.3, 0.1))) ||
+                        !expected.equals(copy.toExpression().getValue()))
+                    {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                fail();
+            }
+        }
+        assertEquals(0, mismatches.get());
+        assertEquals("(((1.0 + (x^2)).sqrt()) * (x.exp()))", shared.toString());
+    }
+
+    public void testConcurrentEval() throws Exception
+    {
+        final Function f = Function.parse("sqrt(1 + x^2) * exp(y) / (x - 2*y) + ln(x * y)");
+        //the same function held as a structure of Quantities
+        final Function g = new Function(f.toExpression().toQuantity());
+        final String[] names = {"y", "x"};
+        final int points = 2000;
+        final double[][] real = new double[points][2];
+        final double[][] imag = new double[points][2];
+        final double[] expectedReal = new double[points];
+        final double[] expectedImag = new double[points];
+        EvaluationContext serial = new EvaluationContext();
+        for (int i = 0; i < points; i++)
+        {
+            real[i][0] = Math.cos(i * 0.37);
+            imag[i][0] = Math.sin(i * 0.11);
+            real[i][1] = 0.5 + 0.001 * i;
+            imag[i][1] = -0.25 + 0.0007 * i;
+            f.eval(serial, names, real[i], imag[i]);
+            expectedReal[i] = serial.resultReal();
+            expectedImag[i] = serial.resultImag();
+        }
+        //the shared program agrees with evaluating the tree
+        Complex check = f.subAndEval("x", new Complex(real[7][1], imag[7][1]),
+            "y", new Complex(real[7][0], imag[7][0]));
+        assertEquals(check, new Complex(expectedReal[7], expectedImag[7]));
+        //many tasks evaluate the one function at once, each with its own context
+        //(a fixed pool stands in for virtual threads, which need Java 21)
+        int threads = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int t = 0; t < 4 * threads; t++)
+        {
+            final int offset = t * 31;
+            tasks.add(() ->
+            {
+                EvaluationContext context = new EvaluationContext();
+                start.await();
+                int mismatches = 0;
+                for (int k = 0; k < points; k++)
+                {
+                    int i = (k + offset) % points;
+                    Function function = (k % 2 == 0) ? f : g;
+                    function.eval(context, names, real[i], imag[i]);
+                    if (Double.doubleToLongBits(context.resultReal()) != Double.doubleToLongBits(expectedReal[i]) ||
+                        Double.doubleToLongBits(context.resultImag()) != Double.doubleToLongBits(expectedImag[i]))
+                    {
+                        mismatches++;
+                    }
+                }
+                return mismatches;
+            });
+        }
+        try
+        {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (Callable<Integer> task : tasks)
+            {
+                results.add(pool.submit(task));
+            }
+            start.countDown();
+            for (Future<Integer> result : results)
+            {
+                assertEquals(0, result.get().intValue());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        //nothing was changed, and once compiled, evaluating allocates nothing
+        assertEquals("(((((1.0 + (x^2)).sqrt()) * (y.exp())) / (x - (2.0 * y))) + ((x * y).ln()))",
+            f.toString());
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof ThreadMXBean && ((ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled())
+        {
+            ThreadMXBean allocation = (ThreadMXBean) threadBean;
+            long id = Thread.currentThread().getId();
+            long before = allocation.getThreadAllocatedBytes(id);
+            for (int i = 0; i < 10 * points; i++)
+            {
+                f.eval(serial, names, real[i % points], imag[i % points]);
+                g.eval(serial, names, real[i % points], imag[i % points]);
+            }
+            assertTrue(allocation.getThreadAllocatedBytes(id) - before < 1000);
+        }
+        //changing the structure of Quantities compiles the program again
+        BinaryOperation top = (BinaryOperation) g.getTopQuantity();
+        top.setRightChild(new Complex(1, 0));
+        g.eval(serial, names, real[7], imag[7]);
+        Complex changed = g.subAndEval("x", new Complex(real[7][1], imag[7][1]),
+            "y", new Complex(real[7][0], imag[7][0]));
+        assertEquals(changed, new Complex(serial.resultReal(), serial.resultImag()));
+        g.setTopQuantity(new Complex(5, 0));
+        g.eval(serial, 0, 0);
+        assertEquals(5.0, serial.resultReal(), 0.0);
+        //so does changing a nested node of a tree built a node at a time, as in setUp
+        function1.eval(serial, 3, 0);
+        assertEquals(Math.sqrt(10), serial.resultReal(), 1e-15);
+        BinaryOperation plus = (BinaryOperation) ((UnaryOperation) function1.getTopQuantity()).getChild();
+        plus.setLeftChild(new Complex(16, 0));
+        function1.eval(serial, 3, 0);
+        assertEquals(5.0, serial.resultReal(), 1e-15);
+        //and changing a subtree that was built apart and attached afterwards
+        UnaryOperation square = new UnaryOperation("^2");
+        square.setChild(new Variable("x"));
+        plus.setRightChild(square);
+        function1.eval(serial, 3, 0);
+        assertEquals(5.0, serial.resultReal(), 1e-15);
+        square.setChild(new Complex(3, 0));
+        function1.eval(serial, 0, 0);
+        assertEquals(5.0, serial.resultReal(), 1e-15);
+        //a context grows to fit a bigger program
+        CompiledFunction small = Function.parse("x + 1").compile();
+        EvaluationContext context = small.newContext();
+        Function big = Function.parse("((x * x) * (x * (x * (x + 1))))");
+        big.eval(context, 2, 0);
+        assertEquals(48.0, context.resultReal(), 0.0);
+        small.eval(context, 2, 0);
+        assertEquals(3.0, context.resultReal(), 0.0);
+    }
+
+}
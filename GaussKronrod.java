@@ -0,0 +1,255 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Adaptive Gauss-Kronrod quadrature. Each interval is integrated with the
+ * 15-point Kronrod rule, and the 7-point Gauss rule that is embedded in it
+ * (it uses every other Kronrod node) gives an error estimate for free. The
+ * interval with the largest estimated error is cut in half until the total
+ * error estimate is within the tolerance or the evaluation budget is spent.
+ *
+ * The integrand is f(z(t)) * z'(t) for t between 0 and 1, where z(t) runs
+ * along a Contour (for approxIntegral-style bounds, the straight segment
+ * from start to end). The 15 points of each rule are evaluated together
+ * with evalBatch.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+class GaussKronrod {
+
+    //Kronrod nodes on [-1, 1] (only the non-negative half; the last one is the center)
+    private static final double[] XGK = {
+        0.991455371120812639206854697526329,
+        0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926,
+        0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013,
+        0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245,
+        0.000000000000000000000000000000000
+    };
+
+    //weights of the 15-point Kronrod rule
+    private static final double[] WGK = {
+        0.022935322010529224963732008058970,
+        0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518,
+        0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550,
+        0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649,
+        0.209482141084727828012999174891714
+    };
+
+    //weights of the 7-point Gauss rule, whose nodes are XGK[1], XGK[3], XGK[5] and XGK[7]
+    private static final double[] WG = {
+        0.129484966168869693270611432679082,
+        0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975,
+        0.417959183673469387755102040816327
+    };
+
+    /**
+     * Number of integrand evaluations made by one application of the rule
+     */
+    static final int POINTS = 15;
+
+    private final CompiledFunction compiled;
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+    private final int maxEvaluations;
+
+    //scratch space for one application of the rule
+    private final double[] pointReal = new double[POINTS];
+    private final double[] pointImag = new double[POINTS];
+    private final double[] valueReal = new double[POINTS];
+    private final double[] valueImag = new double[POINTS];
+    //z'(t) at each point of the rule
+    private final double[] slopeReal = new double[POINTS];
+    private final double[] slopeImag = new double[POINTS];
+    private final double[] pathValues = new double[4];
+
+    /**
+     * One piece of the parameter range together with the rule's results on it
+     */
+    private static class Interval implements Comparable<Interval> {
+
+        final double a;
+        final double b;
+        final double real;
+        final double imag;
+        final double error;
+
+        Interval(double a, double b, double real, double imag, double error)
+        {
+            this.a = a;
+            this.b = b;
+            this.real = real;
+            this.imag = imag;
+            this.error = error;
+        }
+
+        /**
+         * Orders intervals from the largest error to the smallest
+         */
+        public int compareTo(Interval other)
+        {
+            return Double.compare(other.error, this.error);
+        }
+    }
+
+    /**
+     * Creates an integrator for a compiled function of one variable
+     *
+     * @param compiled the compiled integrand (used only by this integrator)
+     * @param absoluteTolerance the acceptable absolute error
+     * @param relativeTolerance the acceptable error relative to the magnitude of the result
+     * @param maxEvaluations the most times the integrand may be evaluated
+     */
+    GaussKronrod(CompiledFunction compiled, double absoluteTolerance,
+        double relativeTolerance, int maxEvaluations)
+    {
+        if (maxEvaluations < POINTS)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.compiled = compiled;
+        this.absoluteTolerance = absoluteTolerance;
+        this.relativeTolerance = relativeTolerance;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    /**
+     * Integrates along the straight segment from start to end
+     *
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     * @return the value, error estimate and cost of the integral
+     */
+    IntegrationResult integrate(Complex start, Complex end)
+    {
+        return this.integrate(Contour.segment(start, end));
+    }
+
+    /**
+     * Integrates along a single-piece contour
+     *
+     * @param path the contour to integrate along
+     * @return the value, error estimate and cost of the integral
+     */
+    IntegrationResult integrate(Contour path)
+    {
+        PriorityQueue<Interval> intervals = new PriorityQueue<Interval>();
+        //intervals too short to cut in half again
+        ArrayList<Interval> finished = new ArrayList<Interval>();
+        intervals.add(this.apply(path, 0, 1));
+        int evaluations = POINTS;
+        double totalReal = intervals.peek().real;
+        double totalImag = intervals.peek().imag;
+        double totalError = intervals.peek().error;
+        while (!intervals.isEmpty() && evaluations + 2 * POINTS <= maxEvaluations &&
+            !(totalError <= this.tolerance(totalReal, totalImag)))
+        {
+            Interval worst = intervals.poll();
+            double middle = 0.5 * (worst.a + worst.b);
+            if (!(middle > worst.a && middle < worst.b))
+            {
+                finished.add(worst);
+                continue;
+            }
+            Interval left = this.apply(path, worst.a, middle);
+            Interval right = this.apply(path, middle, worst.b);
+            evaluations += 2 * POINTS;
+            totalReal += left.real + right.real - worst.real;
+            totalImag += left.imag + right.imag - worst.imag;
+            totalError += left.error + right.error - worst.error;
+            intervals.add(left);
+            intervals.add(right);
+        }
+        //add the pieces up again from scratch, so no rounding error is left over
+        //from the running totals
+        finished.addAll(intervals);
+        MutableComplex total = new MutableComplex();
+        double error = 0;
+        for (Interval interval : finished)
+        {
+            total.addInPlace(interval.real, interval.imag);
+            error += interval.error;
+        }
+        boolean converged = error <= this.tolerance(total.real(), total.imag());
+        return new IntegrationResult(total.toComplex(), error, evaluations, converged);
+    }
+
+    /**
+     * Finds the error allowed for a result of the given value
+     */
+    private double tolerance(double real, double imag)
+    {
+        return Math.max(absoluteTolerance, relativeTolerance * Math.sqrt(real * real + imag * imag));
+    }
+
+    /**
+     * Applies the 15-point Kronrod rule and the 7-point Gauss rule to the
+     * parameter interval [a, b]
+     */
+    private Interval apply(Contour path, double a, double b)
+    {
+        double center = 0.5 * (a + b);
+        double halfLength = 0.5 * (b - a);
+        for (int j = 0; j < 7; j++)
+        {
+            double offset = halfLength * XGK[j];
+            this.setPoint(2 * j, path, center - offset);
+            this.setPoint(2 * j + 1, path, center + offset);
+        }
+        this.setPoint(14, path, center);
+        compiled.evalBatch(pointReal, pointImag, valueReal, valueImag);
+        //chain rule: f(z(t)) * z'(t)
+        for (int k = 0; k < POINTS; k++)
+        {
+            double re = valueReal[k];
+            double im = valueImag[k];
+            valueReal[k] = Complex.mulRe(re, im, slopeReal[k], slopeImag[k]);
+            valueImag[k] = Complex.mulIm(re, im, slopeReal[k], slopeImag[k]);
+        }
+        double kronrodReal = WGK[7] * valueReal[14];
+        double kronrodImag = WGK[7] * valueImag[14];
+        double gaussReal = WG[3] * valueReal[14];
+        double gaussImag = WG[3] * valueImag[14];
+        for (int j = 0; j < 7; j++)
+        {
+            double sumReal = valueReal[2 * j] + valueReal[2 * j + 1];
+            double sumImag = valueImag[2 * j] + valueImag[2 * j + 1];
+            kronrodReal += WGK[j] * sumReal;
+            kronrodImag += WGK[j] * sumImag;
+            if (j % 2 == 1)
+            {
+                gaussReal += WG[j / 2] * sumReal;
+                gaussImag += WG[j / 2] * sumImag;
+            }
+        }
+        kronrodReal *= halfLength;
+        kronrodImag *= halfLength;
+        gaussReal *= halfLength;
+        gaussImag *= halfLength;
+        double errorReal = kronrodReal - gaussReal;
+        double errorImag = kronrodImag - gaussImag;
+        return new Interval(a, b, kronrodReal, kronrodImag,
+            Math.sqrt(errorReal * errorReal + errorImag * errorImag));
+    }
+
+    /**
+     * Stores z(t) and z'(t) as the index-th point of the rule
+     */
+    private void setPoint(int index, Contour path, double t)
+    {
+        path.evaluate(t, pathValues);
+        pointReal[index] = pathValues[0];
+        pointImag[index] = pathValues[1];
+        slopeReal[index] = pathValues[2];
+        slopeImag[index] = pathValues[3];
+    }
+}
@@ -0,0 +1,450 @@
+package complexNumbers;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates a compiled function of one variable at every point of a
+ * rectangular grid in the complex plane, spreading the work over a
+ * fork/join pool.
+ *
+ * The grid has width columns and height rows. Both corners are sampled:
+ * column 0 has the real part of lowerLeft and column width - 1 the real
+ * part of upperRight. Rows run from the top down, as in an image, so row 0
+ * has the imaginary part of upperRight. The result for the point in column
+ * c and row r is stored at index r * width + c.
+ *
+ * The grid is cut into tiles (64 by 64 points unless setTileSize is called)
+ * small enough that a tile's inputs, outputs and the evaluator's register
+ * blocks stay in cache. Each tile is evaluated by one task, using an
+ * EvaluationContext and tile buffers that belong to the pool thread
+ * running it and are reused for every tile that thread evaluates, so no
+ * mutable state is shared between threads and evaluating a tile
+ * allocates nothing once a thread's buffers exist. Every point is computed the same way whatever the tile size or
+ * number of threads, so the results are bit-for-bit the same for every
+ * setting.
+ *
+ * cancel may be called from any thread while evaluate is running; tiles
+ * that have not started are then skipped. Each call to evaluate starts out
+ * not cancelled, so a GridEvaluation can be run again after a cancel. A ProgressListener is told about
+ * each finished tile, on the thread that evaluated it.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class GridEvaluation {
+
+    /**
+     * Receives a call each time a tile of the grid has been evaluated.
+     * Calls come from the pool's threads, possibly several at once.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after a tile has been evaluated and stored
+         *
+         * @param tilesDone the number of tiles finished so far, including this one
+         * @param tileCount the number of tiles in the grid
+         */
+        void tileDone(int tilesDone, int tileCount);
+    }
+
+    private final CompiledFunction compiled;
+    private final int width;
+    private final int height;
+    private final double leftReal;
+    private final double topImag;
+    private final double stepReal;
+    private final double stepImag;
+    private int tileWidth = 64;
+    private int tileHeight = 64;
+    private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    private ProgressListener listener;
+    private volatile boolean cancelled;
+    private final AtomicInteger tilesDone = new AtomicInteger();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Sets up the evaluation of a compiled function of (at most) one variable
+     *
+     * @param compiled the function to evaluate
+     * @param lowerLeft the corner of the grid with the smallest real and imaginary parts
+     * @param upperRight the corner of the grid with the largest real and imaginary parts
+     * @param width the number of columns
+     * @param height the number of rows
+     * @throws IllegalArgumentException if width or height is less than 1
+     */
+    GridEvaluation(CompiledFunction compiled, Complex lowerLeft, Complex upperRight, int width, int height)
+    {
+        if (width < 1 || height < 1)
+        {
+            throw new IllegalArgumentException("grid must be at least 1 by 1");
+        }
+        this.compiled = compiled;
+        this.width = width;
+        this.height = height;
+        this.leftReal = lowerLeft.real();
+        this.topImag = upperRight.imag();
+        this.stepReal = width > 1 ? (upperRight.real() - lowerLeft.real()) / (width - 1) : 0;
+        this.stepImag = height > 1 ? (upperRight.imag() - lowerLeft.imag()) / (height - 1) : 0;
+    }
+
+    /**
+     * Gets the number of columns in the grid
+     *
+     * @return the width field
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Gets the number of rows in the grid
+     *
+     * @return the height field
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Sets the number of points in each tile
+     *
+     * @param tileWidth the number of columns in a tile
+     * @param tileHeight the number of rows in a tile
+     * @throws IllegalArgumentException if either is less than 1
+     */
+    public void setTileSize(int tileWidth, int tileHeight)
+    {
+        if (tileWidth < 1 || tileHeight < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Sets the number of threads that evaluate tiles. The common pool is used
+     * when this matches its parallelism (the default)
+     *
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the listener told about each finished tile
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setProgressListener(ProgressListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the number of tiles the grid is cut into
+     *
+     * @return the number of tiles
+     */
+    public int getTileCount()
+    {
+        return this.tileColumns() * ((height + tileHeight - 1) / tileHeight);
+    }
+
+    /**
+     * Gets the number of tiles finished by the last (or current) call to evaluate
+     *
+     * @return the number of tiles evaluated so far
+     */
+    public int getTilesDone()
+    {
+        return tilesDone.get();
+    }
+
+    /**
+     * Stops the evaluation that is running. Tiles that have already
+     * started are finished. This has no effect on later evaluations
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Tells whether cancel has been called since the last evaluation started
+     *
+     * @return the cancelled field
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Evaluates the grid into arrays
+     *
+     * @param outReal receives the real parts of the results, indexed by row * width + column
+     * @param outImag receives the imaginary parts of the results
+     * @return true if every tile was evaluated, false if the evaluation was cancelled
+     * @throws IllegalArgumentException if an array is shorter than width * height
+     */
+    public boolean evaluate(double[] outReal, double[] outImag)
+    {
+        if (outReal.length < (long) width * height || outImag.length < (long) width * height)
+        {
+            throw new IllegalArgumentException("output arrays are too short");
+        }
+        return this.run(new Output(outReal, outImag, null));
+    }
+
+    /**
+     * Evaluates the grid into a buffer, which may be direct (off-heap). The
+     * result for index i is stored with its real part at 2 * i and its
+     * imaginary part at 2 * i + 1, counting from index 0 of the buffer; the
+     * buffer's position is not changed
+     *
+     * @param out receives the results, real and imaginary parts interleaved
+     * @return true if every tile was evaluated, false if the evaluation was cancelled
+     * @throws IllegalArgumentException if the buffer holds fewer than 2 * width * height doubles
+     */
+    public boolean evaluate(DoubleBuffer out)
+    {
+        if (out.limit() < 2L * width * height)
+        {
+            throw new IllegalArgumentException("output buffer is too small");
+        }
+        return this.run(new Output(null, null, out));
+    }
+
+    /**
+     * Evaluates some of the rows of the grid into arrays, using the tiles
+     * and pool of a full evaluation. Used to render a grid a band at a time
+     *
+     * @param firstRow the first row to evaluate
+     * @param rowCount the number of rows to evaluate
+     * @param outReal receives the real parts, indexed by (row - firstRow) * width + column
+     * @param outImag receives the imaginary parts
+     * @return true if every tile was evaluated, false if the evaluation was cancelled
+     */
+    boolean evaluateRows(int firstRow, int rowCount, double[] outReal, double[] outImag)
+    {
+        return this.run(new Output(outReal, outImag, null), firstRow, rowCount);
+    }
+
+    /**
+     * Evaluates every tile into the given output
+     */
+    private boolean run(Output output)
+    {
+        return this.run(output, 0, height);
+    }
+
+    /**
+     * Evaluates the tiles of a band of rows into the given output
+     */
+    private boolean run(Output output, int firstRow, int rowCount)
+    {
+        cancelled = false;
+        tilesDone.set(0);
+        int tileCount = this.tileColumns() * ((rowCount + tileHeight - 1) / tileHeight);
+        TileTask all = new TileTask(output, firstRow, rowCount, 0, tileCount);
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism())
+        {
+            ForkJoinPool.commonPool().invoke(all);
+        }
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try
+            {
+                pool.invoke(all);
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        return !cancelled;
+    }
+
+    private int tileColumns()
+    {
+        return (width + tileWidth - 1) / tileWidth;
+    }
+
+    /**
+     * Evaluates one tile and stores its results
+     *
+     * @param worker the registers and buffers of the calling thread
+     * @param output where the results go, starting with row bandStart
+     * @param bandStart the first row being evaluated
+     * @param bandRows the number of rows being evaluated
+     * @param tile the index of the tile within the band, counting across and then down
+     * @param tileCount the number of tiles in the band
+     */
+    private void evaluateTile(Worker worker, Output output, int bandStart, int bandRows,
+        int tile, int tileCount)
+    {
+        int firstColumn = (tile % this.tileColumns()) * tileWidth;
+        int firstRow = bandStart + (tile / this.tileColumns()) * tileHeight;
+        int columns = Math.min(tileWidth, width - firstColumn);
+        int rows = Math.min(tileHeight, bandStart + bandRows - firstRow);
+        int count = columns * rows;
+        worker.reserve(count);
+        double[] re = worker.real[0];
+        double[] im = worker.imag[0];
+        for (int r = 0; r < rows; r++)
+        {
+            double imag = topImag - stepImag * (firstRow + r);
+            for (int c = 0; c < columns; c++)
+            {
+                re[r * columns + c] = leftReal + stepReal * (firstColumn + c);
+                im[r * columns + c] = imag;
+            }
+        }
+        double[] outRe = worker.outReal;
+        double[] outIm = worker.outImag;
+        compiled.evalBatch(worker.context, worker.real, worker.imag, outRe, outIm, count);
+        for (int r = 0; r < rows; r++)
+        {
+            output.storeRow((firstRow - bandStart + r) * width + firstColumn, outRe, outIm, r * columns, columns);
+        }
+        int done = tilesDone.incrementAndGet();
+        ProgressListener current = listener;
+        if (current != null)
+        {
+            current.tileDone(done, tileCount);
+        }
+    }
+
+    /**
+     * The registers and tile buffers of one pool thread
+     */
+    private static class Worker {
+
+        private final EvaluationContext context = new EvaluationContext();
+        private double[][] real = {new double[0]};
+        private double[][] imag = {new double[0]};
+        private double[] outReal = new double[0];
+        private double[] outImag = new double[0];
+
+        /**
+         * Makes sure the buffers hold at least count points
+         */
+        void reserve(int count)
+        {
+            if (outReal.length < count)
+            {
+                real = new double[][] {new double[count]};
+                imag = new double[][] {new double[count]};
+                outReal = new double[count];
+                outImag = new double[count];
+            }
+        }
+    }
+
+    /**
+     * The arrays or buffer that results are stored in
+     */
+    private static class Output {
+
+        private final double[] real;
+        private final double[] imag;
+        private final DoubleBuffer buffer;
+
+        Output(double[] real, double[] imag, DoubleBuffer buffer)
+        {
+            this.real = real;
+            this.imag = imag;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Copies count results, starting at from in the tile, to index in the grid
+         */
+        void storeRow(int index, double[] tileReal, double[] tileImag, int from, int count)
+        {
+            if (buffer == null)
+            {
+                System.arraycopy(tileReal, from, real, index, count);
+                System.arraycopy(tileImag, from, imag, index, count);
+            }
+            else
+            {
+                //absolute puts leave the buffer's position alone, so tasks can share it
+                for (int k = 0; k < count; k++)
+                {
+                    buffer.put(2 * (index + k), tileReal[from + k]);
+                    buffer.put(2 * (index + k) + 1, tileImag[from + k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a range of tiles, splitting the range in half until each
+     * task is left with a single tile
+     */
+    private class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Output output;
+        private final int bandStart;
+        private final int bandRows;
+        private final int from;
+        private final int to;
+        private final int tileCount;
+
+        /**
+         * Creates a task for the tiles from (inclusive) to to (exclusive) of
+         * the band of rows starting at bandStart
+         */
+        TileTask(Output output, int bandStart, int bandRows, int from, int to)
+        {
+            this(output, bandStart, bandRows, from, to, to - from);
+        }
+
+        private TileTask(Output output, int bandStart, int bandRows, int from, int to, int tileCount)
+        {
+            this.output = output;
+            this.bandStart = bandStart;
+            this.bandRows = bandRows;
+            this.from = from;
+            this.to = to;
+            this.tileCount = tileCount;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (cancelled)
+            {
+                return;
+            }
+            if (to - from == 1)
+            {
+                evaluateTile(workers.get(), output, bandStart, bandRows, from, tileCount);
+            }
+            else if (to > from)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(output, bandStart, bandRows, from, middle, tileCount),
+                    new TileTask(output, bandStart, bandRows, middle, to, tileCount));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package complexNumbers;
+
+/**
+ * The outcome of an adaptive integration: the approximate value of the
+ * integral, an estimate of its absolute error, how many times the
+ * integrand was evaluated, and whether the requested tolerance was met
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public class IntegrationResult {
+
+    private final Complex value;
+    private final double errorEstimate;
+    private final int evaluations;
+    private final boolean converged;
+
+    /**
+     * Creates an IntegrationResult
+     *
+     * @param value the approximate value of the integral
+     * @param errorEstimate an estimate of the absolute error of value
+     * @param evaluations the number of times the integrand was evaluated
+     * @param converged true if the error estimate is within the requested tolerance
+     */
+    public IntegrationResult(Complex value, double errorEstimate, int evaluations, boolean converged)
+    {
+        this.value = value;
+        this.errorEstimate = errorEstimate;
+        this.evaluations = evaluations;
+        this.converged = converged;
+    }
+
+    /**
+     * Gets the approximate value of the integral
+     *
+     * @return the value field
+     */
+    public Complex getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Gets the estimate of the absolute error of the value
+     *
+     * @return the errorEstimate field
+     */
+    public double getErrorEstimate()
+    {
+        return errorEstimate;
+    }
+
+    /**
+     * Gets the number of times the integrand was evaluated
+     *
+     * @return the evaluations field
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Tells whether the requested tolerance was met before the
+     * evaluation budget ran out
+     *
+     * @return the converged field
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    /**
+     * Expresses this result as a String
+     */
+    public String toString()
+    {
+        return value + " +/- " + errorEstimate + " (" + evaluations + " evaluations)";
+    }
+}
@@ -0,0 +1,145 @@
+package complexNumbers;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets, in the
+ * style of HdrHistogram: times below 16 ns have a bucket each, and every
+ * power of two above that is split into 16 buckets, so a bucket is never
+ * wider than 1/16 of the values in it. Times of 2^41 ns (about 37 minutes)
+ * or more share the last bucket.
+ *
+ * Every bucket is a LongAdder, so threads recording at the same time update
+ * separate cells instead of contending for one counter. A summary read
+ * while times are being recorded may be slightly inconsistent, but is
+ * never blocked and never blocks the recording threads.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    //the last bucket holds everything from 2^(MAX_EXPONENT + 1) up
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one time
+     *
+     * @param nanos the time in nanoseconds (negative times count as 0)
+     */
+    void record(long nanos)
+    {
+        long value = Math.max(nanos, 0);
+        buckets[bucketOf(value)].increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Finds the bucket a time falls in
+     */
+    static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+        {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Finds the largest time that falls in a bucket
+     */
+    static long upperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        if (bucket == BUCKETS - 1)
+        {
+            return Long.MAX_VALUE;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Takes a snapshot of the histogram
+     *
+     * @return the count, mean, percentiles and maximum of the recorded times
+     */
+    LatencySummary summary()
+    {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long largest = max.get();
+        double mean = count == 0 ? 0 : (double) total.sum() / count;
+        return new LatencySummary(count, mean, percentile(counts, count, 0.5, largest),
+            percentile(counts, count, 0.9, largest), percentile(counts, count, 0.99, largest),
+            percentile(counts, count, 0.999, largest), largest);
+    }
+
+    /**
+     * Finds the upper bound of the bucket holding the given fraction of the times
+     */
+    private static long percentile(long[] counts, long count, double fraction, long largest)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(upperBound(i), largest);
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Forgets every recorded time
+     */
+    void reset()
+    {
+        for (LongAdder bucket : buckets)
+        {
+            bucket.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,103 @@
+package complexNumbers;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A snapshot of a latency histogram: how many times were recorded, and the
+ * mean, percentiles and maximum of those times, in nanoseconds. Percentiles
+ * are the upper bound of the histogram bucket they fall in, so they are at
+ * most 1/16 (6.25%) above the true value.
+ *
+ * Shown by JMX clients as a composite value with one item per getter.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class LatencySummary {
+
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    /**
+     * Creates a summary with the given values
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public LatencySummary(long count, double mean, long p50, long p90, long p99, long p999, long max)
+    {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of times recorded
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the mean time, or 0 if nothing was recorded
+     */
+    public double getMean()
+    {
+        return mean;
+    }
+
+    /**
+     * @return the median time
+     */
+    public long getP50()
+    {
+        return p50;
+    }
+
+    /**
+     * @return the 90th percentile of the times
+     */
+    public long getP90()
+    {
+        return p90;
+    }
+
+    /**
+     * @return the 99th percentile of the times
+     */
+    public long getP99()
+    {
+        return p99;
+    }
+
+    /**
+     * @return the 99.9th percentile of the times
+     */
+    public long getP999()
+    {
+        return p999;
+    }
+
+    /**
+     * @return the longest time recorded
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + count + " mean=" + mean + "ns p50=" + p50 + "ns p90=" + p90 +
+            "ns p99=" + p99 + "ns p999=" + p999 + "ns max=" + max + "ns";
+    }
+}
@@ -0,0 +1,267 @@
+package complexNumbers;
+
+/**
+ * A complex number a + bi whose value can be changed in place. Meant to be
+ * used as an accumulator or scratch value in loops that would otherwise
+ * create a new Complex on every operation. Every operation overwrites this
+ * object with the result and returns this object, so calls can be chained:
+ *
+ *     total.set(x).mulInPlace(x).addInPlace(one)
+ *
+ * The arithmetic is done by the static kernels in Complex, so the results
+ * are exactly the same as those of the corresponding Complex methods.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public class MutableComplex {
+
+    /**
+     * Real part
+     */
+    private double a;
+    /**
+     * Imaginary part
+     */
+    private double b;
+
+    /**
+     * Creates a mutable complex number equal to zero
+     */
+    public MutableComplex()
+    {
+        this(0, 0);
+    }
+
+    /**
+     * Creates a mutable complex number with the given
+     * real and imaginary parts
+     */
+    public MutableComplex(double a, double b)
+    {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * returns the real part of the number
+     * @return the real part of the number
+     */
+    public double real()
+    {
+        return a;
+    }
+
+    /**
+     * returns the imaginary part of the number
+     * @return the imaginary part of the number
+     */
+    public double imag()
+    {
+        return b;
+    }
+
+    /**
+     * Finds the magnitude of this number
+     * @return magnitude (double)
+     */
+    public double mag()
+    {
+        return Math.sqrt(a * a + b * b);
+    }
+
+    /**
+     * Finds the argument of this number
+     * Outputs value between zero and 2 * pi
+     * @throws ArithmeticException if this number is zero or NaN
+     * @return argument (double)
+     */
+    public double arg()
+    {
+        double arg = Complex.arg(a, b);
+        if ((a == 0 && b == 0) || Double.isNaN(arg))
+        {
+            throw new ArithmeticException();
+        }
+        return arg;
+    }
+
+    /**
+     * Creates an immutable Complex with the current value of this number
+     *
+     * @return a Complex equal to this number
+     */
+    public Complex toComplex()
+    {
+        return new Complex(a, b);
+    }
+
+    /**
+     * Represents the number as a String in the same form as Complex
+     *
+     * @return a String representation of the number
+     */
+    public String toString()
+    {
+        return this.toComplex().toString();
+    }
+
+    /**
+     * Sets this number to a + bi
+     *
+     * @return this number
+     */
+    public MutableComplex set(double a, double b)
+    {
+        this.a = a;
+        this.b = b;
+        return this;
+    }
+
+    /**
+     * Sets this number to the value of a Complex
+     *
+     * @return this number
+     */
+    public MutableComplex set(Complex value)
+    {
+        return this.set(value.real(), value.imag());
+    }
+
+    /**
+     * Adds c + di to this number
+     *
+     * @return this number
+     */
+    public MutableComplex addInPlace(double c, double d)
+    {
+        a += c;
+        b += d;
+        return this;
+    }
+
+    /**
+     * Adds a Complex to this number
+     *
+     * @return this number
+     */
+    public MutableComplex addInPlace(Complex second)
+    {
+        return this.addInPlace(second.real(), second.imag());
+    }
+
+    /**
+     * Subtracts c + di from this number
+     *
+     * @return this number
+     */
+    public MutableComplex subtractInPlace(double c, double d)
+    {
+        a -= c;
+        b -= d;
+        return this;
+    }
+
+    /**
+     * Subtracts a Complex from this number
+     *
+     * @return this number
+     */
+    public MutableComplex subtractInPlace(Complex second)
+    {
+        return this.subtractInPlace(second.real(), second.imag());
+    }
+
+    /**
+     * Multiplies this number by c + di
+     *
+     * @return this number
+     */
+    public MutableComplex mulInPlace(double c, double d)
+    {
+        return this.set(Complex.mulRe(a, b, c, d), Complex.mulIm(a, b, c, d));
+    }
+
+    /**
+     * Multiplies this number by a Complex
+     *
+     * @return this number
+     */
+    public MutableComplex mulInPlace(Complex second)
+    {
+        return this.mulInPlace(second.real(), second.imag());
+    }
+
+    /**
+     * Divides this number by c + di
+     *
+     * @return this number
+     */
+    public MutableComplex divInPlace(double c, double d)
+    {
+        return this.set(Complex.divRe(a, b, c, d), Complex.divIm(a, b, c, d));
+    }
+
+    /**
+     * Divides this number by a Complex
+     *
+     * @return this number
+     */
+    public MutableComplex divInPlace(Complex second)
+    {
+        return this.divInPlace(second.real(), second.imag());
+    }
+
+    /**
+     * Replaces this number with its conjugate
+     *
+     * @return this number
+     */
+    public MutableComplex conjInPlace()
+    {
+        b = (-1) * b;
+        return this;
+    }
+
+    /**
+     * Squares this number
+     *
+     * @return this number
+     */
+    public MutableComplex squareInPlace()
+    {
+        return this.mulInPlace(a, b);
+    }
+
+    /**
+     * Replaces this number with its square root
+     * (the one with the positive real part)
+     *
+     * @return this number
+     */
+    public MutableComplex sqrtInPlace()
+    {
+        return this.set(Complex.sqrtRe(a, b), Complex.sqrtIm(a, b));
+    }
+
+    /**
+     * Raises e to the power of this number
+     *
+     * @return this number
+     */
+    public MutableComplex expInPlace()
+    {
+        return this.set(Complex.expRe(a, b), Complex.expIm(a, b));
+    }
+
+    /**
+     * Replaces this number with its natural logarithm
+     * (imaginary value is set between 0 and 2*pi)
+     *
+     * @return this number
+     */
+    public MutableComplex lnInPlace()
+    {
+        return this.set(Complex.lnRe(a, b), Complex.lnIm(a, b));
+    }
+}
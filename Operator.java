@@ -0,0 +1,437 @@
+package complexNumbers;
+
+/**
+ * The operations that a UnaryOperation or BinaryOperation can perform.
+ * Each operator knows the symbol it was historically identified by (the
+ * opType String), how many operands it takes, how to evaluate itself on
+ * Complex operands, how to print itself, and how to differentiate itself.
+ *
+ * The derivative rules are written once here and used everywhere: derivative
+ * builds the derivative of an operation symbolically, for any kind of node
+ * that has a Builder (Expression and ExpressionDag both do), and
+ * applyWithDerivative carries a value and its derivative through the
+ * operation at once, for CompiledFunction.evalWithDerivative.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public enum Operator {
+
+    SQUARE("^2", 1),
+    SQRT("sqrt", 1),
+    EXP("exp", 1),
+    LN("ln", 1),
+    ADD("+", 2),
+    SUBTRACT("-", 2),
+    MULTIPLY("*", 2),
+    DIVIDE("/", 2);
+
+    /**
+     * Makes the nodes of some kind of expression, simplifying them as it
+     * goes, so that the derivative rules can build any kind of expression
+     *
+     * @param <T> the type of node built
+     */
+    interface Builder<T> {
+
+        /**
+         * Makes the node for a constant
+         */
+        T constant(double real, double imag);
+
+        /**
+         * Tells whether a node is the constant 0
+         */
+        boolean isZero(T node);
+
+        /**
+         * Makes the node for a unary operator applied to a node
+         */
+        T apply(Operator operator, T operand);
+
+        /**
+         * Makes the node for a binary operator applied to two nodes
+         */
+        T apply(Operator operator, T left, T right);
+    }
+
+    private final String symbol;
+    private final int arity;
+
+    /**
+     * Creates an Operator
+     *
+     * @param symbol the opType String that identifies this operator
+     * @param arity the number of operands the operator takes
+     */
+    Operator(String symbol, int arity)
+    {
+        this.symbol = symbol;
+        this.arity = arity;
+    }
+
+    /**
+     * Gets the opType String that identifies this operator
+     *
+     * @return the symbol of this operator
+     */
+    public String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Gets the number of operands this operator takes
+     *
+     * @return 1 for unary operators, 2 for binary operators
+     */
+    public int getArity()
+    {
+        return arity;
+    }
+
+    /**
+     * Tells whether this operator is performed by a UnaryOperation
+     *
+     * @return true if the operator takes one operand
+     */
+    public boolean isUnary()
+    {
+        return arity == 1;
+    }
+
+    /**
+     * Finds the operator identified by an opType String
+     *
+     * @param symbol the opType String, such as "^2" or "+"
+     * @return the matching operator
+     * @throws IllegalArgumentException if no operator has that symbol
+     */
+    public static Operator fromSymbol(String symbol)
+    {
+        switch (symbol)
+        {
+            case "^2":
+                return SQUARE;
+            case "sqrt":
+                return SQRT;
+            case "exp":
+                return EXP;
+            case "ln":
+                return LN;
+            case "+":
+                return ADD;
+            case "-":
+                return SUBTRACT;
+            case "*":
+                return MULTIPLY;
+            case "/":
+                return DIVIDE;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Performs this (unary) operator on a Complex
+     *
+     * @param operand the operand
+     * @return the result of the operation
+     * @throws UnsupportedOperationException if this is a binary operator
+     */
+    public Complex apply(Complex operand)
+    {
+        switch (this)
+        {
+            case SQUARE:
+                return operand.square();
+            case SQRT:
+                return operand.sqrt();
+            case EXP:
+                return operand.exp();
+            case LN:
+                return operand.ln();
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Performs this (binary) operator on two Complexes
+     *
+     * @param left the left operand
+     * @param right the right operand
+     * @return the result of the operation
+     * @throws UnsupportedOperationException if this is a unary operator
+     */
+    public Complex apply(Complex left, Complex right)
+    {
+        switch (this)
+        {
+            case ADD:
+                return left.add(right);
+            case SUBTRACT:
+                return left.subtract(right);
+            case MULTIPLY:
+                return left.multiply(right);
+            case DIVIDE:
+                return left.divide(right);
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Prints this (unary) operator applied to an already printed operand
+     *
+     * @param operand the operand as a String
+     * @return the operation as a String, such as "(x^2)" or "(x.sqrt())"
+     */
+    public String format(String operand)
+    {
+        if (this == SQUARE)
+        {
+            return "(" + operand + "^2" + ")";
+        }
+        return "(" + operand + "." + symbol + "()" + ")";
+    }
+
+    /**
+     * Prints this (binary) operator applied to already printed operands
+     *
+     * @param left the left operand as a String
+     * @param right the right operand as a String
+     * @return the operation as a String, such as "(x + y)"
+     */
+    public String format(String left, String right)
+    {
+        return "(" + left + " " + symbol + " " + right + ")";
+    }
+
+    /**
+     * Builds the derivative of this (unary) operator applied to y, by the chain rule
+     *
+     * @param builder makes the nodes of the derivative
+     * @param operand y
+     * @param value the node for this operator applied to y, which the derivatives of sqrt and exp reuse
+     * @param operandDerivative y'
+     * @return the derivative
+     * @throws UnsupportedOperationException if this is a binary operator
+     */
+    <T> T derivative(Builder<T> builder, T operand, T value, T operandDerivative)
+    {
+        //every rule below is a multiple of y', so if y' is zero, so is the derivative
+        if (arity == 1 && builder.isZero(operandDerivative))
+        {
+            return builder.constant(0, 0);
+        }
+        switch (this)
+        {
+            case SQUARE:
+                //(y^2)' = 2*(y*y')
+                return builder.apply(MULTIPLY, builder.constant(2, 0),
+                    builder.apply(MULTIPLY, operand, operandDerivative));
+            case SQRT:
+                //(sqrt(y))' = y'/(2 * sqrt(y))
+                return builder.apply(DIVIDE, operandDerivative,
+                    builder.apply(MULTIPLY, builder.constant(2, 0), value));
+            case EXP:
+                //(exp(y))' = y' * exp(y)
+                return builder.apply(MULTIPLY, operandDerivative, value);
+            case LN:
+                //(ln(y))' = y' / y
+                return builder.apply(DIVIDE, operandDerivative, operand);
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Builds the derivative of this (binary) operator applied to a and b, by
+     * the sum, difference, product or quotient rule
+     *
+     * @param builder makes the nodes of the derivative
+     * @param left a
+     * @param right b
+     * @param leftDerivative a'
+     * @param rightDerivative b'
+     * @return the derivative
+     * @throws UnsupportedOperationException if this is a unary operator
+     */
+    <T> T derivative(Builder<T> builder, T left, T right, T leftDerivative, T rightDerivative)
+    {
+        switch (this)
+        {
+            case ADD:
+            case SUBTRACT:
+                //(a + b)' = a' + b' and (a - b)' = a' - b'
+                return builder.apply(this, leftDerivative, rightDerivative);
+            case MULTIPLY:
+                //(ab)' = a'b + b'a
+                return builder.apply(ADD, builder.apply(MULTIPLY, leftDerivative, right),
+                    builder.apply(MULTIPLY, rightDerivative, left));
+            case DIVIDE:
+                //(a/b)' = (a'b - b'a)/b^2
+                return builder.apply(DIVIDE,
+                    builder.apply(SUBTRACT, builder.apply(MULTIPLY, leftDerivative, right),
+                        builder.apply(MULTIPLY, rightDerivative, left)),
+                    builder.apply(SQUARE, right));
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Performs this operator on values that carry their derivatives (dual
+     * numbers), held in the stack arrays of an evaluator. The operand is at
+     * index top, or for a binary operator the operands are at top and
+     * top + 1; the result and its derivative are stored at index top
+     *
+     * @param re the real parts of the values
+     * @param im the imaginary parts of the values
+     * @param dre the real parts of the derivatives
+     * @param dim the imaginary parts of the derivatives
+     * @param top the index of the (first) operand
+     */
+    void applyWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        //each rule is its own small method, so the JIT can inline the one used
+        switch (this)
+        {
+            case SQUARE:
+                squareWithDerivative(re, im, dre, dim, top);
+                break;
+            case SQRT:
+                sqrtWithDerivative(re, im, dre, dim, top);
+                break;
+            case EXP:
+                expWithDerivative(re, im, dre, dim, top);
+                break;
+            case LN:
+                lnWithDerivative(re, im, dre, dim, top);
+                break;
+            case ADD:
+                //(a + b)' = a' + b'
+                re[top] += re[top + 1];
+                im[top] += im[top + 1];
+                dre[top] += dre[top + 1];
+                dim[top] += dim[top + 1];
+                break;
+            case SUBTRACT:
+                //(a - b)' = a' - b'
+                re[top] -= re[top + 1];
+                im[top] -= im[top + 1];
+                dre[top] -= dre[top + 1];
+                dim[top] -= dim[top + 1];
+                break;
+            case MULTIPLY:
+                multiplyWithDerivative(re, im, dre, dim, top);
+                break;
+            default:
+                divideWithDerivative(re, im, dre, dim, top);
+                break;
+        }
+    }
+
+    /**
+     * (y^2)' = 2*(y*y')
+     */
+    private static void squareWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double a = re[top];
+        double b = im[top];
+        double da = dre[top];
+        double db = dim[top];
+        re[top] = Complex.mulRe(a, b, a, b);
+        im[top] = Complex.mulIm(a, b, a, b);
+        dre[top] = 2 * Complex.mulRe(a, b, da, db);
+        dim[top] = 2 * Complex.mulIm(a, b, da, db);
+    }
+
+    /**
+     * (sqrt(y))' = y'/(2 * sqrt(y))
+     */
+    private static void sqrtWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double rootReal = Complex.sqrtRe(re[top], im[top]);
+        double rootImag = Complex.sqrtIm(re[top], im[top]);
+        double da = dre[top];
+        double db = dim[top];
+        re[top] = rootReal;
+        im[top] = rootImag;
+        dre[top] = Complex.divRe(da, db, 2 * rootReal, 2 * rootImag);
+        dim[top] = Complex.divIm(da, db, 2 * rootReal, 2 * rootImag);
+    }
+
+    /**
+     * (exp(y))' = y' * exp(y)
+     */
+    private static void expWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double expReal = Complex.expRe(re[top], im[top]);
+        double expImag = Complex.expIm(re[top], im[top]);
+        double da = dre[top];
+        double db = dim[top];
+        re[top] = expReal;
+        im[top] = expImag;
+        dre[top] = Complex.mulRe(da, db, expReal, expImag);
+        dim[top] = Complex.mulIm(da, db, expReal, expImag);
+    }
+
+    /**
+     * (ln(y))' = y' / y
+     */
+    private static void lnWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double a = re[top];
+        double b = im[top];
+        double da = dre[top];
+        double db = dim[top];
+        re[top] = Complex.lnRe(a, b);
+        im[top] = Complex.lnIm(a, b);
+        dre[top] = Complex.divRe(da, db, a, b);
+        dim[top] = Complex.divIm(da, db, a, b);
+    }
+
+    /**
+     * (ab)' = a'b + b'a
+     */
+    private static void multiplyWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double a = re[top];
+        double b = im[top];
+        double c = re[top + 1];
+        double d = im[top + 1];
+        double da = dre[top];
+        double db = dim[top];
+        double dc = dre[top + 1];
+        double dd = dim[top + 1];
+        re[top] = Complex.mulRe(a, b, c, d);
+        im[top] = Complex.mulIm(a, b, c, d);
+        dre[top] = Complex.mulRe(da, db, c, d) + Complex.mulRe(dc, dd, a, b);
+        dim[top] = Complex.mulIm(da, db, c, d) + Complex.mulIm(dc, dd, a, b);
+    }
+
+    /**
+     * (a/b)' = (a'b - b'a)/b^2
+     */
+    private static void divideWithDerivative(double[] re, double[] im, double[] dre, double[] dim, int top)
+    {
+        double a = re[top];
+        double b = im[top];
+        double c = re[top + 1];
+        double d = im[top + 1];
+        double da = dre[top];
+        double db = dim[top];
+        double dc = dre[top + 1];
+        double dd = dim[top + 1];
+        double numeratorReal = Complex.mulRe(da, db, c, d) - Complex.mulRe(dc, dd, a, b);
+        double numeratorImag = Complex.mulIm(da, db, c, d) - Complex.mulIm(dc, dd, a, b);
+        double squareReal = Complex.mulRe(c, d, c, d);
+        double squareImag = Complex.mulIm(c, d, c, d);
+        re[top] = Complex.divRe(a, b, c, d);
+        im[top] = Complex.divIm(a, b, c, d);
+        dre[top] = Complex.divRe(numeratorReal, numeratorImag, squareReal, squareImag);
+        dim[top] = Complex.divIm(numeratorReal, numeratorImag, squareReal, squareImag);
+    }
+}
@@ -0,0 +1,164 @@
+package complexNumbers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the same Riemann sum as Function.approxIntegral, but spreads the
+ * samples over a fork/join pool.
+ *
+ * The samples are cut into chunks of a fixed size (CHUNK_SIZE), no matter
+ * how many threads there are. Each chunk is summed in order by a single
+ * task, which evaluates it with its own copy of the compiled function (so
+ * no mutable state is shared between threads), and the partial sums are
+ * then added together in chunk order. Because neither the chunks nor the
+ * order of the additions depend on the pool, the result is bit-for-bit the
+ * same for every parallelism setting.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+class ParallelIntegrator {
+
+    /**
+     * Number of samples summed by one task
+     */
+    static final int CHUNK_SIZE = 16384;
+
+    private final CompiledFunction compiled;
+    private final double startReal;
+    private final double startImag;
+    private final double dxReal;
+    private final double dxImag;
+    private final int precision;
+    //partial sums, indexed by chunk
+    private final double[] chunkReal;
+    private final double[] chunkImag;
+
+    /**
+     * Sets up the integration of a compiled function of one variable
+     *
+     * @param compiled the compiled integrand
+     * @param start the lower bound of integration
+     * @param end the upper bound of integration
+     * @param precision the number of samples
+     */
+    ParallelIntegrator(CompiledFunction compiled, Complex start, Complex end, int precision)
+    {
+        Complex dx = (end.subtract(start)).divide(new Complex(precision, 0));
+        this.compiled = compiled;
+        this.startReal = start.real();
+        this.startImag = start.imag();
+        this.dxReal = dx.real();
+        this.dxImag = dx.imag();
+        this.precision = precision;
+        int chunks = (precision + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunkReal = new double[chunks];
+        this.chunkImag = new double[chunks];
+    }
+
+    /**
+     * Finds the Riemann sum using the given number of threads
+     *
+     * @param parallelism the number of threads that evaluate samples
+     * @return an approximation of the integral
+     */
+    Complex integrate(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        ChunkTask all = new ChunkTask(0, chunkReal.length);
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism())
+        {
+            ForkJoinPool.commonPool().invoke(all);
+        }
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try
+            {
+                pool.invoke(all);
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        //add up the partial sums in chunk order
+        MutableComplex total = new MutableComplex();
+        for (int chunk = 0; chunk < chunkReal.length; chunk++)
+        {
+            total.addInPlace(chunkReal[chunk], chunkImag[chunk]);
+        }
+        return total.mulInPlace(dxReal, dxImag).toComplex();
+    }
+
+    /**
+     * Sums the samples of one chunk into chunkReal and chunkImag
+     *
+     * @param evaluator a compiled function owned by the calling task
+     * @param chunk the index of the chunk
+     */
+    private void sumChunk(CompiledFunction evaluator, int chunk)
+    {
+        int first = chunk * CHUNK_SIZE;
+        int count = Math.min(CHUNK_SIZE, precision - first);
+        double[] re = new double[count];
+        double[] im = new double[count];
+        for (int k = 0; k < count; k++)
+        {
+            int i = first + k;
+            re[k] = startReal + dxReal * i;
+            im[k] = startImag + dxImag * i;
+        }
+        double[] outRe = new double[count];
+        double[] outIm = new double[count];
+        evaluator.evalBatch(re, im, outRe, outIm);
+        double sumReal = 0;
+        double sumImag = 0;
+        for (int k = 0; k < count; k++)
+        {
+            sumReal += outRe[k];
+            sumImag += outIm[k];
+        }
+        chunkReal[chunk] = sumReal;
+        chunkImag[chunk] = sumImag;
+    }
+
+    /**
+     * Sums a range of chunks, splitting the range in half until
+     * each task is left with a single chunk
+     */
+    private class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for the chunks from (inclusive) to to (exclusive)
+         */
+        ChunkTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                sumChunk(compiled.copy(), from);
+            }
+            else if (to > from)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, middle), new ChunkTask(middle, to));
+            }
+        }
+    }
+}
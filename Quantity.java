@@ -14,9 +14,27 @@ package complexNumbers;
  */
 public abstract class Quantity {
     
+    /**
+     * Tags the four subtypes of Quantity, so code that walks a structure can
+     * tell them apart with a single switch instead of comparing classes
+     */
+    public enum Kind {
+        CONSTANT,
+        VARIABLE,
+        UNARY_OPERATION,
+        BINARY_OPERATION
+    }
+    
     private Quantity parent;
     private Function housingFunction;
     
+    /**
+     * Tells which subtype of Quantity this is
+     * 
+     * @return the kind of this Quantity
+     */
+    public abstract Kind getKind();
+    
     /**
      * Gets the Quantity's parent
      * 
@@ -83,12 +101,12 @@ public abstract class Quantity {
         {
             housingFunction.setTopQuantity(otherQuantity);
         }
-        else if (("" + parent.getClass()).equals("class complexNumbers.UnaryOperation")) //if the parent is a UnaryOperation:
+        else if (parent.getKind() == Kind.UNARY_OPERATION) //if the parent is a UnaryOperation:
         {
             ((UnaryOperation) parent).setChild(otherQuantity);           
         }
         //if the parent is a BinaryOperation and this is the leftChild:
-        else if (((BinaryOperation) parent).getLeftChild().equals(this))
+        else if (((BinaryOperation) parent).getLeftChild() == this)
         {
             ((BinaryOperation) parent).setLeftChild(otherQuantity); 
         }
@@ -124,7 +142,21 @@ public abstract class Quantity {
      */
     public void diff(String variableName)
     {
-        //does nothing useful by default, but is overridden by the subclasses
+        this.replaceWith(this.derivative(variableName));
+    }
+    
+    /**
+     * Builds the derivative of this quantity as a new structure, leaving this
+     * quantity alone. The rules are those of Expression.derivative, which
+     * does the work, so terms such as 0 * x and x * 1 are never created
+     * 
+     * @param variableName the name of the variable with respect
+     * to which this quantity will be differentiated
+     * @return the derivative
+     */
+    public Quantity derivative(String variableName)
+    {
+        return Expression.of(this).derivative(variableName).toQuantity();
     }
     
     /**
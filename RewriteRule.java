@@ -0,0 +1,33 @@
+package complexNumbers;
+
+/**
+ * One rewrite that a Simplifier can make, such as replacing (0 + a) with a.
+ *
+ * A rule belongs to a single operator, and the Simplifier only offers it
+ * nodes with that operator at the top, so a rule never has to check the
+ * operator itself. The node's children have already been simplified.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public interface RewriteRule {
+
+    /**
+     * Gets the operator of the nodes this rule applies to
+     *
+     * @return the operator at the top of every node this rule can rewrite
+     */
+    Operator getOperator();
+
+    /**
+     * Tries to rewrite a node. The rule must not modify the node; it may
+     * return one of the node's children (or its grandchildren), or new
+     * Quantities built on top of them. The Simplifier tries its rules again
+     * on the returned Quantity, but not on any new nodes below its top, so
+     * new nodes below the top should only have simplified children.
+     *
+     * @param node a UnaryOperation or BinaryOperation whose operator is getOperator()
+     * @return the simpler replacement, or null if the rule does not apply
+     */
+    Quantity rewrite(Quantity node);
+}
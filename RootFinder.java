@@ -0,0 +1,693 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the zeros of a function of one variable.
+ *
+ * The function and its symbolic derivative (from Function.diff, taken once)
+ * are compiled when the RootFinder is created, and every iteration then
+ * evaluates the compiled programs without copying any tree or creating any
+ * Complex objects. Newton's method gets f and f' in a single pass of
+ * CompiledFunction.evalWithDerivative; Halley's method also runs the
+ * derivative that way to get f''.
+ *
+ * findRoots starts an iteration from each point of a grid of seeds over a
+ * rectangle (16 by 16 unless setSeedGrid is called). The rows of seeds are
+ * spread over a fork/join pool, each task with its own copies of the
+ * compiled programs. The roots that are reached are then merged, so that
+ * several seeds converging to the same root give it only once.
+ *
+ * When the function is a polynomial in its variable (built from constants,
+ * the variable, +, -, *, ^2 and division by constants), findRoots instead
+ * finds all of its roots at once with the Aberth-Ehrlich method and keeps
+ * the ones inside the rectangle. This can be turned off with
+ * setPolynomialSolver. A polynomial that cancels out to zero (such as
+ * x - x) is zero everywhere, so it has no isolated roots to find, and
+ * findRoots and polynomialRoots reject it.
+ *
+ * A RootFinder is not thread-safe, but findRoots uses several threads.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class RootFinder {
+
+    /**
+     * The iterations that can be run from each seed
+     */
+    public enum Method {
+        //z - f/f', quadratic convergence
+        NEWTON,
+        //z - 2ff' / (2f'^2 - ff''), cubic convergence
+        HALLEY
+    }
+
+    private final CompiledFunction function;
+    private final CompiledFunction derivative;
+    //coefficients from the constant term up, or null if the function is not a polynomial
+    private final double[] coefficientReal;
+    private final double[] coefficientImag;
+    private Method method = Method.NEWTON;
+    private int seedColumns = 16;
+    private int seedRows = 16;
+    private double tolerance = 1e-12;
+    private int maxIterations = 100;
+    private boolean polynomialSolver = true;
+    private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+    /**
+     * Prepares to find the zeros of a function
+     *
+     * @param function the function whose zeros are wanted
+     * @param variableName the variable of the function
+     * @throws IllegalArgumentException if the function contains any other variable
+     */
+    public RootFinder(Function function, String variableName)
+    {
+        this.function = function.compileFor(variableName);
+        this.derivative = function.diff(variableName).compileFor(variableName);
+        double[][] coefficients = polynomial(function.toExpression(), variableName);
+        if (coefficients == null)
+        {
+            this.coefficientReal = null;
+            this.coefficientImag = null;
+        }
+        else
+        {
+            //drop leading coefficients that cancelled out exactly
+            int length = coefficients[0].length;
+            while (length > 1 && coefficients[0][length - 1] == 0 && coefficients[1][length - 1] == 0)
+            {
+                length--;
+            }
+            this.coefficientReal = Arrays.copyOf(coefficients[0], length);
+            this.coefficientImag = Arrays.copyOf(coefficients[1], length);
+        }
+    }
+
+    /**
+     * Sets the iteration run from each seed
+     *
+     * @param method NEWTON (the default) or HALLEY
+     */
+    public void setMethod(Method method)
+    {
+        this.method = method;
+    }
+
+    /**
+     * Sets the number of seeds findRoots starts from
+     *
+     * @param columns the number of seeds across the rectangle
+     * @param rows the number of seeds up the rectangle
+     * @throws IllegalArgumentException if either is less than 1
+     */
+    public void setSeedGrid(int columns, int rows)
+    {
+        if (columns < 1 || rows < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.seedColumns = columns;
+        this.seedRows = rows;
+    }
+
+    /**
+     * Sets when an iteration has converged: when its last step was at most
+     * tolerance * (1 + |z|). Roots closer together than the square root
+     * of this (relative) are treated as the same root, since iterations
+     * only reach a multiple root to about that accuracy
+     *
+     * @param tolerance the relative size of the last step (1e-12 by default)
+     * @throws IllegalArgumentException if tolerance is not positive
+     */
+    public void setTolerance(double tolerance)
+    {
+        if (!(tolerance > 0))
+        {
+            throw new IllegalArgumentException();
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets the number of steps after which an iteration is abandoned
+     *
+     * @param maxIterations the most steps taken from one seed (100 by default)
+     * @throws IllegalArgumentException if maxIterations is less than 1
+     */
+    public void setMaxIterations(int maxIterations)
+    {
+        if (maxIterations < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Sets whether polynomials are solved with the Aberth-Ehrlich method
+     * rather than from seeds
+     *
+     * @param polynomialSolver true (the default) to use the Aberth-Ehrlich method for polynomials
+     */
+    public void setPolynomialSolver(boolean polynomialSolver)
+    {
+        this.polynomialSolver = polynomialSolver;
+    }
+
+    /**
+     * Sets the number of threads that run iterations from seeds. The common
+     * pool is used when this matches its parallelism (the default)
+     *
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException();
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Tells whether the function was recognized as a polynomial
+     *
+     * @return true if polynomialRoots can be called
+     */
+    public boolean isPolynomial()
+    {
+        return coefficientReal != null;
+    }
+
+    /**
+     * Gets the degree of the polynomial
+     *
+     * @return the degree, or -1 if the function is not a polynomial
+     */
+    public int getDegree()
+    {
+        return coefficientReal == null ? -1 : coefficientReal.length - 1;
+    }
+
+    /**
+     * Finds the zeros of the function inside a rectangle
+     *
+     * @param lowerLeft the corner with the smallest real and imaginary parts
+     * @param upperRight the corner with the largest real and imaginary parts
+     * @return the distinct zeros found, sorted by real part and then imaginary part
+     * @throws IllegalStateException if the function is a polynomial that is zero everywhere
+     */
+    public List<Complex> findRoots(Complex lowerLeft, Complex upperRight)
+    {
+        this.checkNotZero();
+        double[] rootReal;
+        double[] rootImag;
+        boolean[] converged;
+        if (polynomialSolver && coefficientReal != null)
+        {
+            int degree = this.getDegree();
+            rootReal = new double[degree];
+            rootImag = new double[degree];
+            converged = new boolean[degree];
+            this.aberth(rootReal, rootImag, converged);
+        }
+        else
+        {
+            int count = seedColumns * seedRows;
+            rootReal = new double[count];
+            rootImag = new double[count];
+            converged = new boolean[count];
+            SeedTask all = new SeedTask(lowerLeft, upperRight, rootReal, rootImag, converged, 0, seedRows);
+            if (parallelism == ForkJoinPool.getCommonPoolParallelism())
+            {
+                ForkJoinPool.commonPool().invoke(all);
+            }
+            else
+            {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try
+                {
+                    pool.invoke(all);
+                }
+                finally
+                {
+                    pool.shutdown();
+                }
+            }
+        }
+        return this.merge(lowerLeft, upperRight, rootReal, rootImag, converged);
+    }
+
+    /**
+     * Finds every root of the polynomial with the Aberth-Ehrlich method.
+     * Roots are repeated as many times as their multiplicity. A root that
+     * has not converged within the iteration limit is given as its last estimate
+     *
+     * @return the roots, sorted by real part and then imaginary part
+     * @throws IllegalStateException if the function is not a polynomial, or is zero everywhere
+     */
+    public List<Complex> polynomialRoots()
+    {
+        if (coefficientReal == null)
+        {
+            throw new IllegalStateException("not a polynomial");
+        }
+        this.checkNotZero();
+        int degree = this.getDegree();
+        double[] rootReal = new double[degree];
+        double[] rootImag = new double[degree];
+        this.aberth(rootReal, rootImag, new boolean[degree]);
+        ArrayList<Complex> roots = new ArrayList<Complex>(degree);
+        for (int k = 0; k < degree; k++)
+        {
+            roots.add(this.toRoot(rootReal[k], rootImag[k]));
+        }
+        this.sort(roots);
+        return roots;
+    }
+
+    /**
+     * Throws if the function is a polynomial whose coefficients all cancelled out
+     */
+    private void checkNotZero()
+    {
+        if (coefficientReal != null && coefficientReal.length == 1 &&
+            coefficientReal[0] == 0 && coefficientImag[0] == 0)
+        {
+            throw new IllegalStateException("zero everywhere");
+        }
+    }
+
+    /**
+     * Sorts roots by real part and then imaginary part. Real parts closer
+     * together than the distance at which roots are merged count as equal,
+     * so rounding noise does not decide the order of roots above each other
+     */
+    private void sort(List<Complex> roots)
+    {
+        double radius = Math.sqrt(tolerance);
+        roots.sort((first, second) ->
+        {
+            double scale = 1 + Math.max(Math.abs(first.real()), Math.abs(second.real()));
+            if (Math.abs(first.real() - second.real()) > radius * scale)
+            {
+                return Double.compare(first.real(), second.real());
+            }
+            return Double.compare(first.imag(), second.imag());
+        });
+    }
+
+    /**
+     * Creates the Complex for a root, replacing a part that is smaller than
+     * the accuracy of the root with 0, so that real and imaginary roots (and
+     * their order) are not disturbed by rounding noise
+     */
+    private Complex toRoot(double real, double imag)
+    {
+        double accuracy = tolerance * Math.hypot(real, imag);
+        return new Complex(Math.abs(real) <= accuracy ? 0 : real, Math.abs(imag) <= accuracy ? 0 : imag);
+    }
+
+    /**
+     * Runs the iteration from one seed
+     *
+     * @param f a copy of the compiled function owned by the caller
+     * @param df a copy of the compiled derivative owned by the caller
+     * @param root receives the point reached
+     * @return true if the iteration converged
+     */
+    private boolean iterate(CompiledFunction f, CompiledFunction df, double seedReal, double seedImag,
+        MutableComplex root)
+    {
+        double zr = seedReal;
+        double zi = seedImag;
+        for (int i = 0; i < maxIterations; i++)
+        {
+            double stepReal;
+            double stepImag;
+            if (method == Method.NEWTON)
+            {
+                f.evalWithDerivative(zr, zi);
+                double fr = f.resultReal();
+                double fi = f.resultImag();
+                if (fr == 0 && fi == 0)
+                {
+                    root.set(zr, zi);
+                    return true;
+                }
+                stepReal = Complex.divRe(fr, fi, f.derivativeReal(), f.derivativeImag());
+                stepImag = Complex.divIm(fr, fi, f.derivativeReal(), f.derivativeImag());
+            }
+            else
+            {
+                f.eval(zr, zi);
+                double fr = f.resultReal();
+                double fi = f.resultImag();
+                if (fr == 0 && fi == 0)
+                {
+                    root.set(zr, zi);
+                    return true;
+                }
+                df.evalWithDerivative(zr, zi);
+                double dr = df.resultReal();
+                double di = df.resultImag();
+                //2ff' / (2f'^2 - ff'')
+                double numeratorReal = 2 * Complex.mulRe(fr, fi, dr, di);
+                double numeratorImag = 2 * Complex.mulIm(fr, fi, dr, di);
+                double denominatorReal = 2 * Complex.mulRe(dr, di, dr, di) -
+                    Complex.mulRe(fr, fi, df.derivativeReal(), df.derivativeImag());
+                double denominatorImag = 2 * Complex.mulIm(dr, di, dr, di) -
+                    Complex.mulIm(fr, fi, df.derivativeReal(), df.derivativeImag());
+                stepReal = Complex.divRe(numeratorReal, numeratorImag, denominatorReal, denominatorImag);
+                stepImag = Complex.divIm(numeratorReal, numeratorImag, denominatorReal, denominatorImag);
+            }
+            if (Double.isNaN(stepReal) || Double.isNaN(stepImag) ||
+                Double.isInfinite(stepReal) || Double.isInfinite(stepImag))
+            {
+                return false;
+            }
+            zr -= stepReal;
+            zi -= stepImag;
+            if (Math.hypot(stepReal, stepImag) <= tolerance * (1 + Math.hypot(zr, zi)))
+            {
+                root.set(zr, zi);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds all the roots of the polynomial at once
+     *
+     * @param rootReal receives the real parts of the roots
+     * @param rootImag receives the imaginary parts of the roots
+     * @param converged receives, for each root, whether its last step was within the tolerance
+     */
+    private void aberth(double[] rootReal, double[] rootImag, boolean[] converged)
+    {
+        int degree = rootReal.length;
+        if (degree == 0)
+        {
+            return;
+        }
+        //start on a circle whose radius is the geometric mean of the roots' sizes
+        double leading = Math.hypot(coefficientReal[degree], coefficientImag[degree]);
+        double constant = Math.hypot(coefficientReal[0], coefficientImag[0]);
+        double radius = constant == 0 ? 1 : Math.pow(constant / leading, 1.0 / degree);
+        for (int k = 0; k < degree; k++)
+        {
+            //the offset keeps the starting points off any symmetry of the polynomial
+            double angle = 2 * Math.PI * k / degree + 0.4;
+            rootReal[k] = radius * Math.cos(angle);
+            rootImag[k] = radius * Math.sin(angle);
+        }
+        MutableComplex value = new MutableComplex();
+        MutableComplex slope = new MutableComplex();
+        for (int iteration = 0; iteration < 10 * maxIterations; iteration++)
+        {
+            boolean done = true;
+            for (int k = 0; k < degree; k++)
+            {
+                double zr = rootReal[k];
+                double zi = rootImag[k];
+                this.horner(zr, zi, value, slope);
+                if (value.real() == 0 && value.imag() == 0)
+                {
+                    converged[k] = true;
+                    continue;
+                }
+                //w = p / p', offset = w / (1 - w * sum of 1 / (z_k - z_j))
+                double wr = Complex.divRe(value.real(), value.imag(), slope.real(), slope.imag());
+                double wi = Complex.divIm(value.real(), value.imag(), slope.real(), slope.imag());
+                double sumReal = 0;
+                double sumImag = 0;
+                for (int j = 0; j < degree; j++)
+                {
+                    if (j != k)
+                    {
+                        sumReal += Complex.divRe(1, 0, zr - rootReal[j], zi - rootImag[j]);
+                        sumImag += Complex.divIm(1, 0, zr - rootReal[j], zi - rootImag[j]);
+                    }
+                }
+                double denominatorReal = 1 - Complex.mulRe(wr, wi, sumReal, sumImag);
+                double denominatorImag = -Complex.mulIm(wr, wi, sumReal, sumImag);
+                double offsetReal = Complex.divRe(wr, wi, denominatorReal, denominatorImag);
+                double offsetImag = Complex.divIm(wr, wi, denominatorReal, denominatorImag);
+                if (Double.isNaN(offsetReal) || Double.isNaN(offsetImag))
+                {
+                    converged[k] = false;
+                    done = false;
+                    continue;
+                }
+                rootReal[k] = zr - offsetReal;
+                rootImag[k] = zi - offsetImag;
+                converged[k] = Math.hypot(offsetReal, offsetImag) <= tolerance * (1 + Math.hypot(zr, zi));
+                done = done && converged[k];
+            }
+            if (done)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the polynomial and its derivative at a point
+     */
+    private void horner(double zr, double zi, MutableComplex value, MutableComplex slope)
+    {
+        int degree = coefficientReal.length - 1;
+        value.set(coefficientReal[degree], coefficientImag[degree]);
+        slope.set(0, 0);
+        for (int k = degree - 1; k >= 0; k--)
+        {
+            slope.mulInPlace(zr, zi).addInPlace(value.real(), value.imag());
+            value.mulInPlace(zr, zi).addInPlace(coefficientReal[k], coefficientImag[k]);
+        }
+    }
+
+    /**
+     * Keeps the converged points inside the rectangle, merging points that
+     * are within the square root of the tolerance (relative) of each other
+     */
+    private List<Complex> merge(Complex lowerLeft, Complex upperRight, double[] rootReal,
+        double[] rootImag, boolean[] converged)
+    {
+        double radius = Math.sqrt(tolerance);
+        ArrayList<Complex> roots = new ArrayList<Complex>();
+        for (int i = 0; i < rootReal.length; i++)
+        {
+            double zr = rootReal[i];
+            double zi = rootImag[i];
+            double margin = radius * (1 + Math.hypot(zr, zi));
+            if (!converged[i] || zr < lowerLeft.real() - margin || zr > upperRight.real() + margin ||
+                zi < lowerLeft.imag() - margin || zi > upperRight.imag() + margin)
+            {
+                continue;
+            }
+            boolean seen = false;
+            for (Complex root : roots)
+            {
+                if (Math.hypot(root.real() - zr, root.imag() - zi) <= margin)
+                {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen)
+            {
+                roots.add(this.toRoot(zr, zi));
+            }
+        }
+        this.sort(roots);
+        return roots;
+    }
+
+    /**
+     * Finds the coefficients of an expression as a polynomial in a variable
+     *
+     * @return the real and imaginary parts of the coefficients, from the
+     * constant term up, or null if the expression is not a polynomial
+     */
+    static double[][] polynomial(Expression expression, String variableName)
+    {
+        switch (expression.getKind())
+        {
+            case CONSTANT:
+                return new double[][] {{expression.real()}, {expression.imag()}};
+            case VARIABLE:
+            {
+                if (!expression.getName().equals(variableName))
+                {
+                    return null;
+                }
+                return new double[][] {{0, 1}, {0, 0}};
+            }
+            case UNARY_OPERATION:
+            {
+                double[][] child = polynomial(expression.getLeft(), variableName);
+                if (child == null)
+                {
+                    return null;
+                }
+                if (expression.getOperator() == Operator.SQUARE)
+                {
+                    return multiply(child, child);
+                }
+                //sqrt, exp and ln keep a polynomial only when applied to a constant
+                if (child[0].length != 1)
+                {
+                    return null;
+                }
+                Complex value = expression.getOperator().apply(new Complex(child[0][0], child[1][0]));
+                return new double[][] {{value.real()}, {value.imag()}};
+            }
+            default:
+            {
+                double[][] left = polynomial(expression.getLeft(), variableName);
+                double[][] right = polynomial(expression.getRight(), variableName);
+                if (left == null || right == null)
+                {
+                    return null;
+                }
+                switch (expression.getOperator())
+                {
+                    case ADD:
+                        return add(left, right, 1);
+                    case SUBTRACT:
+                        return add(left, right, -1);
+                    case MULTIPLY:
+                        return multiply(left, right);
+                    default:
+                    {
+                        //only division by a constant keeps a polynomial
+                        if (right[0].length != 1)
+                        {
+                            return null;
+                        }
+                        double[][] quotient = new double[2][left[0].length];
+                        for (int k = 0; k < left[0].length; k++)
+                        {
+                            quotient[0][k] = Complex.divRe(left[0][k], left[1][k], right[0][0], right[1][0]);
+                            quotient[1][k] = Complex.divIm(left[0][k], left[1][k], right[0][0], right[1][0]);
+                        }
+                        return quotient;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds (sign 1) or subtracts (sign -1) two polynomials
+     */
+    private static double[][] add(double[][] left, double[][] right, int sign)
+    {
+        int length = Math.max(left[0].length, right[0].length);
+        double[][] sum = new double[2][length];
+        for (int k = 0; k < length; k++)
+        {
+            if (k < left[0].length)
+            {
+                sum[0][k] = left[0][k];
+                sum[1][k] = left[1][k];
+            }
+            if (k < right[0].length)
+            {
+                sum[0][k] += sign * right[0][k];
+                sum[1][k] += sign * right[1][k];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Multiplies two polynomials
+     */
+    private static double[][] multiply(double[][] left, double[][] right)
+    {
+        double[][] product = new double[2][left[0].length + right[0].length - 1];
+        for (int i = 0; i < left[0].length; i++)
+        {
+            for (int j = 0; j < right[0].length; j++)
+            {
+                product[0][i + j] += Complex.mulRe(left[0][i], left[1][i], right[0][j], right[1][j]);
+                product[1][i + j] += Complex.mulIm(left[0][i], left[1][i], right[0][j], right[1][j]);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Runs the iterations from a range of rows of seeds, splitting the range
+     * in half until each task is left with a single row
+     */
+    private class SeedTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Complex lowerLeft;
+        private final Complex upperRight;
+        private final double[] rootReal;
+        private final double[] rootImag;
+        private final boolean[] converged;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for the rows of seeds from (inclusive) to to (exclusive)
+         */
+        SeedTask(Complex lowerLeft, Complex upperRight, double[] rootReal, double[] rootImag,
+            boolean[] converged, int from, int to)
+        {
+            this.lowerLeft = lowerLeft;
+            this.upperRight = upperRight;
+            this.rootReal = rootReal;
+            this.rootImag = rootImag;
+            this.converged = converged;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                CompiledFunction f = function.copy();
+                CompiledFunction df = derivative.copy();
+                MutableComplex root = new MutableComplex();
+                //seeds sit at the centers of the cells of the grid
+                double seedImag = lowerLeft.imag() +
+                    (upperRight.imag() - lowerLeft.imag()) * (from + 0.5) / seedRows;
+                for (int column = 0; column < seedColumns; column++)
+                {
+                    double seedReal = lowerLeft.real() +
+                        (upperRight.real() - lowerLeft.real()) * (column + 0.5) / seedColumns;
+                    int index = from * seedColumns + column;
+                    if (iterate(f, df, seedReal, seedImag, root))
+                    {
+                        rootReal[index] = root.real();
+                        rootImag[index] = root.imag();
+                        converged[index] = true;
+                    }
+                }
+            }
+            else if (to > from)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SeedTask(lowerLeft, upperRight, rootReal, rootImag, converged, from, middle),
+                    new SeedTask(lowerLeft, upperRight, rootReal, rootImag, converged, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package complexNumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Simplifies functions by applying RewriteRules until none of them applies.
+ *
+ * The rules are indexed by the operator they apply to, so each node is only
+ * offered the rules for its own operator. The tree is simplified from the
+ * bottom up: a node's children are simplified first, then its rules are
+ * tried again and again on whatever takes its place until none fires. When
+ * simplify returns, no rule applies anywhere in the result, so a single
+ * call takes a derivative all the way down to its simplest form.
+ *
+ * A Simplifier never changes after it is created, so one instance can be
+ * shared by any number of threads. standard() holds the StandardRules used
+ * by Function.cleanUp; other rule sets are made with the constructor or
+ * withRules.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class Simplifier {
+
+    //largest difference still treated as equal, the same as in Complex.equals
+    private static final double TOLERANCE = 0.0001;
+
+    private static final Simplifier STANDARD = new Simplifier(Arrays.asList(StandardRule.values()));
+
+    private final List<RewriteRule> ruleList;
+    private final EnumMap<Operator, RewriteRule[]> rules = new EnumMap<Operator, RewriteRule[]>(Operator.class);
+
+    /**
+     * Creates a Simplifier that uses the given rules
+     *
+     * @param ruleList the rules, in the order they are tried for each operator
+     */
+    public Simplifier(List<? extends RewriteRule> ruleList)
+    {
+        this.ruleList = new ArrayList<RewriteRule>(ruleList);
+        for (Operator operator : Operator.values())
+        {
+            ArrayList<RewriteRule> matching = new ArrayList<RewriteRule>();
+            for (RewriteRule rule : this.ruleList)
+            {
+                if (rule.getOperator() == operator)
+                {
+                    matching.add(rule);
+                }
+            }
+            rules.put(operator, matching.toArray(new RewriteRule[matching.size()]));
+        }
+    }
+
+    /**
+     * Gets the Simplifier used by Function.cleanUp
+     *
+     * @return a Simplifier with every StandardRule
+     */
+    public static Simplifier standard()
+    {
+        return STANDARD;
+    }
+
+    /**
+     * Creates a Simplifier with this one's rules followed by more rules
+     *
+     * @param extraRules the rules to add
+     * @return the new Simplifier
+     */
+    public Simplifier withRules(List<? extends RewriteRule> extraRules)
+    {
+        ArrayList<RewriteRule> all = new ArrayList<RewriteRule>(ruleList);
+        all.addAll(extraRules);
+        return new Simplifier(all);
+    }
+
+    /**
+     * Creates a simplified copy of a function
+     *
+     * @param function the function to simplify (not modified)
+     * @return a new function that no rule applies to
+     */
+    public Function simplify(Function function)
+    {
+        Quantity top = this.simplify(function.newTree());
+        top.setParent(null);
+        Function simplified = new Function(top);
+        simplified.setCleaned(true);
+        return simplified;
+    }
+
+    /**
+     * Simplifies a quantity in place, bottom-up, until no rule applies
+     *
+     * @return the quantity that takes the place of the given one
+     */
+    private Quantity simplify(Quantity quantity)
+    {
+        switch (quantity.getKind())
+        {
+            case UNARY_OPERATION:
+            {
+                UnaryOperation unary = (UnaryOperation) quantity;
+                unary.setChild(this.simplify(unary.getChild()));
+                break;
+            }
+            case BINARY_OPERATION:
+            {
+                BinaryOperation binary = (BinaryOperation) quantity;
+                binary.setLeftChild(this.simplify(binary.getLeftChild()));
+                binary.setRightChild(this.simplify(binary.getRightChild()));
+                break;
+            }
+            default:
+                return quantity;
+        }
+        Quantity current = quantity;
+        Quantity replacement = this.rewrite(current);
+        while (replacement != null)
+        {
+            current = replacement;
+            replacement = this.rewrite(current);
+        }
+        return current;
+    }
+
+    /**
+     * Makes at most one rewrite at the top of a quantity (its children are
+     * left alone)
+     *
+     * @param quantity the quantity to rewrite
+     * @return the result of the first rule that applies, or null if none does
+     */
+    Quantity rewrite(Quantity quantity)
+    {
+        Operator operator;
+        switch (quantity.getKind())
+        {
+            case UNARY_OPERATION:
+                operator = ((UnaryOperation) quantity).getOperator();
+                break;
+            case BINARY_OPERATION:
+                operator = ((BinaryOperation) quantity).getOperator();
+                break;
+            default:
+                return null;
+        }
+        for (RewriteRule rule : rules.get(operator))
+        {
+            Quantity result = rule.rewrite(quantity);
+            if (result != null)
+            {
+                EngineMetrics.simplifierRewrote();
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether a quantity is a constant equal to the given value, with
+     * the same tolerance as Complex.equals but without creating a Complex
+     *
+     * @param quantity the quantity to check
+     * @param real the real part of the value
+     * @param imag the imaginary part of the value
+     * @return true if quantity is a Complex within the tolerance of the value
+     */
+    public static boolean isConstant(Quantity quantity, double real, double imag)
+    {
+        if (quantity.getKind() != Quantity.Kind.CONSTANT)
+        {
+            return false;
+        }
+        Complex constant = (Complex) quantity;
+        return matches(constant.real(), constant.imag(), real, imag);
+    }
+
+    /**
+     * Tells whether a constant, given by its parts, is within the tolerance of a value
+     */
+    static boolean matches(double constantReal, double constantImag, double real, double imag)
+    {
+        return Math.abs(constantReal - real) < TOLERANCE && Math.abs(constantImag - imag) < TOLERANCE;
+    }
+
+    /**
+     * What a simplifying factory builds in place of (left operator right)
+     */
+    enum Reduction {
+        //the operation itself
+        NONE,
+        //the value of the operation, since both operands are constants
+        VALUE,
+        //the left operand
+        LEFT,
+        //the right operand
+        RIGHT,
+        //the constant 0
+        ZERO
+    }
+
+    /**
+     * Decides how (left operator right) is simplified as it is built:
+     * two constants are evaluated, and 0 + a, a + 0, a - 0, 0 * a, a * 0,
+     * 1 * a, a * 1 and a / 1 are reduced, for an exact 0 or 1 only. This is
+     * the one place these rules are written down; BinaryOperation.of,
+     * Expression and ExpressionDag all follow it. The parts of an operand
+     * that is not a constant are ignored
+     */
+    static Reduction reduce(Operator operator, boolean leftConstant, double leftReal, double leftImag,
+        boolean rightConstant, double rightReal, double rightImag)
+    {
+        if (leftConstant && rightConstant)
+        {
+            return Reduction.VALUE;
+        }
+        boolean leftZero = leftConstant && leftReal == 0 && leftImag == 0;
+        boolean rightZero = rightConstant && rightReal == 0 && rightImag == 0;
+        boolean leftOne = leftConstant && leftReal == 1 && leftImag == 0;
+        boolean rightOne = rightConstant && rightReal == 1 && rightImag == 0;
+        switch (operator)
+        {
+            case ADD:
+                if (leftZero)
+                {
+                    return Reduction.RIGHT;
+                }
+                return rightZero ? Reduction.LEFT : Reduction.NONE;
+            case SUBTRACT:
+                return rightZero ? Reduction.LEFT : Reduction.NONE;
+            case MULTIPLY:
+                if (leftZero || rightZero)
+                {
+                    return Reduction.ZERO;
+                }
+                if (leftOne)
+                {
+                    return Reduction.RIGHT;
+                }
+                return rightOne ? Reduction.LEFT : Reduction.NONE;
+            case DIVIDE:
+                return rightOne ? Reduction.LEFT : Reduction.NONE;
+            default:
+                return Reduction.NONE;
+        }
+    }
+
+    /**
+     * Tells whether operator(inner(x)) is reduced to x as it is built, which
+     * is the case for e^(lnx) and (sqrt(x))^2. ln(e^x) is left alone, since
+     * it is x only up to a multiple of 2*pi*i (cleanUp still rewrites it)
+     */
+    static boolean undoes(Operator operator, Operator inner)
+    {
+        return (operator == Operator.EXP && inner == Operator.LN) ||
+            (operator == Operator.SQUARE && inner == Operator.SQRT);
+    }
+}
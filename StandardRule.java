@@ -0,0 +1,211 @@
+package complexNumbers;
+
+/**
+ * The rewrite rules used by Function.cleanUp. Constants are recognized with
+ * the same tolerance as Complex.equals, without creating any Complex objects
+ * for the comparison.
+ *
+ * Within one operator, rules are tried in the order they are listed here.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public enum StandardRule implements RewriteRule {
+
+    //0 + a = a
+    ZERO_PLUS(Operator.ADD) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(left(node), 0, 0) ? right(node) : null;
+        }
+    },
+    //a + 0 = a
+    PLUS_ZERO(Operator.ADD) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(right(node), 0, 0) ? left(node) : null;
+        }
+    },
+    //0 - a = (-1) * a
+    ZERO_MINUS(Operator.SUBTRACT) {
+        public Quantity rewrite(Quantity node)
+        {
+            if (!Simplifier.isConstant(left(node), 0, 0) || isConstant(right(node)))
+            {
+                return null;
+            }
+            BinaryOperation mult = new BinaryOperation(Operator.MULTIPLY);
+            mult.setLeftChild(new Complex(-1, 0));
+            mult.setRightChild(right(node));
+            return mult;
+        }
+    },
+    //a - 0 = a
+    MINUS_ZERO(Operator.SUBTRACT) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(right(node), 0, 0) ? left(node) : null;
+        }
+    },
+    //0 * a = 0
+    ZERO_TIMES(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(left(node), 0, 0) ? new Complex() : null;
+        }
+    },
+    //a * 0 = 0
+    TIMES_ZERO(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(right(node), 0, 0) ? new Complex() : null;
+        }
+    },
+    //a * 1 = a
+    TIMES_ONE(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(right(node), 1, 0) ? left(node) : null;
+        }
+    },
+    //1 * a = a
+    ONE_TIMES(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(left(node), 1, 0) ? right(node) : null;
+        }
+    },
+    //a * c = c * a, so constants end up on the left where they can be combined
+    CONSTANT_FIRST(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            if (isConstant(left(node)) || !isConstant(right(node)))
+            {
+                return null;
+            }
+            BinaryOperation mult = new BinaryOperation(Operator.MULTIPLY);
+            mult.setLeftChild(right(node));
+            mult.setRightChild(left(node));
+            return mult;
+        }
+    },
+    //c1 * (c2 * a) = (c1c2) * a
+    COMBINE_CONSTANTS(Operator.MULTIPLY) {
+        public Quantity rewrite(Quantity node)
+        {
+            Quantity inner = right(node);
+            if (!isConstant(left(node)) || inner.getKind() != Quantity.Kind.BINARY_OPERATION ||
+                ((BinaryOperation) inner).getOperator() != Operator.MULTIPLY ||
+                !isConstant(left(inner)))
+            {
+                return null;
+            }
+            BinaryOperation mult = new BinaryOperation(Operator.MULTIPLY);
+            mult.setLeftChild(((Complex) left(node)).multiply((Complex) left(inner)));
+            mult.setRightChild(right(inner));
+            return mult;
+        }
+    },
+    //a / 1 = a
+    DIVIDE_ONE(Operator.DIVIDE) {
+        public Quantity rewrite(Quantity node)
+        {
+            return Simplifier.isConstant(right(node), 1, 0) ? left(node) : null;
+        }
+    },
+    //(sqrt(a))^2 = a
+    SQUARE_OF_SQRT(Operator.SQUARE) {
+        public Quantity rewrite(Quantity node)
+        {
+            return innerOperand(node, Operator.SQRT);
+        }
+    },
+    //e^(ln(a)) = a
+    EXP_OF_LN(Operator.EXP) {
+        public Quantity rewrite(Quantity node)
+        {
+            return innerOperand(node, Operator.LN);
+        }
+    },
+    //ln(e^a) = a
+    LN_OF_EXP(Operator.LN) {
+        public Quantity rewrite(Quantity node)
+        {
+            return innerOperand(node, Operator.EXP);
+        }
+    },
+    //an operator applied to constants is replaced by its value
+    FOLD_ADD(Operator.ADD),
+    FOLD_SUBTRACT(Operator.SUBTRACT),
+    FOLD_MULTIPLY(Operator.MULTIPLY),
+    FOLD_DIVIDE(Operator.DIVIDE),
+    FOLD_SQUARE(Operator.SQUARE),
+    FOLD_SQRT(Operator.SQRT),
+    FOLD_EXP(Operator.EXP),
+    FOLD_LN(Operator.LN);
+
+    private final Operator operator;
+
+    private StandardRule(Operator operator)
+    {
+        this.operator = operator;
+    }
+
+    /**
+     * Gets the operator of the nodes this rule applies to
+     *
+     * @return the operator field
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * Evaluates an operator whose operands are all constants (the rule
+     * used by the FOLD constants; the others override it)
+     */
+    public Quantity rewrite(Quantity node)
+    {
+        if (node.getKind() == Quantity.Kind.UNARY_OPERATION)
+        {
+            Quantity child = ((UnaryOperation) node).getChild();
+            return isConstant(child) ? operator.apply((Complex) child) : null;
+        }
+        if (isConstant(left(node)) && isConstant(right(node)))
+        {
+            return operator.apply((Complex) left(node), (Complex) right(node));
+        }
+        return null;
+    }
+
+    private static boolean isConstant(Quantity quantity)
+    {
+        return quantity.getKind() == Quantity.Kind.CONSTANT;
+    }
+
+    private static Quantity left(Quantity node)
+    {
+        return ((BinaryOperation) node).getLeftChild();
+    }
+
+    private static Quantity right(Quantity node)
+    {
+        return ((BinaryOperation) node).getRightChild();
+    }
+
+    /**
+     * Undoes an inverse pair: if the child of a unary node has the given
+     * operator, returns the child's own child
+     */
+    private static Quantity innerOperand(Quantity node, Operator inverse)
+    {
+        Quantity child = ((UnaryOperation) node).getChild();
+        if (child.getKind() == Quantity.Kind.UNARY_OPERATION &&
+            ((UnaryOperation) child).getOperator() == inverse)
+        {
+            return ((UnaryOperation) child).getChild();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package complexNumbers;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Recorded when a function's tree is copied by Function.copy, including the
+ * copies made by subAndEval. Only copies taking at least 1 ms are recorded
+ * unless the recording's settings lower the threshold.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@Name("complexNumbers.TreeCopy")
+@Label("Tree Copy")
+@Description("Copy of a Function's tree")
+@Threshold("1 ms")
+final class TreeCopyEvent extends FunctionEvent {
+}
@@ -12,7 +12,7 @@ package complexNumbers;
  */
 public class UnaryOperation extends Quantity {
     
-    private String opType;
+    private Operator operator;
     private Quantity child;
     
     /**
@@ -20,48 +20,64 @@ public class UnaryOperation extends Quantity {
      * 
      * @param type a String representing the operation
      * this object will be able to perform
+     * @throws IllegalArgumentException if type is not a unary operation
      */
     public UnaryOperation(String type)
     {
-        this.opType = type;
+        this(Operator.fromSymbol(type));
+    }
+    
+    /**
+     * Creates a UnaryOperation object
+     * 
+     * @param operator the operation this object will be able to perform
+     * @throws IllegalArgumentException if operator is not a unary operation
+     */
+    public UnaryOperation(Operator operator)
+    {
+        if (!operator.isUnary())
+        {
+            throw new IllegalArgumentException();
+        }
+        this.operator = operator;
     }
     
     /**
      * Gets the type of this operation
      * 
-     * @return the opType field
+     * @return the symbol of the operator (such as "^2" or "sqrt")
      */
     public String getType()
     {
-        return opType;
+        return operator.getSymbol();
     }
     
+    /**
+     * Gets the operator of this operation
+     * 
+     * @return the operator field
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+    
+    /**
+     * Tells which subtype of Quantity this is
+     * 
+     * @return Kind.UNARY_OPERATION
+     */
+    public Kind getKind()
+    {
+        return Kind.UNARY_OPERATION;
+    }
     
     /**
      * Represents this object as a String
      */
     public String toString()
     {
-        if (opType.equals("^2"))
-        {
-            return "(" + child.toString() + "^2" + ")";
-        }
-        else if (opType.equals("sqrt"))
-        {
-            return "(" + child.toString() + ".sqrt()" + ")";
-        }
-        else if (opType.equals("exp"))
-        {
-            return "(" + child.toString() + ".exp()" + ")";
-        }
-        else if (opType.equals("ln"))
-        {
-            return "(" + child.toString() + ".ln()" + ")";
-        }
-        else
-        {
-            throw new IllegalArgumentException();
-        }
+        return operator.format(child.toString());
     }
     
     /**
@@ -73,6 +89,13 @@ public class UnaryOperation extends Quantity {
         this.child = newChild;
         //child now links up to this object
         this.child.setParent(this);
+        //the child now belongs to this object's function, whose compiled program no longer matches it
+        Function function = this.getHousingFunction();
+        if (function != null)
+        {
+            newChild.updateFunction(function);
+            function.changed();
+        }
     }
     
     /**
@@ -146,76 +169,45 @@ public class UnaryOperation extends Quantity {
         //copy the child
         Quantity copyOfChild = child.copy();
         //create a new UnaryOperation identical to this one
-        UnaryOperation copyOfUnOp = new UnaryOperation(this.opType);
+        UnaryOperation copyOfUnOp = new UnaryOperation(this.operator);
         //link the copy of the child to the copy of this operation
         copyOfUnOp.setChild(copyOfChild);
         return copyOfUnOp;    
     }
     
     /**
-     * Finds the derivative of this quantity and replaces itself
-     * in the function with this derivative
+     * Creates the operation operator(child), simplifying it as it is built:
+     * an operation on a Complex is evaluated right away, and e^(lnx) and
+     * (sqrt(x))^2 are undone. ln(e^x) is left alone, since it is x only up
+     * to a multiple of 2*pi*i. No UnaryOperation is allocated when the
+     * result simplifies
      * 
-     * @param variableName the name of the variable with respect
-     * to which this function will be differentiated
+     * @param operator a unary operator
+     * @param child the operand, which becomes part of the result
+     * @return the simplest Quantity equal to operator(child)
+     * @throws IllegalArgumentException if operator is not unary
      */
-    public void diff(String variableName)
+    public static Quantity of(Operator operator, Quantity child)
     {
-        //what to do next depends on what operation this object represents
-        if (opType.equals("^2"))
-        {
-            //(y^2)' = 2*(y*y')
-            BinaryOperation times1 = new BinaryOperation("*");
-            BinaryOperation times2 = new BinaryOperation("*");
-            times1.setLeftChild(new Complex(2, 0));
-            times1.setRightChild(times2);
-            times2.setLeftChild(this.getChild());
-            Quantity childCopy = this.getChild().copy();
-            times2.setRightChild(childCopy);
-            times2.getRightChild().diff(variableName);
-            this.replaceWith(times1);
-        }
-        else if (opType.equals("sqrt"))
+        if (!operator.isUnary())
         {
-            //(sqrt(y))' = y'/(2 * sqrt(y))
-            BinaryOperation divide = new BinaryOperation("/");
-            Quantity childCopy = this.getChild().copy();
-            divide.setLeftChild(childCopy);
-            divide.getLeftChild().diff(variableName);
-            BinaryOperation times = new BinaryOperation("*");
-            divide.setRightChild(times);
-            times.setLeftChild(new Complex(2, 0));
-            UnaryOperation sqrt = new UnaryOperation("sqrt");
-            times.setRightChild(sqrt);
-            sqrt.setChild(this.getChild());
-            this.replaceWith(divide);
-        }
-        else if (opType.equals("exp"))
-        {
-            //(exp(y))' = y' * exp(y)
-            BinaryOperation times = new BinaryOperation("*");
-            Quantity copyChild = this.getChild().copy();
-            times.setLeftChild(copyChild);
-            times.getLeftChild().diff(variableName);
-            UnaryOperation exp = new UnaryOperation("exp");
-            times.setRightChild(exp);
-            exp.setChild(this.getChild());
-            this.replaceWith(times);
+            throw new IllegalArgumentException();
         }
-        else if (opType.equals("ln"))
+        if (child.getKind() == Kind.CONSTANT)
         {
-            //(ln(y))' = y' / y
-            BinaryOperation divide = new BinaryOperation("/");
-            Quantity copyChild = this.getChild().copy();
-            divide.setLeftChild(copyChild);
-            divide.getLeftChild().diff(variableName);
-            divide.setRightChild(this.getChild());
-            this.replaceWith(divide);
+            return operator.apply((Complex) child);
         }
-        else
+        if (child.getKind() == Kind.UNARY_OPERATION)
         {
-            throw new IllegalArgumentException();
+            UnaryOperation inner = (UnaryOperation) child;
+            if (Simplifier.undoes(operator, inner.getOperator()))
+            {
+                return inner.getChild();
+            }
         }
+        UnaryOperation operation = new UnaryOperation(operator);
+        operation.setChild(child);
+        return operation;
     }
     
     /**
@@ -241,42 +233,14 @@ public class UnaryOperation extends Quantity {
     {
         this.getHousingFunction().setCleaned(true);
         
-        //looks for unsimplified expressions
-        
-        //for class type testing purposes
-        UnaryOperation unOp = new UnaryOperation("sqrt");
-        Complex num = new Complex();
-        
-        //if it finds e^(lnx), where x is any quantity:
-        if (this.getType().equals("exp") && this.getChild().getClass() == unOp.getClass()
-            && ((UnaryOperation) this.getChild()).getType().equals("ln"))
-        {
-            this.getHousingFunction().setCleaned(false);
-            //replace e^(lnx) with x
-            this.replaceWith(((UnaryOperation) this.getChild()).getChild());
-        }
-        //if it finds ln(e^x), where x is any quantity:
-        else if (this.getType().equals("ln") && this.getChild().getClass() == unOp.getClass()
-            && ((UnaryOperation) this.getChild()).getType().equals("exp"))
-        {
-            this.getHousingFunction().setCleaned(false);
-            //replace ln(e^x) with x
-            this.replaceWith(((UnaryOperation) this.getChild()).getChild());
-        }
-        //if it finds (sqrt(x))^2, where x is any quantity:
-        else if (this.getType().equals("^2") && this.getChild().getClass() == unOp.getClass()
-            && ((UnaryOperation) this.getChild()).getType().equals("sqrt"))
-        {
-            this.getHousingFunction().setCleaned(false);
-            //replace (sqrt(x))^2 with x
-            this.replaceWith(((UnaryOperation) this.getChild()).getChild());
-        }
-        //if it finds a UnaryOperation performed on any Complex:
-        else if (this.getChild().getClass() == num.getClass())
+        //looks for an unsimplified expression at this node (see StandardRule),
+        //such as e^(lnx), ln(e^x), (sqrt(x))^2 or an operation on a Complex
+        Quantity replacement = Simplifier.standard().rewrite(this);
+        if (replacement != null)
         {
             this.getHousingFunction().setCleaned(false);
-            //evaluate the operation
-            this.getHousingFunction().evaluate(this);
+            replacement.updateFunction(this.getHousingFunction());
+            this.replaceWith(replacement);
         }
         else
         {
@@ -32,6 +32,16 @@ public class Variable extends Quantity {
         this.name = name;
     }
     
+    /**
+     * Tells which subtype of Quantity this is
+     * 
+     * @return Kind.VARIABLE
+     */
+    public Kind getKind()
+    {
+        return Kind.VARIABLE;
+    }
+    
     /**
      * Gets the name
      * 
@@ -61,7 +71,7 @@ public class Variable extends Quantity {
      */
     public void substitute(String variableName, Quantity value)
     {
-        if (name == variableName)
+        if (variableName.equals(name))
         {
             this.replaceWith(value);
         }
@@ -79,23 +89,23 @@ public class Variable extends Quantity {
     }
     
     /**
-     * Finds the derivative of this quantity and replaces itself
-     * in the function with this derivative
+     * Builds the derivative of this quantity, leaving this quantity alone
      * 
      * @param variableName the name of the variable with respect
      * to which this function will be differentiated
+     * @return the derivative
      */
-    public void diff(String variableName)
+    public Quantity derivative(String variableName)
     {
         //if variableName matches this variable:
         if (variableName.equals(name))
         {
-            this.replaceWith(new Complex(1, 0));
+            return new Complex(1, 0);
         }
         //if variableName does not match this variable:
         else
         {
-            this.replaceWith(new Variable("d" + name + "/d" + variableName));
+            return new Variable("d" + name + "/d" + variableName);
         }
     }
 }
@@ -0,0 +1,158 @@
+package complexNumbers;
+
+import java.util.Map;
+
+/**
+ * Values for the variables of a compiled function, stored by slot.
+ *
+ * Every variable of the function is resolved to an integer slot once, when
+ * the binding is created; after that, setting a value is an array store and
+ * evaluate is a single pass over the compiled program, however many
+ * variables there are. A binding can be reused: change some of the values
+ * and call evaluate again.
+ *
+ * A binding owns its CompiledFunction, so (like CompiledFunction) it must
+ * not be shared between threads; use copy() to get one for another thread.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class VariableBinding {
+
+    private final CompiledFunction compiled;
+    private final double[] real;
+    private final double[] imag;
+    private final boolean[] bound;
+
+    /**
+     * Creates a binding for a compiled function, with no values set yet
+     *
+     * @param compiled the function the values are for (used only by this binding)
+     */
+    public VariableBinding(CompiledFunction compiled)
+    {
+        int count = compiled.getVariableCount();
+        this.compiled = compiled;
+        this.real = new double[count];
+        this.imag = new double[count];
+        this.bound = new boolean[count];
+    }
+
+    /**
+     * Creates a binding with the same values as this one and its own copy
+     * of the compiled function
+     *
+     * @return the copy
+     */
+    public VariableBinding copy()
+    {
+        VariableBinding copy = new VariableBinding(compiled.copy());
+        System.arraycopy(real, 0, copy.real, 0, real.length);
+        System.arraycopy(imag, 0, copy.imag, 0, imag.length);
+        System.arraycopy(bound, 0, copy.bound, 0, bound.length);
+        return copy;
+    }
+
+    /**
+     * Gets the number of variables the function has
+     *
+     * @return the number of slots
+     */
+    public int getVariableCount()
+    {
+        return real.length;
+    }
+
+    /**
+     * Finds the slot of a variable
+     *
+     * @param variableName the name of the variable
+     * @return the slot, or -1 if the function has no such variable
+     */
+    public int slotOf(String variableName)
+    {
+        return compiled.slotOf(variableName);
+    }
+
+    /**
+     * Sets the value of the variable in a slot
+     *
+     * @param slot the slot of the variable
+     * @param valueReal the real part of the value
+     * @param valueImag the imaginary part of the value
+     * @return this binding
+     */
+    public VariableBinding set(int slot, double valueReal, double valueImag)
+    {
+        real[slot] = valueReal;
+        imag[slot] = valueImag;
+        bound[slot] = true;
+        return this;
+    }
+
+    /**
+     * Sets the value of a variable. Names the function does not contain are
+     * ignored, just as Function.substitute ignores them
+     *
+     * @param variableName the name of the variable
+     * @param value the value of the variable
+     * @return this binding
+     */
+    public VariableBinding set(String variableName, Complex value)
+    {
+        int slot = compiled.slotOf(variableName);
+        if (slot >= 0)
+        {
+            this.set(slot, value.real(), value.imag());
+        }
+        return this;
+    }
+
+    /**
+     * Sets the values of any number of variables
+     *
+     * @param values the values, by variable name
+     * @return this binding
+     */
+    public VariableBinding setAll(Map<String, Complex> values)
+    {
+        for (Map.Entry<String, Complex> entry : values.entrySet())
+        {
+            this.set(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Tells whether every variable of the function has a value
+     *
+     * @return true if evaluate can be called
+     */
+    public boolean isComplete()
+    {
+        for (boolean slotBound : bound)
+        {
+            if (!slotBound)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the function at the values that have been set
+     *
+     * @return the value of the function
+     * @throws IllegalStateException if some variable has no value
+     */
+    public Complex evaluate()
+    {
+        if (!this.isComplete())
+        {
+            throw new IllegalStateException();
+        }
+        compiled.eval(real, imag);
+        return new Complex(compiled.resultReal(), compiled.resultImag());
+    }
+}
@@ -0,0 +1,33 @@
+package complexNumbers.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that every result comes with
+ * its allocation rate and bytes allocated per operation. Arguments are the
+ * usual JMH command line options (for example a benchmark regex, or
+ * -p depth=8 to fix a parameter).
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain()
+    {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package complexNumbers.benchmarks;
+
+import complexNumbers.Complex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the arithmetic of Complex. Each benchmark works through a fixed
+ * array of random operands (reading the next pair on each call), so the
+ * JIT cannot fold the operands into constants.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplexBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private Complex[] operands;
+    private int index;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+        operands = new Complex[COUNT];
+        for (int i = 0; i < COUNT; i++)
+        {
+            operands[i] = new Complex(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2);
+        }
+    }
+
+    private Complex next()
+    {
+        index = (index + 1) & (COUNT - 1);
+        return operands[index];
+    }
+
+    @Benchmark
+    public Complex multiply()
+    {
+        return this.next().multiply(operands[(index + 7) & (COUNT - 1)]);
+    }
+
+    @Benchmark
+    public Complex divide()
+    {
+        return this.next().divide(operands[(index + 7) & (COUNT - 1)]);
+    }
+
+    @Benchmark
+    public Complex sqrt()
+    {
+        return this.next().sqrt();
+    }
+
+    @Benchmark
+    public Complex exp()
+    {
+        return this.next().exp();
+    }
+
+    @Benchmark
+    public Complex ln()
+    {
+        return this.next().ln();
+    }
+
+    @Benchmark
+    public double arg()
+    {
+        return this.next().arg();
+    }
+}
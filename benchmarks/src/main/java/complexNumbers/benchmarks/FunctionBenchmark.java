@@ -0,0 +1,117 @@
+package complexNumbers.benchmarks;
+
+import complexNumbers.Complex;
+import complexNumbers.Function;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations of Function on random trees (see RandomTrees)
+ * of every combination of depth, width and number of variables.
+ *
+ * approxDeriv and approxIntegral need a function of one variable, so they
+ * run on a copy of the tree with every variable but x0 replaced by a
+ * constant.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark {
+
+    @Param({"2", "4", "8"})
+    public int depth;
+
+    @Param({"1", "4"})
+    public int width;
+
+    @Param({"1", "3"})
+    public int variables;
+
+    private Function function;
+    private Function singleVariable;
+    private Function inner;
+    private Map<String, Complex> values;
+    private final Complex point = new Complex(0.3, 0.2);
+    private final Complex start = new Complex(0, 0);
+    private final Complex end = new Complex(1, 1);
+
+    @Setup
+    public void setUp()
+    {
+        function = RandomTrees.function(depth, width, variables);
+        values = new HashMap<String, Complex>();
+        singleVariable = function.copy();
+        for (int i = 0; i < variables; i++)
+        {
+            Complex value = new Complex(0.1 * (i + 1), 0.2);
+            values.put(RandomTrees.variable(i), value);
+            if (i > 0)
+            {
+                singleVariable.substitute(RandomTrees.variable(i), value);
+            }
+        }
+        inner = RandomTrees.function(2, 1, 1);
+    }
+
+    @Benchmark
+    public Complex subAndEval()
+    {
+        return function.subAndEval(values);
+    }
+
+    @Benchmark
+    public Complex approxDeriv()
+    {
+        return singleVariable.approxDeriv(RandomTrees.variable(0), point);
+    }
+
+    @Benchmark
+    public Complex approxIntegral()
+    {
+        return singleVariable.approxIntegral(RandomTrees.variable(0), start, end, 100);
+    }
+
+    @Benchmark
+    public Function diff()
+    {
+        return function.diff(RandomTrees.variable(0));
+    }
+
+    @Benchmark
+    public Function compose()
+    {
+        return function.compose(RandomTrees.variable(0), inner);
+    }
+
+    @Benchmark
+    public Function cleanUp()
+    {
+        return function.cleanUp();
+    }
+
+    @Benchmark
+    public Function copy()
+    {
+        return function.copy();
+    }
+}
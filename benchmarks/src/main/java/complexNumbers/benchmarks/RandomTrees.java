@@ -0,0 +1,95 @@
+package complexNumbers.benchmarks;
+
+import complexNumbers.Function;
+
+import java.util.Random;
+
+/**
+ * Makes reproducible random functions of a given shape for the benchmarks.
+ *
+ * A function is the sum of width terms. Each term is a tree of the given
+ * depth whose inner nodes are mostly +, - and *, with some ^2 and sqrt, and
+ * whose leaves are variables x0, x1, ... (used in turn, so every variable
+ * appears once there are enough leaves) or small constants. The same
+ * arguments always give the same function.
+ *
+ * @author Ken
+ * @version 10/17/2026
+ */
+final class RandomTrees {
+
+    private final Random random;
+    private final int variableCount;
+    private int nextVariable;
+
+    private RandomTrees(long seed, int variableCount)
+    {
+        this.random = new Random(seed);
+        this.variableCount = variableCount;
+    }
+
+    /**
+     * Makes a random function
+     *
+     * @param depth the depth of each term
+     * @param width the number of terms added together
+     * @param variableCount the number of distinct variables, x0 to x(variableCount - 1)
+     * @return the function
+     */
+    static Function function(int depth, int width, int variableCount)
+    {
+        RandomTrees trees = new RandomTrees(31L * depth + 17L * width + variableCount, variableCount);
+        StringBuilder text = new StringBuilder();
+        for (int term = 0; term < width; term++)
+        {
+            if (term > 0)
+            {
+                text.append(" + ");
+            }
+            trees.term(depth, text);
+        }
+        return Function.parse(text);
+    }
+
+    /**
+     * Gets the name of a variable used by function
+     *
+     * @param index the number of the variable
+     * @return the name of the variable
+     */
+    static String variable(int index)
+    {
+        return "x" + index;
+    }
+
+    private void term(int depth, StringBuilder text)
+    {
+        if (depth == 0)
+        {
+            if (random.nextInt(4) == 0)
+            {
+                text.append(1 + random.nextInt(9)).append(".5");
+            }
+            else
+            {
+                text.append(variable(nextVariable++ % variableCount));
+            }
+            return;
+        }
+        int choice = random.nextInt(10);
+        if (choice < 8)
+        {
+            text.append('(');
+            this.term(depth - 1, text);
+            text.append(choice < 3 ? " + " : choice < 5 ? " - " : " * ");
+            this.term(depth - 1, text);
+            text.append(')');
+        }
+        else
+        {
+            text.append(choice == 8 ? "sqrt(" : "(");
+            this.term(depth - 1, text);
+            text.append(choice == 8 ? ")" : ")^2");
+        }
+    }
+}